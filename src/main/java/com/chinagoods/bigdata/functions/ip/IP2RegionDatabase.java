@@ -0,0 +1,194 @@
+package com.chinagoods.bigdata.functions.ip;
+
+import org.lionsoul.ip2region.DataBlock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 以内存映射方式只读打开的ip2region.db(1.x格式)，每个JVM只映射一次，所有UDF实例与线程共享
+ * <p>
+ * 数据库文件按以下顺序查找：
+ * <ol>
+ * <li>任务工作目录下的ip2region.db，即通过add file或分布式缓存分发到本地的文件</li>
+ * <li>classpath下的/ip2region.db，位于本地目录时直接映射，位于jar包内时先解压到临时文件再映射</li>
+ * </ol>
+ * 映射的内容在堆外，由操作系统页缓存按需加载，同一机器上的多个任务共享同一份物理内存
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public final class IP2RegionDatabase {
+    private static final Logger logger = LoggerFactory.getLogger(IP2RegionDatabase.class);
+
+    public static final String DB_FILE_NAME = "ip2region.db";
+    public static final String DB_RESOURCE_PATH = "/" + DB_FILE_NAME;
+    /**
+     * 索引块：起始ip(4字节)、结束ip(4字节)、数据指针(3字节)与数据长度(1字节)
+     */
+    static final int INDEX_BLOCK_LENGTH = 12;
+
+    private static volatile IP2RegionDatabase instance;
+
+    private final ByteBuffer buffer;
+    private final String source;
+    private final int firstIndexPtr;
+    private final int totalIndexBlocks;
+
+    private IP2RegionDatabase(ByteBuffer buffer, String source) {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.source = source;
+        this.firstIndexPtr = buffer.getInt(0);
+        int lastIndexPtr = buffer.getInt(4);
+        this.totalIndexBlocks = (lastIndexPtr - firstIndexPtr) / INDEX_BLOCK_LENGTH + 1;
+    }
+
+    /**
+     * @return JVM内共享的数据库，首次调用时映射
+     * @throws IOException 找不到或无法映射数据库文件，下次调用会重试
+     */
+    public static IP2RegionDatabase getInstance() throws IOException {
+        IP2RegionDatabase database = instance;
+        if (database == null) {
+            synchronized (IP2RegionDatabase.class) {
+                database = instance;
+                if (database == null) {
+                    database = map(locate());
+                    instance = database;
+                }
+            }
+        }
+        return database;
+    }
+
+    private static File locate() throws IOException {
+        File localFile = new File(DB_FILE_NAME);
+        if (localFile.isFile()) {
+            return localFile;
+        }
+
+        URL resource = IP2RegionDatabase.class.getResource(DB_RESOURCE_PATH);
+        if (resource == null) {
+            throw new IOException(DB_FILE_NAME + " not found in working directory or classpath");
+        }
+        if ("file".equals(resource.getProtocol())) {
+            try {
+                return new File(resource.toURI());
+            } catch (URISyntaxException e) {
+                throw new IOException("invalid " + DB_FILE_NAME + " location: " + resource, e);
+            }
+        }
+
+        // inside a jar, a mapping needs a real file
+        File extracted = File.createTempFile("ip2region", ".db");
+        extracted.deleteOnExit();
+        try (InputStream in = resource.openStream()) {
+            Files.copy(in, extracted.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        logger.info("extract {} to {}", resource, extracted);
+        return extracted;
+    }
+
+    static IP2RegionDatabase map(File file) throws IOException {
+        long start = System.currentTimeMillis();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            // the mapping stays valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            IP2RegionDatabase database = new IP2RegionDatabase(buffer, file.getPath());
+            logger.info("map ip2region.db success, path={}, bytes length={}, index blocks={}, cost={}ms",
+                    file.getPath(), channel.size(), database.totalIndexBlocks, System.currentTimeMillis() - start);
+            return database;
+        }
+    }
+
+    /**
+     * 与DbSearcher.memorySearch相同的二分查找，只使用绝对位置读取，可并发调用
+     *
+     * @param ip ipv4地址的无符号整数值
+     * @return 所在区间的数据，不存在时返回null
+     */
+    public DataBlock search(long ip) {
+        int dataPointer = indexBlock(ip);
+        if (dataPointer == 0) {
+            return null;
+        }
+        return new DataBlock(cityId(dataPointer), region(dataPointer), dataPointer(dataPointer));
+    }
+
+    /**
+     * @return 所在索引块的数据指针字段(低24位为数据位置，高8位为数据长度)，不存在时返回0
+     */
+    private int indexBlock(long ip) {
+        int low = 0;
+        int high = totalIndexBlocks - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int position = firstIndexPtr + middle * INDEX_BLOCK_LENGTH;
+            if (ip < unsignedInt(position)) {
+                high = middle - 1;
+            } else if (ip > unsignedInt(position + 4)) {
+                low = middle + 1;
+            } else {
+                return buffer.getInt(position + 8);
+            }
+        }
+        return 0;
+    }
+
+    int totalIndexBlocks() {
+        return totalIndexBlocks;
+    }
+
+    /**
+     * @return 第i个索引块的起始ip
+     */
+    long startIp(int i) {
+        return unsignedInt(firstIndexPtr + i * INDEX_BLOCK_LENGTH);
+    }
+
+    long endIp(int i) {
+        return unsignedInt(firstIndexPtr + i * INDEX_BLOCK_LENGTH + 4);
+    }
+
+    int dataPointerField(int i) {
+        return buffer.getInt(firstIndexPtr + i * INDEX_BLOCK_LENGTH + 8);
+    }
+
+    static int dataPointer(int dataPointerField) {
+        return dataPointerField & 0x00FFFFFF;
+    }
+
+    int cityId(int dataPointerField) {
+        return buffer.getInt(dataPointer(dataPointerField));
+    }
+
+    String region(int dataPointerField) {
+        int length = ((dataPointerField >>> 24) & 0xFF) - 4;
+        byte[] region = new byte[length];
+        for (int i = 0, position = dataPointer(dataPointerField) + 4; i < length; i++) {
+            region[i] = buffer.get(position + i);
+        }
+        return new String(region, StandardCharsets.UTF_8);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    private long unsignedInt(int position) {
+        return buffer.getInt(position) & 0xFFFFFFFFL;
+    }
+}
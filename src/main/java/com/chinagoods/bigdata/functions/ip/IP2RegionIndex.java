@@ -0,0 +1,534 @@
+package com.chinagoods.bigdata.functions.ip;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.io.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 由ip2region.db构建的ipv4区间索引，每个JVM构建一次，只读共享
+ * <p>
+ * 区间按起始ip排序存放在int[]中(ip与0x80000000异或后按有符号数比较)，查找为无分支的二分查找
+ * ip2region的每条数据记录为一个region，其country、area、province、city、isp、city_id、内容与数据指针
+ * 即ip2region(ip, pos)的pos 0-7，预先编码为UTF-8并去重存入字典，查找只返回编号，不切分字符串也不分配对象
+ * <p>
+ * ipv6区间来自与ip2region.db放在一起的ip2region_v6.txt(可选)，格式同ip2region的源数据ip.merge.txt，每行为
+ * 起始ip|结束ip|国家|区域|省份|城市|运营商，#开头为注释；128位的ip拆为高低两个long存放，与ipv4区间共用字典，
+ * 其city_id与数据指针为0；文件不存在时ipv6地址均查不到
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public final class IP2RegionIndex {
+    private static final Logger logger = LoggerFactory.getLogger(IP2RegionIndex.class);
+
+    public static final int COUNTRY = 0;
+    public static final int AREA = 1;
+    public static final int PROVINCE = 2;
+    public static final int CITY = 3;
+    public static final int ISP = 4;
+    public static final int CITY_ID = 5;
+    public static final int CONTENT = 6;
+    public static final int DATA_PTR = 7;
+    public static final int NUMBER_OF_POSITIONS = 8;
+    /**
+     * find的返回值：合法ip但不在任何区间内
+     */
+    public static final int NOT_FOUND = -1;
+    /**
+     * find的返回值：既不是合法的ipv4也不是合法的ipv6地址
+     */
+    public static final int INVALID_IP = -2;
+    /**
+     * find的返回值：合法ipv6地址但不在任何区间内，ipv6区间通常不完整，调用方不必记录日志
+     */
+    public static final int IPV6_NOT_FOUND = -3;
+
+    public static final String IPV6_FILE_NAME = "ip2region_v6.txt";
+    public static final String IPV6_RESOURCE_PATH = "/" + IPV6_FILE_NAME;
+    /**
+     * region内容中以|分隔的字段数
+     */
+    private static final int NUMBER_OF_REGION_FIELDS = 5;
+    private static final String MISSING_FIELD = "0";
+
+    private static volatile IP2RegionIndex instance;
+
+    private final int[] startIps;
+    private final int[] endIps;
+    private final int[] rangeRegions;
+    /**
+     * ipv6区间的高64位与低64位，均与Long.MIN_VALUE异或后按有符号数比较
+     */
+    private final long[] ipv6StartHighs;
+    private final long[] ipv6StartLows;
+    private final long[] ipv6EndHighs;
+    private final long[] ipv6EndLows;
+    private final int[] ipv6RangeRegions;
+    /**
+     * regionValues[region * NUMBER_OF_POSITIONS + pos]为字典编号
+     */
+    private final int[] regionValues;
+    private final byte[][] dictionary;
+
+    private IP2RegionIndex(int[] startIps, int[] endIps, int[] rangeRegions, long[][] ipv6Ranges, int[] ipv6RangeRegions,
+                           int[] regionValues, byte[][] dictionary) {
+        this.startIps = startIps;
+        this.endIps = endIps;
+        this.rangeRegions = rangeRegions;
+        this.ipv6StartHighs = ipv6Ranges[0];
+        this.ipv6StartLows = ipv6Ranges[1];
+        this.ipv6EndHighs = ipv6Ranges[2];
+        this.ipv6EndLows = ipv6Ranges[3];
+        this.ipv6RangeRegions = ipv6RangeRegions;
+        this.regionValues = regionValues;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * @return JVM内共享的索引，首次调用时由IP2RegionDatabase与ip2region_v6.txt构建
+     * @throws IOException 找不到或无法映射数据库文件、ip2region_v6.txt格式错误，下次调用会重试
+     */
+    public static IP2RegionIndex getInstance() throws IOException {
+        IP2RegionIndex index = instance;
+        if (index == null) {
+            synchronized (IP2RegionIndex.class) {
+                index = instance;
+                if (index == null) {
+                    IP2RegionDatabase database = IP2RegionDatabase.getInstance();
+                    try (BufferedReader ipv6Ranges = openIpv6Ranges()) {
+                        index = build(database, ipv6Ranges);
+                    }
+                    instance = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 依次查找工作目录与classpath下的ip2region_v6.txt
+     *
+     * @return 文件不存在时返回null
+     */
+    private static BufferedReader openIpv6Ranges() throws IOException {
+        InputStream in;
+        File localFile = new File(IPV6_FILE_NAME);
+        if (localFile.isFile()) {
+            in = new FileInputStream(localFile);
+        } else {
+            in = IP2RegionIndex.class.getResourceAsStream(IPV6_RESOURCE_PATH);
+            if (in == null) {
+                logger.info("{} not found in working directory or classpath, ipv6 addresses will not be located", IPV6_FILE_NAME);
+                return null;
+            }
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    static IP2RegionIndex build(IP2RegionDatabase database) throws IOException {
+        return build(database, null);
+    }
+
+    /**
+     * @param ipv6Ranges ip2region_v6.txt的内容，null表示没有ipv6区间
+     * @throws IOException ipv6区间格式错误
+     */
+    static IP2RegionIndex build(IP2RegionDatabase database, BufferedReader ipv6Ranges) throws IOException {
+        long start = System.currentTimeMillis();
+        int size = database.totalIndexBlocks();
+        int[] startIps = new int[size];
+        int[] endIps = new int[size];
+        int[] rangeRegions = new int[size];
+        Map<Integer, Integer> regions = new HashMap<>();
+        Map<String, Integer> ipv6Regions = new HashMap<>();
+        List<Integer> regionValues = new ArrayList<>();
+        Map<String, Integer> dictionaryIds = new HashMap<>();
+        List<byte[]> dictionary = new ArrayList<>();
+
+        int ranges = 0;
+        for (int i = 0; i < size; i++) {
+            int dataPointerField = database.dataPointerField(i);
+            if (dataPointerField == 0) {
+                continue;
+            }
+            startIps[ranges] = toKey(database.startIp(i));
+            endIps[ranges] = toKey(database.endIp(i));
+            Integer region = regions.get(dataPointerField);
+            if (region == null) {
+                region = regions.size();
+                regions.put(dataPointerField, region);
+                addRegionValues(database.region(dataPointerField), database.cityId(dataPointerField),
+                        IP2RegionDatabase.dataPointer(dataPointerField), regionValues, dictionaryIds, dictionary);
+            }
+            rangeRegions[ranges] = region;
+            ranges++;
+        }
+
+        List<long[]> ipv6RangeList = new ArrayList<>();
+        if (ipv6Ranges != null) {
+            long[] ip = new long[2];
+            String line;
+            int lineNumber = 0;
+            while ((line = ipv6Ranges.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int first = line.indexOf('|');
+                int second = first < 0 ? -1 : line.indexOf('|', first + 1);
+                if (second < 0) {
+                    throw new IOException("invalid " + IPV6_FILE_NAME + " line " + lineNumber + ": " + line);
+                }
+                long[] range = new long[5];
+                if (!parseIpv6(new Text(line.substring(0, first)), ip)) {
+                    throw new IOException("invalid start ip in " + IPV6_FILE_NAME + " line " + lineNumber + ": " + line);
+                }
+                range[0] = ip[0] ^ Long.MIN_VALUE;
+                range[1] = ip[1] ^ Long.MIN_VALUE;
+                if (!parseIpv6(new Text(line.substring(first + 1, second)), ip)) {
+                    throw new IOException("invalid end ip in " + IPV6_FILE_NAME + " line " + lineNumber + ": " + line);
+                }
+                range[2] = ip[0] ^ Long.MIN_VALUE;
+                range[3] = ip[1] ^ Long.MIN_VALUE;
+                String content = line.substring(second + 1);
+                Integer region = ipv6Regions.get(content);
+                if (region == null) {
+                    region = regions.size() + ipv6Regions.size();
+                    ipv6Regions.put(content, region);
+                    addRegionValues(content, 0, 0, regionValues, dictionaryIds, dictionary);
+                }
+                range[4] = region;
+                ipv6RangeList.add(range);
+            }
+        }
+        ipv6RangeList.sort(Comparator.<long[]>comparingLong(range -> range[0]).thenComparingLong(range -> range[1]));
+        long[][] ipv6RangeColumns = new long[4][ipv6RangeList.size()];
+        int[] ipv6RangeRegions = new int[ipv6RangeList.size()];
+        for (int i = 0; i < ipv6RangeRegions.length; i++) {
+            long[] range = ipv6RangeList.get(i);
+            for (int column = 0; column < ipv6RangeColumns.length; column++) {
+                ipv6RangeColumns[column][i] = range[column];
+            }
+            ipv6RangeRegions[i] = (int) range[4];
+        }
+
+        int[] values = new int[regionValues.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = regionValues.get(i);
+        }
+        IP2RegionIndex index = new IP2RegionIndex(trim(startIps, ranges), trim(endIps, ranges), trim(rangeRegions, ranges),
+                ipv6RangeColumns, ipv6RangeRegions, values, dictionary.toArray(new byte[0][]));
+        logger.info("build ip2region index success, ranges={}, ipv6 ranges={}, regions={}, dictionary size={}, cost={}ms",
+                ranges, ipv6RangeRegions.length, regions.size() + ipv6Regions.size(), dictionary.size(), System.currentTimeMillis() - start);
+        return index;
+    }
+
+    /**
+     * 按pos 0-7的顺序追加一个region的字典编号
+     */
+    private static void addRegionValues(String content, int cityId, int dataPointer, List<Integer> regionValues,
+                                        Map<String, Integer> dictionaryIds, List<byte[]> dictionary) {
+        // same split as UDFIP2Region used to do on every row
+        String[] fields = StringUtils.split(content, '|');
+        for (int field = 0; field < NUMBER_OF_REGION_FIELDS; field++) {
+            String value = field < fields.length ? fields[field] : MISSING_FIELD;
+            regionValues.add(intern(value, dictionaryIds, dictionary));
+        }
+        regionValues.add(intern(String.valueOf(cityId), dictionaryIds, dictionary));
+        regionValues.add(intern(content, dictionaryIds, dictionary));
+        regionValues.add(intern(String.valueOf(dataPointer), dictionaryIds, dictionary));
+    }
+
+    private static int intern(String value, Map<String, Integer> dictionaryIds, List<byte[]> dictionary) {
+        Integer id = dictionaryIds.get(value);
+        if (id == null) {
+            id = dictionary.size();
+            dictionaryIds.put(value, id);
+            dictionary.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    private static int[] trim(int[] array, int length) {
+        if (array.length == length) {
+            return array;
+        }
+        int[] trimmed = new int[length];
+        System.arraycopy(array, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+    /**
+     * 无符号ip映射为可按有符号int比较的键
+     */
+    private static int toKey(long ip) {
+        return (int) ip ^ Integer.MIN_VALUE;
+    }
+
+    /**
+     * @param ip ipv4地址的无符号整数值
+     * @return ip所在区间的region编号，不在任何区间内时返回-1
+     */
+    public int find(long ip) {
+        int length = startIps.length;
+        if (length == 0) {
+            return NOT_FOUND;
+        }
+        int key = toKey(ip);
+        // the last range whose start is not greater than key, the loop body compiles to a conditional move
+        int base = 0;
+        while (length > 1) {
+            int half = length >>> 1;
+            base = startIps[base + half] <= key ? base + half : base;
+            length -= half;
+        }
+        if (startIps[base] > key || endIps[base] < key) {
+            return NOT_FOUND;
+        }
+        return rangeRegions[base];
+    }
+
+    /**
+     * @param high ipv6地址的高64位
+     * @param low  ipv6地址的低64位
+     * @return ip所在区间的region编号，不在任何区间内时返回-1
+     */
+    public int findIpv6(long high, long low) {
+        int length = ipv6StartHighs.length;
+        if (length == 0) {
+            return NOT_FOUND;
+        }
+        long keyHigh = high ^ Long.MIN_VALUE;
+        long keyLow = low ^ Long.MIN_VALUE;
+        // same search as find, the 128-bit comparison uses non-short-circuit operators to stay branch-free
+        int base = 0;
+        while (length > 1) {
+            int half = length >>> 1;
+            int middle = base + half;
+            long startHigh = ipv6StartHighs[middle];
+            base = startHigh < keyHigh | startHigh == keyHigh & ipv6StartLows[middle] <= keyLow ? middle : base;
+            length -= half;
+        }
+        if (compare(ipv6StartHighs[base], ipv6StartLows[base], keyHigh, keyLow) > 0
+                || compare(ipv6EndHighs[base], ipv6EndLows[base], keyHigh, keyLow) < 0) {
+            return NOT_FOUND;
+        }
+        return ipv6RangeRegions[base];
+    }
+
+    private static int compare(long leftHigh, long leftLow, long rightHigh, long rightLow) {
+        int result = Long.compare(leftHigh, rightHigh);
+        return result != 0 ? result : Long.compare(leftLow, rightLow);
+    }
+
+    /**
+     * 依次按ipv4与ipv6解析ip并查找，ipv4映射的ipv6地址(::ffff:a.b.c.d)按ipv4查找
+     *
+     * @param ipv6 调用方复用的长度为2的缓冲，用于存放解析出的ipv6地址
+     * @return region编号，不在任何区间内时返回NOT_FOUND(ipv6为IPV6_NOT_FOUND)，不是合法ip时返回INVALID_IP
+     */
+    public int find(Text ip, long[] ipv6) {
+        long ipv4 = parseIpv4(ip);
+        if (ipv4 >= 0) {
+            return find(ipv4);
+        }
+        if (!parseIpv6(ip, ipv6)) {
+            return INVALID_IP;
+        }
+        if (ipv6[0] == 0 && ipv6[1] >>> 32 == 0xFFFFL) {
+            return find(ipv6[1] & 0xFFFFFFFFL);
+        }
+        int region = findIpv6(ipv6[0], ipv6[1]);
+        return region == NOT_FOUND ? IPV6_NOT_FOUND : region;
+    }
+
+    /**
+     * @param region find返回的region编号
+     * @param pos    0-7，同ip2region(ip, pos)
+     * @return 字典编号，相同的值编号相同
+     */
+    public int valueId(int region, int pos) {
+        return regionValues[region * NUMBER_OF_POSITIONS + pos];
+    }
+
+    /**
+     * @return 字典中值的UTF-8字节，调用方不得修改
+     */
+    public byte[] value(int valueId) {
+        return dictionary[valueId];
+    }
+
+    /**
+     * 解析ipv4地址，忽略首尾空白，要求四段均为不超过255的1-3位数字
+     *
+     * @return ip的无符号整数值，不合法时返回-1
+     */
+    public static long parseIpv4(Text text) {
+        byte[] bytes = text.getBytes();
+        int start = 0;
+        int end = text.getLength();
+        while (start < end && (bytes[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (bytes[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        return parseIpv4(bytes, start, end);
+    }
+
+    private static long parseIpv4(byte[] bytes, int start, int end) {
+        long ip = 0;
+        int dots = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                if (++digits > 3) {
+                    return -1;
+                }
+                value = value * 10 + (b - '0');
+            } else if (b == '.') {
+                if (digits == 0 || value > 255 || ++dots > 3) {
+                    return -1;
+                }
+                ip = ip << 8 | value;
+                value = 0;
+                digits = 0;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || digits == 0 || value > 255) {
+            return -1;
+        }
+        return ip << 8 | value;
+    }
+
+    /**
+     * 解析ipv6地址，忽略首尾空白，支持::缩写与末尾内嵌的ipv4地址，不支持%zone
+     *
+     * @param result 解析成功时存放地址的高64位与低64位
+     * @return 是否为合法的ipv6地址
+     */
+    public static boolean parseIpv6(Text text, long[] result) {
+        byte[] bytes = text.getBytes();
+        int start = 0;
+        int end = text.getLength();
+        while (start < end && (bytes[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (bytes[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        if (end - start < 2) {
+            return false;
+        }
+
+        // the groups before :: are shifted in from the right, then moved up past the compressed zeros
+        long high = 0;
+        long low = 0;
+        int groups = 0;
+        int compressedAt = -1;
+        int i = start;
+        if (bytes[i] == ':') {
+            if (bytes[i + 1] != ':') {
+                return false;
+            }
+            compressedAt = 0;
+            i += 2;
+        }
+        while (i < end) {
+            int groupStart = i;
+            int value = 0;
+            while (i < end && i - groupStart < 5) {
+                int digit = Character.digit(bytes[i], 16);
+                if (digit < 0) {
+                    break;
+                }
+                value = value << 4 | digit;
+                i++;
+            }
+            int digits = i - groupStart;
+            if (i < end && bytes[i] == '.') {
+                // an embedded ipv4 address takes the last two groups
+                if (groups > 6 || digits == 0) {
+                    return false;
+                }
+                long ipv4 = parseIpv4(bytes, groupStart, end);
+                if (ipv4 < 0) {
+                    return false;
+                }
+                high = high << 32 | low >>> 32;
+                low = low << 32 | ipv4;
+                groups += 2;
+                i = end;
+                break;
+            }
+            if (digits == 0 || digits > 4) {
+                return false;
+            }
+            high = high << 16 | low >>> 48;
+            low = low << 16 | value;
+            groups++;
+            if (i == end) {
+                break;
+            }
+            if (bytes[i] != ':' || i + 1 == end) {
+                return false;
+            }
+            i++;
+            if (bytes[i] == ':') {
+                if (compressedAt >= 0) {
+                    return false;
+                }
+                compressedAt = groups;
+                i++;
+            }
+        }
+
+        if (compressedAt < 0) {
+            if (groups != 8) {
+                return false;
+            }
+        } else {
+            if (groups > 7) {
+                return false;
+            }
+            // move the groups before :: up by the number of compressed groups
+            int shift = (8 - groups) * 16;
+            int tailBits = (groups - compressedAt) * 16;
+            long tailHigh = tailBits > 64 ? high & (-1L >>> (128 - tailBits)) : 0;
+            long tailLow = tailBits == 0 ? 0 : tailBits >= 64 ? low : low & (-1L >>> (64 - tailBits));
+            long headHigh = high ^ tailHigh;
+            long headLow = low ^ tailLow;
+            if (shift >= 64) {
+                headHigh = headLow << (shift - 64);
+                headLow = 0;
+            } else {
+                headHigh = headHigh << shift | headLow >>> (64 - shift);
+                headLow = headLow << shift;
+            }
+            high = headHigh | tailHigh;
+            low = headLow | tailLow;
+        }
+        result[0] = high;
+        result[1] = low;
+        return true;
+    }
+}
@@ -0,0 +1,138 @@
+package com.chinagoods.bigdata.functions.ip;
+
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次查找返回ip的全部区域字段，替代同一查询中对同一ip多次调用ip2region(ip, pos)
+ * 日志中的ip重复度高，每个实例缓存最近查找过的ip对应的region编号，命中时不再解析与查找
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+@Description(name = "ip2region_struct"
+        , value = "_FUNC_(ip) - Convert ipv4 or ipv6 address to region. returns a struct<country, area, province, city, isp, city_id>, "
+        + "every field is the same as ip2region(ip, pos)."
+        , extended = "Example:\n > select _FUNC_(ip).province, _FUNC_(ip).city from src;")
+public class UDFIP2RegionStruct extends GenericUDF {
+    private static final Logger logger = LoggerFactory.getLogger(UDFIP2RegionStruct.class);
+
+    private static final List<String> FIELD_NAMES = Arrays.asList("country", "area", "province", "city", "isp", "city_id");
+    /**
+     * 每个实例缓存的ip数
+     */
+    static final int CACHE_SIZE = 1024;
+
+    private transient ObjectInspectorConverters.Converter ipConverter;
+    private transient IP2RegionIndex index;
+    private transient Map<Text, Integer> recentRegions;
+    private transient Object[] result;
+    private transient long[] ipv6;
+    private transient int lastRegion;
+
+    public UDFIP2RegionStruct() {
+    }
+
+    UDFIP2RegionStruct(IP2RegionIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public ObjectInspector initialize(ObjectInspector[] arguments) throws UDFArgumentException {
+        if (arguments.length != 1) {
+            throw new UDFArgumentLengthException("The function ip2region_struct(ip) takes exactly 1 argument.");
+        }
+
+        ipConverter = ObjectInspectorConverters.getConverter(arguments[0],
+                PrimitiveObjectInspectorFactory.writableStringObjectInspector);
+        recentRegions = new LinkedHashMap<Text, Integer>(CACHE_SIZE * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Text, Integer> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+        result = new Object[FIELD_NAMES.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new Text();
+        }
+        ipv6 = new long[2];
+        lastRegion = Integer.MIN_VALUE;
+
+        List<ObjectInspector> fieldInspectors = new ArrayList<>(FIELD_NAMES.size());
+        for (int i = 0; i < FIELD_NAMES.size(); i++) {
+            fieldInspectors.add(PrimitiveObjectInspectorFactory.writableStringObjectInspector);
+        }
+        return ObjectInspectorFactory.getStandardStructObjectInspector(FIELD_NAMES, fieldInspectors);
+    }
+
+    @Override
+    public Object evaluate(DeferredObject[] arguments) throws HiveException {
+        if (index == null) {
+            // 避免load就占用内存，使用才加载，否则不加载
+            try {
+                index = IP2RegionIndex.getInstance();
+            } catch (IOException e) {
+                logger.error("loading ip2region.db error", e);
+                throw new HiveException("loading ip2region.db error", e);
+            }
+        }
+
+        Text ip = (Text) ipConverter.convert(arguments[0].get());
+        int region = ip == null ? IP2RegionIndex.INVALID_IP : region(ip);
+        // 连续相同的region无需重新填充结果
+        if (region != lastRegion) {
+            for (int pos = 0; pos < result.length; pos++) {
+                Text field = (Text) result[pos];
+                if (region < 0) {
+                    field.set(UDFIP2Region.DEFAULT_IP_REGION_FILED_MAP.get(pos));
+                } else {
+                    byte[] value = index.value(index.valueId(region, pos));
+                    field.set(value, 0, value.length);
+                }
+            }
+            lastRegion = region;
+        }
+        return result;
+    }
+
+    /**
+     * @return ip所在的region编号，不存在或非法ip时返回负数
+     */
+    private int region(Text ip) {
+        Integer region = recentRegions.get(ip);
+        if (region != null) {
+            return region;
+        }
+
+        int found = index.find(ip, ipv6);
+        if (found == IP2RegionIndex.NOT_FOUND) {
+            logger.error("Not exists ip: {}", ip);
+        }
+        // 转换器会复用Text，缓存的键需要复制
+        recentRegions.put(new Text(ip), found);
+        return found;
+    }
+
+    @Override
+    public String getDisplayString(String[] strings) {
+        assert (strings.length == 1);
+        return "ip2region_struct(" + strings[0] + ")";
+    }
+}
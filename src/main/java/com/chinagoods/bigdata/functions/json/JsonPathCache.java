@@ -0,0 +1,69 @@
+package com.chinagoods.bigdata.functions.json;
+
+import com.chinagoods.bigdata.functions.utils.json.JsonPath;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde2.objectinspector.ConstantObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+
+/**
+ * 按path文本缓存编译后的JsonPath，同一JVM内的全部json函数实例共享
+ * JsonPath编译完成后不可变，可以跨线程复用；缓存有容量上限，path列取值很多时按LRU淘汰
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public final class JsonPathCache {
+    public static final int MAXIMUM_SIZE = 1000;
+
+    private static final LoadingCache<String, JsonPath> PATH_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .build(new CacheLoader<String, JsonPath>() {
+                @Override
+                public JsonPath load(String path) {
+                    return new JsonPath(path);
+                }
+            });
+
+    private JsonPathCache() {
+    }
+
+    /**
+     * 获取path对应的JsonPath，不存在时编译并放入缓存
+     *
+     * @param path json path文本
+     * @throws HiveException path语法错误
+     */
+    public static JsonPath get(String path) throws HiveException {
+        try {
+            return PATH_CACHE.getUnchecked(path);
+        } catch (UncheckedExecutionException e) {
+            throw new HiveException("Invalid JSON path: " + path, e.getCause());
+        }
+    }
+
+    /**
+     * path参数为常量时在initialize阶段编译，每个task只编译一次，且语法错误可在编译SQL时暴露
+     *
+     * @param pathInspector path参数的ObjectInspector
+     * @return 常量path对应的JsonPath，非常量或常量为null时返回null
+     */
+    public static JsonPath getConstant(ObjectInspector pathInspector) throws UDFArgumentException {
+        if (!(pathInspector instanceof ConstantObjectInspector)) {
+            return null;
+        }
+        Object path = ((ConstantObjectInspector) pathInspector).getWritableConstantValue();
+        if (path == null) {
+            return null;
+        }
+        try {
+            return get(path.toString());
+        } catch (HiveException e) {
+            throw new UDFArgumentException(e);
+        }
+    }
+}
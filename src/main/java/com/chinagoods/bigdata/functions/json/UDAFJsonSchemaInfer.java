@@ -0,0 +1,174 @@
+package com.chinagoods.bigdata.functions.json;
+
+import com.chinagoods.bigdata.functions.utils.json.JsonSchema;
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.parse.SemanticException;
+import org.apache.hadoop.hive.ql.udf.generic.AbstractGenericUDAFResolver;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
+import org.apache.hadoop.hive.serde2.io.DoubleWritable;
+import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.MapObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.LongObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 推断一列json的结构，返回path -> {type, count, null_rate}
+ * 逐行流式解析json，不构建Jackson树；部分聚合结果为path -> 各类型出现次数，可在多个mapper间合并
+ * path写法及类型说明见JsonSchema
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+@Description(name = "json_schema_infer", value = "_FUNC_(json) - infers the structure of a json column. "
+        + "Returns a map from json path to struct<type, count, null_rate>, array elements are merged into path[*]. "
+        + "type is one of object, array, string, integer, float, boolean, null, or several of them joined by '|'; "
+        + "count is the number of values seen at the path and null_rate the fraction of them that are json null."
+        , extended = "Example:\n"
+        + "  > SELECT _FUNC_(json) FROM src;")
+public class UDAFJsonSchemaInfer extends AbstractGenericUDAFResolver {
+
+    @Override
+    public GenericUDAFEvaluator getEvaluator(TypeInfo[] parameters) throws SemanticException {
+        if (parameters.length != 1) {
+            throw new UDFArgumentLengthException("The function json_schema_infer(json) takes exactly 1 argument.");
+        }
+        if (parameters[0].getCategory() != ObjectInspector.Category.PRIMITIVE
+                || ((PrimitiveTypeInfo) parameters[0]).getPrimitiveCategory() != PrimitiveObjectInspector.PrimitiveCategory.STRING) {
+            throw new UDFArgumentTypeException(0, "The argument of function json_schema_infer must be a string.");
+        }
+        return new JsonSchemaInferEvaluator();
+    }
+
+    public static class JsonSchemaInferEvaluator extends GenericUDAFEvaluator {
+        private static final List<String> RESULT_FIELD_NAMES = Arrays.asList("type", "count", "null_rate");
+
+        // PARTIAL1, COMPLETE: json
+        private transient StringObjectInspector jsonInspector;
+        // PARTIAL2, FINAL: map<string, array<bigint>>
+        private transient MapObjectInspector partialInspector;
+        private transient StringObjectInspector partialPathInspector;
+        private transient ListObjectInspector partialCountsInspector;
+        private transient LongObjectInspector partialCountInspector;
+
+        @Override
+        public ObjectInspector init(Mode m, ObjectInspector[] parameters) throws HiveException {
+            super.init(m, parameters);
+            if (m == Mode.PARTIAL1 || m == Mode.COMPLETE) {
+                jsonInspector = (StringObjectInspector) parameters[0];
+            } else {
+                partialInspector = (MapObjectInspector) parameters[0];
+                partialPathInspector = (StringObjectInspector) partialInspector.getMapKeyObjectInspector();
+                partialCountsInspector = (ListObjectInspector) partialInspector.getMapValueObjectInspector();
+                partialCountInspector = (LongObjectInspector) partialCountsInspector.getListElementObjectInspector();
+            }
+
+            if (m == Mode.PARTIAL1 || m == Mode.PARTIAL2) {
+                return ObjectInspectorFactory.getStandardMapObjectInspector(
+                        PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+                        ObjectInspectorFactory.getStandardListObjectInspector(PrimitiveObjectInspectorFactory.writableLongObjectInspector));
+            }
+            return ObjectInspectorFactory.getStandardMapObjectInspector(
+                    PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+                    ObjectInspectorFactory.getStandardStructObjectInspector(RESULT_FIELD_NAMES,
+                            Arrays.<ObjectInspector>asList(PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+                                    PrimitiveObjectInspectorFactory.writableLongObjectInspector,
+                                    PrimitiveObjectInspectorFactory.writableDoubleObjectInspector)));
+        }
+
+        static class SchemaAggregationBuffer implements AggregationBuffer {
+            private final JsonSchema schema = new JsonSchema();
+        }
+
+        @Override
+        public AggregationBuffer getNewAggregationBuffer() throws HiveException {
+            return new SchemaAggregationBuffer();
+        }
+
+        @Override
+        public void reset(AggregationBuffer agg) throws HiveException {
+            ((SchemaAggregationBuffer) agg).schema.reset();
+        }
+
+        @Override
+        public void iterate(AggregationBuffer agg, Object[] parameters) throws HiveException {
+            if (parameters[0] == null) {
+                return;
+            }
+            Text json = jsonInspector.getPrimitiveWritableObject(parameters[0]);
+            if (json != null) {
+                ((SchemaAggregationBuffer) agg).schema.add(json);
+            }
+        }
+
+        @Override
+        public Object terminatePartial(AggregationBuffer agg) throws HiveException {
+            Map<String, long[]> counts = ((SchemaAggregationBuffer) agg).schema.getCounts();
+            Map<Text, List<LongWritable>> partial = new HashMap<>(counts.size() * 4 / 3 + 1);
+            for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+                List<LongWritable> typeCounts = new ArrayList<>(JsonSchema.NUMBER_OF_TYPES);
+                for (long count : entry.getValue()) {
+                    typeCounts.add(new LongWritable(count));
+                }
+                partial.put(new Text(entry.getKey()), typeCounts);
+            }
+            return partial;
+        }
+
+        @Override
+        public void merge(AggregationBuffer agg, Object partial) throws HiveException {
+            if (partial == null) {
+                return;
+            }
+            JsonSchema schema = ((SchemaAggregationBuffer) agg).schema;
+            for (Map.Entry<?, ?> entry : partialInspector.getMap(partial).entrySet()) {
+                String path = partialPathInspector.getPrimitiveJavaObject(entry.getKey());
+                Object typeCounts = entry.getValue();
+                int length = Math.min(partialCountsInspector.getListLength(typeCounts), JsonSchema.NUMBER_OF_TYPES);
+                for (int type = 0; type < length; type++) {
+                    Object count = partialCountsInspector.getListElement(typeCounts, type);
+                    if (count != null) {
+                        schema.add(path, type, partialCountInspector.get(count));
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Object terminate(AggregationBuffer agg) throws HiveException {
+            Map<Text, Object[]> result = new TreeMap<>();
+            for (Map.Entry<String, long[]> entry : ((SchemaAggregationBuffer) agg).schema.getCounts().entrySet()) {
+                long[] typeCounts = entry.getValue();
+                long count = 0;
+                for (long typeCount : typeCounts) {
+                    count += typeCount;
+                }
+                if (count == 0) {
+                    continue;
+                }
+                result.put(new Text(entry.getKey()), new Object[]{
+                        new Text(JsonSchema.typeName(typeCounts)),
+                        new LongWritable(count),
+                        new DoubleWritable((double) typeCounts[JsonSchema.NULL] / count)});
+            }
+            return result;
+        }
+    }
+}
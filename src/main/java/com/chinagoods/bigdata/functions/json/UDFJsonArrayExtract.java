@@ -2,8 +2,8 @@ package com.chinagoods.bigdata.functions.json;
 
 import com.chinagoods.bigdata.functions.utils.json.JsonExtract;
 import com.chinagoods.bigdata.functions.utils.json.JsonPath;
-import com.chinagoods.bigdata.functions.utils.json.JsonUtils;
 import java.util.ArrayList;
+import java.util.List;
 import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
@@ -24,7 +24,11 @@ import org.apache.hadoop.io.Text;
         , extended = "Example:\n"
         + "  > SELECT _FUNC_(json_array, json_path) FROM src LIMIT 1;")
 public class UDFJsonArrayExtract extends GenericUDF {
-    private ObjectInspectorConverters.Converter[] converters;
+    private transient ObjectInspectorConverters.Converter[] converters;
+    /**
+     * path为常量时在initialize中编译，否则为null，逐行从JsonPathCache获取
+     */
+    private transient JsonPath constantPath;
 
     public UDFJsonArrayExtract() {
     }
@@ -41,6 +45,7 @@ public class UDFJsonArrayExtract extends GenericUDF {
             converters[i] = ObjectInspectorConverters.getConverter(arguments[i],
                     PrimitiveObjectInspectorFactory.writableStringObjectInspector);
         }
+        constantPath = JsonPathCache.getConstant(arguments[1]);
 
         return ObjectInspectorFactory
                 .getStandardListObjectInspector(PrimitiveObjectInspectorFactory
@@ -51,26 +56,28 @@ public class UDFJsonArrayExtract extends GenericUDF {
     public Object evaluate(DeferredObject[] arguments) throws HiveException {
         assert (arguments.length == 2);
 
-        if (arguments[0].get() == null || arguments[1].get() == null) {
+        Text jsonText = (Text) converters[0].convert(arguments[0].get());
+        if (jsonText == null) {
             return null;
         }
 
         try {
-            Text jsonText = (Text) converters[0].convert(arguments[0].get());
-            Text pathText = (Text) converters[1].convert(arguments[1].get());
-            String json = jsonText.toString();
+            JsonPath jsonPath = constantPath;
+            if (jsonPath == null) {
+                Text pathText = (Text) converters[1].convert(arguments[1].get());
+                if (pathText == null) {
+                    return null;
+                }
+                jsonPath = JsonPathCache.get(pathText.toString());
+            }
 
-            Long length = JsonUtils.jsonArrayLength(json);
-            if (length == null) {
+            List<String> results = JsonExtract.extractArray(jsonText, jsonPath.getObjectExtractor());
+            if (results == null) {
                 return null;
             }
-            ArrayList<Text> ret = new ArrayList<Text>(length.intValue());
-            JsonPath jsonPath = new JsonPath(pathText.toString());
-            ret.clear();
-            for (int i = 0; i < length; i++) {
-                String content = JsonUtils.jsonArrayGet(json, i);
-                String result = JsonExtract.extract(content, jsonPath.getObjectExtractor());
-                ret.add(new Text(result));
+            ArrayList<Text> ret = new ArrayList<Text>(results.size());
+            for (String result : results) {
+                ret.add(result == null ? null : new Text(result));
             }
             return ret;
         } catch (Exception e) {
@@ -21,7 +21,7 @@ public class UDFJsonArrayGet extends UDF {
 
     public Text evaluate(Text json, long index) {
         try {
-            result.set(JsonUtils.jsonArrayGet(json.toString(), index));
+            result.set(JsonUtils.jsonArrayGet(json, index));
             return result;
         } catch (Exception e) {
             return null;
@@ -22,7 +22,7 @@ public class UDFJsonArrayLength extends UDF {
 
     public LongWritable evaluate(Text text) {
         try {
-            result.set(JsonUtils.jsonArrayLength(text.toString()));
+            result.set(JsonUtils.jsonArrayLength(text));
             return result;
         } catch (Exception e) {
             return null;
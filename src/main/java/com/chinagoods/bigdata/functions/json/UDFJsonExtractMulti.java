@@ -0,0 +1,100 @@
+package com.chinagoods.bigdata.functions.json;
+
+import com.chinagoods.bigdata.functions.utils.json.JsonPath;
+import com.chinagoods.bigdata.functions.utils.json.JsonPathTrie;
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.Text;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次解析json同时抽取多个path的标量值，替代对同一列多次调用json_extract_scalar
+ * path必须为常量，initialize时合并为JsonPathTrie
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+@Description(name = "json_extract_multi", value = "_FUNC_(json, json_path1, json_path2, ...) - like json_extract_scalar for every json_path, but parses json only once. "
+        + "Returns an array whose i-th element is the result of the i-th json_path."
+        , extended = "Example:\n"
+        + "  > SELECT _FUNC_(json, '$.event', '$.properties.platform_type') FROM src LIMIT 1;")
+public class UDFJsonExtractMulti extends GenericUDF {
+    private transient ObjectInspectorConverters.Converter jsonConverter;
+    private transient JsonPathTrie pathTrie;
+    private transient String[] results;
+
+    public UDFJsonExtractMulti() {
+    }
+
+    @Override
+    public ObjectInspector initialize(ObjectInspector[] arguments) throws UDFArgumentException {
+        if (arguments.length < 2) {
+            throw new UDFArgumentLengthException(
+                    "The function json_extract_multi(json, json_path1, json_path2, ...) takes at least 2 arguments.");
+        }
+
+        jsonConverter = ObjectInspectorConverters.getConverter(arguments[0],
+                PrimitiveObjectInspectorFactory.writableStringObjectInspector);
+        pathTrie = constantPathTrie("json_extract_multi", arguments);
+        results = new String[pathTrie.size()];
+
+        return ObjectInspectorFactory
+                .getStandardListObjectInspector(PrimitiveObjectInspectorFactory
+                        .writableStringObjectInspector);
+    }
+
+    /**
+     * 将arguments[1..]的常量path合并为JsonPathTrie
+     */
+    static JsonPathTrie constantPathTrie(String functionName, ObjectInspector[] arguments) throws UDFArgumentException {
+        List<JsonPath> paths = new ArrayList<>(arguments.length - 1);
+        for (int i = 1; i < arguments.length; i++) {
+            JsonPath path = JsonPathCache.getConstant(arguments[i]);
+            if (path == null) {
+                throw new UDFArgumentTypeException(i,
+                        "The json_path arguments of function " + functionName + " must be non-null constant strings.");
+            }
+            if (!path.isDefinite()) {
+                throw new UDFArgumentTypeException(i,
+                        "The json_path arguments of function " + functionName + " must not contain [*], .. or filters.");
+            }
+            paths.add(path);
+        }
+        return new JsonPathTrie(paths);
+    }
+
+    @Override
+    public Object evaluate(DeferredObject[] arguments) throws HiveException {
+        Text json = (Text) jsonConverter.convert(arguments[0].get());
+        if (json == null) {
+            return null;
+        }
+
+        pathTrie.extract(json, results);
+        ArrayList<Text> ret = new ArrayList<Text>(results.length);
+        for (String result : results) {
+            ret.add(result == null ? null : new Text(result));
+        }
+        return ret;
+    }
+
+    @Override
+    public String getDisplayString(String[] strings) {
+        assert (strings.length >= 2);
+        StringBuilder displayString = new StringBuilder("json_extract_multi(").append(strings[0]);
+        for (int i = 1; i < strings.length; i++) {
+            displayString.append(", ").append(strings[i]);
+        }
+        return displayString.append(")").toString();
+    }
+}
@@ -3,7 +3,13 @@ package com.chinagoods.bigdata.functions.json;
 import com.chinagoods.bigdata.functions.utils.json.JsonExtract;
 import com.chinagoods.bigdata.functions.utils.json.JsonPath;
 import org.apache.hadoop.hive.ql.exec.Description;
-import org.apache.hadoop.hive.ql.exec.UDF;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 
@@ -15,20 +21,67 @@ import org.apache.hadoop.io.Text;
 @Description(name = "json_size", value = "_FUNC_(json, json_path) - like json_extract, but returns the size of the value. For objects or arrays, the size is the number of members, and the size of a scalar value is zero. "
         , extended = "Example:\n"
         + "  > SELECT _FUNC_(json_array, json_path) FROM src LIMIT 1;")
-public class UDFJsonSize extends UDF{
-    private LongWritable result = new LongWritable();
+public class UDFJsonSize extends GenericUDF {
+    private transient ObjectInspectorConverters.Converter[] converters;
+    /**
+     * path为常量时在initialize中编译，否则为null，逐行从JsonPathCache获取
+     */
+    private transient JsonPath constantPath;
+    private transient LongWritable result;
 
     public UDFJsonSize() {
     }
 
-    public LongWritable evaluate(Text json, Text path) {
+    @Override
+    public ObjectInspector initialize(ObjectInspector[] arguments) throws UDFArgumentException {
+        if (arguments.length != 2) {
+            throw new UDFArgumentLengthException(
+                    "The function json_size(json, json_path) takes exactly 2 arguments.");
+        }
+
+        converters = new ObjectInspectorConverters.Converter[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            converters[i] = ObjectInspectorConverters.getConverter(arguments[i],
+                    PrimitiveObjectInspectorFactory.writableStringObjectInspector);
+        }
+        constantPath = JsonPathCache.getConstant(arguments[1]);
+        result = new LongWritable();
+
+        return PrimitiveObjectInspectorFactory.writableLongObjectInspector;
+    }
+
+    @Override
+    public Object evaluate(DeferredObject[] arguments) throws HiveException {
+        assert (arguments.length == 2);
+
+        Text json = (Text) converters[0].convert(arguments[0].get());
+        if (json == null) {
+            return null;
+        }
+
         try {
-            JsonPath jsonPath = new JsonPath(path.toString());
-            Long size = JsonExtract.extract(json.toString(), jsonPath.getSizeExtractor());
-            result.set(size);
+            JsonPath jsonPath = constantPath;
+            if (jsonPath == null) {
+                Text path = (Text) converters[1].convert(arguments[1].get());
+                if (path == null) {
+                    return null;
+                }
+                jsonPath = JsonPathCache.get(path.toString());
+            }
+            Long content = JsonExtract.extract(json, jsonPath.getSizeExtractor());
+            if (content == null) {
+                return null;
+            }
+            result.set(content);
             return result;
         } catch (Exception e) {
             return null;
         }
     }
+
+    @Override
+    public String getDisplayString(String[] strings) {
+        assert (strings.length == 2);
+        return "json_size(" + strings[0] + ", " + strings[1] + ")";
+    }
 }
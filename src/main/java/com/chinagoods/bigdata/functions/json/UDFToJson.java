@@ -1,5 +1,14 @@
 package com.chinagoods.bigdata.functions.json;
 
+import com.chinagoods.bigdata.functions.utils.TextSliceUtils;
+import com.chinagoods.bigdata.functions.utils.json.JsonTextBuffer;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerationException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import org.apache.hadoop.hive.common.type.HiveDecimal;
 import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
@@ -15,15 +24,11 @@ import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.Pr
 import org.apache.hadoop.hive.serde2.objectinspector.StructField;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.*;
-import org.codehaus.jackson.JsonFactory;
-import org.codehaus.jackson.JsonGenerationException;
-import org.codehaus.jackson.JsonGenerator;
+import org.apache.hadoop.io.Text;
 import org.joda.time.format.DateTimeFormatter;
 import org.joda.time.format.ISODateTimeFormat;
 
 import java.io.IOException;
-import java.io.StringWriter;
-import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -34,17 +39,39 @@ import java.util.Map;
         value = "_FUNC_(struct, convert_to_camel_case) - Returns a JSON string from an arbitrary Hive structure."
 )
 public class UDFToJson extends GenericUDF {
-    private InspectorHandle inspHandle;
+    /**
+     * 每个函数实例缓存的map key驼峰转换结果数量上限
+     */
+    private static final int MAP_KEY_CACHE_SIZE = 1000;
+    /**
+     * generator在各行之间复用，行与行之间不输出分隔符
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory().setRootValueSeparator(null);
+
+    private transient InspectorHandle inspHandle;
     private Boolean convertFlag = Boolean.FALSE;
-    private JsonFactory jsonFactory;
+    private transient LoadingCache<String, SerializedString> camelCaseKeys;
+    private transient JsonTextBuffer buffer;
+    /**
+     * 绑定在buffer的Writer上，逐行复用；某行生成失败后状态未知，置为null待下一行重建
+     */
+    private transient JsonGenerator generator;
+    private transient Text result;
 
     static public String toCamelCase(String underscore) {
         StringBuilder sb = new StringBuilder();
         String[] splArr = underscore.toLowerCase().split("_");
+        if (splArr.length == 0) {
+            return "";
+        }
 
         sb.append(splArr[0]);
         for (int i = 1; i < splArr.length; ++i) {
             String word = splArr[i];
+            // consecutive underscores
+            if (word.isEmpty()) {
+                continue;
+            }
             char firstChar = word.charAt(0);
             if (firstChar >= 'a' && firstChar <= 'z') {
                 sb.append((char) (word.charAt(0) + 'A' - 'a'));
@@ -90,7 +117,7 @@ public class UDFToJson extends GenericUDF {
                     Map.Entry entry = iter.next();
                     String keyJson = keyObjectInspector.getPrimitiveJavaObject(entry.getKey());
                     if (convertFlag) {
-                        gen.writeFieldName(toCamelCase(keyJson));
+                        gen.writeFieldName(camelCaseKeys.getUnchecked(keyJson));
                     } else {
                         gen.writeFieldName(keyJson);
                     }
@@ -104,7 +131,10 @@ public class UDFToJson extends GenericUDF {
 
     private class StructInspectorHandle implements InspectorHandle {
         private StructObjectInspector structInspector;
-        private List<String> fieldNames;
+        /**
+         * 输出的字段名，需要驼峰时已在initialize阶段转换
+         */
+        private List<SerializedString> fieldNames;
         private List<InspectorHandle> fieldInspectorHandles;
 
         public StructInspectorHandle(StructObjectInspector insp) throws UDFArgumentException {
@@ -113,7 +143,8 @@ public class UDFToJson extends GenericUDF {
             this.fieldNames = new ArrayList<>();
             this.fieldInspectorHandles = new ArrayList<>();
             for (StructField sf : fieldList) {
-                fieldNames.add(sf.getFieldName());
+                String fieldName = sf.getFieldName();
+                fieldNames.add(new SerializedString(convertFlag ? toCamelCase(fieldName) : fieldName));
                 fieldInspectorHandles.add(GenerateInspectorHandle(sf.getFieldObjectInspector()));
             }
         }
@@ -128,12 +159,7 @@ public class UDFToJson extends GenericUDF {
                 List structObjs = structInspector.getStructFieldsDataAsList(obj);
 
                 for (int i = 0; i < fieldNames.size(); ++i) {
-                    String fieldName = fieldNames.get(i);
-                    if (convertFlag) {
-                        gen.writeFieldName(toCamelCase(fieldName));
-                    } else {
-                        gen.writeFieldName(fieldName);
-                    }
+                    gen.writeFieldName(fieldNames.get(i));
                     fieldInspectorHandles.get(i).generateJson(gen, structObjs.get(i));
                 }
                 gen.writeEndObject();
@@ -417,17 +443,32 @@ public class UDFToJson extends GenericUDF {
 
     @Override
     public Object evaluate(DeferredObject[] args) throws HiveException {
+        boolean generated = false;
         try {
-            StringWriter writer = new StringWriter();
-            JsonGenerator gen = jsonFactory.createJsonGenerator(writer);
-            inspHandle.generateJson(gen, args[0].get());
-            gen.close();
-            writer.close();
-            return writer.toString();
+            if (generator == null) {
+                generator = JSON_FACTORY.createGenerator(buffer.reset());
+            } else {
+                buffer.reset();
+            }
+            inspHandle.generateJson(generator, args[0].get());
+            generator.flush();
+            generated = true;
+            return TextSliceUtils.set(result, buffer.toUtf8());
         } catch (IOException io) {
             throw new HiveException(io);
+        } finally {
+            if (!generated) {
+                generator = null;
+            }
         }
+    }
 
+    @Override
+    public void close() throws IOException {
+        if (generator != null) {
+            generator.close();
+            generator = null;
+        }
     }
 
     @Override
@@ -441,9 +482,6 @@ public class UDFToJson extends GenericUDF {
         if (args.length != 1 && args.length != 2) {
             throw new UDFArgumentException(" ToJson takes an object as an argument, and an optional to_camel_case flag");
         }
-        ObjectInspector oi = args[0];
-        inspHandle = GenerateInspectorHandle(oi);
-
         if (args.length == 2) {
             ObjectInspector flagInsp = args[1];
             if (flagInsp.getCategory() != Category.PRIMITIVE
@@ -455,9 +493,23 @@ public class UDFToJson extends GenericUDF {
             WritableConstantBooleanObjectInspector constInsp = (WritableConstantBooleanObjectInspector) flagInsp;
             convertFlag = constInsp.getWritableConstantValue().get();
         }
+        camelCaseKeys = CacheBuilder.newBuilder()
+                .maximumSize(MAP_KEY_CACHE_SIZE)
+                .build(new CacheLoader<String, SerializedString>() {
+                    @Override
+                    public SerializedString load(String key) {
+                        return new SerializedString(toCamelCase(key));
+                    }
+                });
+
+        // 字段名在生成handle时按convertFlag转换，因此先解析convertFlag
+        ObjectInspector oi = args[0];
+        inspHandle = GenerateInspectorHandle(oi);
 
-        jsonFactory = new JsonFactory();
+        buffer = new JsonTextBuffer();
+        generator = null;
+        result = new Text();
 
-        return PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+        return PrimitiveObjectInspectorFactory.writableStringObjectInspector;
     }
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.chinagoods.bigdata.functions.json;
+
+import com.chinagoods.bigdata.functions.utils.json.JsonPathTrie;
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDTF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.Text;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * json_extract_multi的UDTF版本，每行输出一条记录，第i列为第i个path的结果，列名为c0, c1, ...
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+@Description(name = "json_extract_tuple", value = "_FUNC_(json, json_path1, json_path2, ...) - like json_extract_scalar for every json_path, but parses json only once. "
+        + "Forwards one row whose i-th column is the result of the i-th json_path."
+        , extended = "Example:\n"
+        + "  > SELECT t.* FROM src LATERAL VIEW _FUNC_(json, '$.event', '$.properties.platform_type') t AS event, platform_type;")
+public class UDTFJsonExtractTuple extends GenericUDTF {
+    private transient ObjectInspectorConverters.Converter jsonConverter;
+    private transient JsonPathTrie pathTrie;
+    private transient String[] results;
+    private transient Text[] columns;
+    private transient Object[] row;
+
+    public UDTFJsonExtractTuple() {
+    }
+
+    @Override
+    public StructObjectInspector initialize(ObjectInspector[] arguments) throws UDFArgumentException {
+        if (arguments.length < 2) {
+            throw new UDFArgumentLengthException(
+                    "The function json_extract_tuple(json, json_path1, json_path2, ...) takes at least 2 arguments.");
+        }
+
+        jsonConverter = ObjectInspectorConverters.getConverter(arguments[0],
+                PrimitiveObjectInspectorFactory.writableStringObjectInspector);
+        pathTrie = UDFJsonExtractMulti.constantPathTrie("json_extract_tuple", arguments);
+        results = new String[pathTrie.size()];
+        columns = new Text[pathTrie.size()];
+        row = new Object[pathTrie.size()];
+
+        List<String> fieldNames = new ArrayList<>(pathTrie.size());
+        List<ObjectInspector> fieldInspectors = new ArrayList<>(pathTrie.size());
+        for (int i = 0; i < pathTrie.size(); i++) {
+            columns[i] = new Text();
+            fieldNames.add("c" + i);
+            fieldInspectors.add(PrimitiveObjectInspectorFactory.writableStringObjectInspector);
+        }
+        return ObjectInspectorFactory.getStandardStructObjectInspector(fieldNames, fieldInspectors);
+    }
+
+    @Override
+    public void process(Object[] arguments) throws HiveException {
+        Text json = (Text) jsonConverter.convert(arguments[0]);
+        if (json == null) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = null;
+            }
+            forward(row);
+            return;
+        }
+
+        pathTrie.extract(json, results);
+        for (int i = 0; i < row.length; i++) {
+            if (results[i] == null) {
+                row[i] = null;
+            } else {
+                columns[i].set(results[i]);
+                row[i] = columns[i];
+            }
+        }
+        forward(row);
+    }
+
+    @Override
+    public void close() throws HiveException {
+
+    }
+}
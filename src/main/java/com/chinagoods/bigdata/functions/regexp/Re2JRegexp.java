@@ -27,18 +27,28 @@ public final class Re2JRegexp {
     private static final int CORE_PATTERN_INDEX = 2;
 
     public final int dfaStatesLimit;
+    public final long dfaMemoryBytes;
     public final int dfaRetries;
 
     public final Pattern re2jPattern;
     public final Pattern re2jPatternWithoutDotStartPrefix;
 
     public Re2JRegexp(int dfaStatesLimit, int dfaRetries, Slice pattern) {
+        this(dfaStatesLimit, Long.MAX_VALUE, dfaRetries, pattern);
+    }
+
+    /**
+     * @param dfaMemoryBytes DFA状态缓存的内存上限(估算值)，超出后清空重建，重建dfaRetries次后改用NFA
+     */
+    public Re2JRegexp(int dfaStatesLimit, long dfaMemoryBytes, int dfaRetries, Slice pattern) {
         this.dfaStatesLimit = dfaStatesLimit;
+        this.dfaMemoryBytes = dfaMemoryBytes;
         this.dfaRetries = dfaRetries;
 
         Options options = Options.builder()
                 .setAlgorithm(DFA_FALLBACK_TO_NFA)
                 .setMaximumNumberOfDFAStates(dfaStatesLimit)
+                .setMaximumDFAMemoryBytes(dfaMemoryBytes)
                 .setNumberOfDFARetries(dfaRetries)
                 .setEventsListener(new RE2JEventsListener())
                 .build();
@@ -131,10 +141,10 @@ public final class Re2JRegexp {
         while (matcher.find()) {
             Slice slice = source.slice(lastEnd, matcher.start() - lastEnd);
             lastEnd = matcher.end();
-            list.add(slice.toString());
+            list.add(slice.toStringUtf8());
         }
 
-        list.add(source.slice(lastEnd, source.length() - lastEnd).toString());
+        list.add(source.slice(lastEnd, source.length() - lastEnd).toStringUtf8());
         return list;
     }
 
@@ -142,7 +152,20 @@ public final class Re2JRegexp {
             implements Options.EventsListener {
         @Override
         public void fallbackToNFA() {
-            log.debug("Fallback to NFA, pattern: %s, DFA states limit: %d, DFA retries: %d", re2jPattern.pattern(), dfaStatesLimit, dfaRetries);
+            Re2JRegexpCounters.increment(Re2JRegexpCounters.Counter.NFA_FALLBACKS);
+            log.warn("Fallback to NFA, pattern: {}, DFA states limit: {}, DFA memory bytes: {}, DFA retries: {}",
+                    re2jPattern.pattern(), dfaStatesLimit, dfaMemoryBytes, dfaRetries);
+        }
+
+        @Override
+        public void dfaStateCreated() {
+            Re2JRegexpCounters.increment(Re2JRegexpCounters.Counter.DFA_STATES_CREATED);
+        }
+
+        @Override
+        public void dfaCacheReset() {
+            Re2JRegexpCounters.increment(Re2JRegexpCounters.Counter.DFA_CACHE_RESETS);
+            log.debug("DFA states cache reset, pattern: {}", re2jPattern.pattern());
         }
     }
 }
\ No newline at end of file
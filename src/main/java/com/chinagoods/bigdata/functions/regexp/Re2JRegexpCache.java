@@ -0,0 +1,104 @@
+package com.chinagoods.bigdata.functions.regexp;
+
+import com.chinagoods.bigdata.functions.regexp.re2j.PatternSet;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.airlift.slice.Slices;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde2.objectinspector.ConstantObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+
+import java.util.List;
+
+/**
+ * 按正则文本缓存编译后的Re2JRegexp(以及按正则列表缓存PatternSet)，同一JVM内的全部re2j正则函数实例共享
+ * Re2JRegexp编译完成后不可变，底层re2j Pattern线程安全，因此可以跨线程复用
+ * 缓存有容量上限，正则列取值很多时按LRU淘汰，避免无限增长
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public final class Re2JRegexpCache {
+    public static final int DFA_STATES_LIMIT = Integer.MAX_VALUE;
+    /**
+     * 单个正则DFA状态缓存的内存上限，与RE2默认的8MB一致
+     */
+    public static final long DFA_MEMORY_BYTES = 8L * 1024 * 1024;
+    public static final int DFA_RETRIES = 5;
+    public static final int MAXIMUM_SIZE = 1000;
+    public static final int PATTERN_SET_MAXIMUM_SIZE = 100;
+
+    private static final LoadingCache<String, Re2JRegexp> REGEXP_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .build(new CacheLoader<String, Re2JRegexp>() {
+                @Override
+                public Re2JRegexp load(String pattern) {
+                    return new Re2JRegexp(DFA_STATES_LIMIT, DFA_MEMORY_BYTES, DFA_RETRIES, Slices.utf8Slice(pattern));
+                }
+            });
+
+    private static final LoadingCache<List<String>, PatternSet> PATTERN_SET_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(PATTERN_SET_MAXIMUM_SIZE)
+            .build(new CacheLoader<List<String>, PatternSet>() {
+                @Override
+                public PatternSet load(List<String> patterns) {
+                    return PatternSet.compile(patterns);
+                }
+            });
+
+    private Re2JRegexpCache() {
+    }
+
+    /**
+     * 获取正则对应的Re2JRegexp，不存在时编译并放入缓存
+     *
+     * @param pattern 正则文本
+     * @throws HiveException 正则语法错误
+     */
+    public static Re2JRegexp get(String pattern) throws HiveException {
+        try {
+            return REGEXP_CACHE.getUnchecked(pattern);
+        } catch (UncheckedExecutionException e) {
+            throw new HiveException("Invalid regular expression: " + pattern, e.getCause());
+        }
+    }
+
+    /**
+     * 正则参数为常量时在initialize阶段编译，每个task只编译一次，且语法错误可在编译SQL时暴露
+     *
+     * @param patternInspector 正则参数的ObjectInspector
+     * @return 常量正则对应的Re2JRegexp，非常量或常量为null时返回null
+     */
+    public static Re2JRegexp getConstant(ObjectInspector patternInspector) throws UDFArgumentException {
+        if (!(patternInspector instanceof ConstantObjectInspector)) {
+            return null;
+        }
+        Object pattern = ((ConstantObjectInspector) patternInspector).getWritableConstantValue();
+        if (pattern == null) {
+            return null;
+        }
+        try {
+            return get(pattern.toString());
+        } catch (HiveException e) {
+            throw new UDFArgumentException(e);
+        }
+    }
+
+    /**
+     * 获取一组正则对应的PatternSet，不存在时编译并放入缓存
+     *
+     * @param patterns 正则文本列表，下标即PatternSet中的正则下标
+     * @throws HiveException 任一正则语法错误
+     */
+    public static PatternSet getPatternSet(List<String> patterns) throws HiveException {
+        try {
+            return PATTERN_SET_CACHE.getUnchecked(ImmutableList.copyOf(patterns));
+        } catch (UncheckedExecutionException e) {
+            throw new HiveException("Invalid regular expression in: " + patterns, e.getCause());
+        }
+    }
+}
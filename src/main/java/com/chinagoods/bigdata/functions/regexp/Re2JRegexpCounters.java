@@ -0,0 +1,66 @@
+package com.chinagoods.bigdata.functions.regexp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * re2j DFA运行情况计数，由Re2JRegexp的EventsListener累加，JVM内全部正则共享
+ * 函数close时通过report输出到task日志，便于按查询观察DFA状态缓存是否频繁重建、回退NFA
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public final class Re2JRegexpCounters {
+    private static final Logger log = LoggerFactory.getLogger(Re2JRegexpCounters.class);
+
+    public enum Counter {
+        /**
+         * 新建的DFA状态数
+         */
+        DFA_STATES_CREATED,
+        /**
+         * 状态缓存超出上限后清空重建的次数
+         */
+        DFA_CACHE_RESETS,
+        /**
+         * 重建次数用尽后改用NFA的正则数
+         */
+        NFA_FALLBACKS
+    }
+
+    private static final AtomicLong[] COUNTERS = new AtomicLong[Counter.values().length];
+
+    static {
+        for (int i = 0; i < COUNTERS.length; i++) {
+            COUNTERS[i] = new AtomicLong();
+        }
+    }
+
+    private Re2JRegexpCounters() {
+    }
+
+    static void increment(Counter counter) {
+        COUNTERS[counter.ordinal()].incrementAndGet();
+    }
+
+    /**
+     * 自上次report以来的累计值
+     */
+    public static long get(Counter counter) {
+        return COUNTERS[counter.ordinal()].get();
+    }
+
+    /**
+     * 输出自上次report以来的增量并清零，同一task内多个函数实例先后调用不会重复输出
+     */
+    public static void report() {
+        for (Counter counter : Counter.values()) {
+            long delta = COUNTERS[counter.ordinal()].getAndSet(0);
+            if (delta != 0) {
+                log.info("re2j counter {}: {}", counter, delta);
+            }
+        }
+    }
+}
@@ -1,12 +1,20 @@
 package com.chinagoods.bigdata.functions.regexp;
 
-import io.airlift.slice.Slices;
+import com.chinagoods.bigdata.functions.utils.TextSliceUtils;
+import io.airlift.slice.Slice;
 import org.apache.hadoop.hive.ql.exec.Description;
-import org.apache.hadoop.hive.ql.exec.UDF;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 
+import java.io.IOException;
+
 /**
  * @author ruifeng.shan
  * date: 2018-07-27
@@ -15,28 +23,82 @@ import org.apache.hadoop.io.Text;
 @Description(name = "regexp_extract"
         , value = "_FUNC_(string, string) - returns substrings matching a regular expression."
         , extended = "Example:\n > select _FUNC_(string, pattern) from src;")
-public class UDFRe2JRegexpExtract extends UDF {
-    private static Re2JRegexp re2JRegexp;
-    private Text result = new Text();
+public class UDFRe2JRegexpExtract extends GenericUDF {
+    private transient ObjectInspectorConverters.Converter[] converters;
+    /**
+     * 正则为常量时在initialize中编译，否则为null，逐行从Re2JRegexpCache获取
+     */
+    private transient Re2JRegexp constantRegexp;
+    private transient Text result;
 
     public UDFRe2JRegexpExtract() {
 
     }
 
-    public Text evaluate(Text source, Text pattern) throws HiveException {
-        return evaluate(source, pattern, new LongWritable(0));
+    @Override
+    public ObjectInspector initialize(ObjectInspector[] arguments) throws UDFArgumentException {
+        if (arguments.length != 2 && arguments.length != 3) {
+            throw new UDFArgumentLengthException(
+                    "The function regexp_extract takes exactly 2 or 3 arguments.");
+        }
+        converters = new ObjectInspectorConverters.Converter[arguments.length];
+        for (int i = 0; i < 2; i++) {
+            converters[i] = ObjectInspectorConverters.getConverter(arguments[i],
+                    PrimitiveObjectInspectorFactory.writableStringObjectInspector);
+        }
+        if (arguments.length == 3) {
+            converters[2] = ObjectInspectorConverters.getConverter(arguments[2],
+                    PrimitiveObjectInspectorFactory.writableLongObjectInspector);
+        }
+        constantRegexp = Re2JRegexpCache.getConstant(arguments[1]);
+        result = new Text();
+
+        return PrimitiveObjectInspectorFactory.writableStringObjectInspector;
     }
 
-    public Text evaluate(Text source, Text pattern, LongWritable groupIndex) throws HiveException {
+    @Override
+    public Object evaluate(DeferredObject[] arguments) throws HiveException {
+        Text source = (Text) converters[0].convert(arguments[0].get());
         if (source == null) {
             return null;
         }
 
+        Re2JRegexp re2JRegexp = constantRegexp;
         if (re2JRegexp == null) {
-            re2JRegexp = new Re2JRegexp(Integer.MAX_VALUE, 5, Slices.utf8Slice(pattern.toString()));
+            Text pattern = (Text) converters[1].convert(arguments[1].get());
+            if (pattern == null) {
+                return null;
+            }
+            re2JRegexp = Re2JRegexpCache.get(pattern.toString());
+        }
+
+        long groupIndex = 0L;
+        if (arguments.length == 3) {
+            LongWritable groupIndexWritable = (LongWritable) converters[2].convert(arguments[2].get());
+            if (groupIndexWritable == null) {
+                return null;
+            }
+            groupIndex = groupIndexWritable.get();
         }
 
-        result.set(re2JRegexp.extract(Slices.utf8Slice(source.toString()), groupIndex.get()).toStringUtf8());
-        return result;
+        Slice extracted = re2JRegexp.extract(TextSliceUtils.wrap(source), groupIndex);
+        if (extracted == null) {
+            return null;
+        }
+        return TextSliceUtils.set(result, extracted);
+    }
+
+    @Override
+    public void close() throws IOException {
+        Re2JRegexpCounters.report();
+    }
+
+    @Override
+    public String getDisplayString(String[] strings) {
+        assert (strings.length == 2 || strings.length == 3);
+        if (strings.length == 2) {
+            return "regexp_extract(" + strings[0] + ", " + strings[1] + ")";
+        }
+        return "regexp_extract(" + strings[0] + ", " + strings[1] + ", " + strings[2] + ")";
     }
 }
@@ -1,6 +1,7 @@
 package com.chinagoods.bigdata.functions.regexp;
 
-import io.airlift.slice.Slices;
+import com.chinagoods.bigdata.functions.utils.TextSliceUtils;
+import java.io.IOException;
 import java.util.ArrayList;
 import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
@@ -13,6 +14,7 @@ import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.Text;
 
 /**
  * @author ruifeng.shan
@@ -25,7 +27,10 @@ import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectIn
         , extended = "Example:\n > select _FUNC_(string, pattern) from src;")
 public class UDFRe2JRegexpExtractAll extends GenericUDF {
     private transient ArrayList<Object> result = new ArrayList<Object>();
-    private transient Re2JRegexp re2JRegexp;
+    /**
+     * 正则为常量时在initialize中编译，否则为null，逐行从Re2JRegexpCache获取
+     */
+    private transient Re2JRegexp constantRegexp;
     private ObjectInspectorConverters.Converter[] converters;
 
     public UDFRe2JRegexpExtractAll() {
@@ -40,8 +45,12 @@ public class UDFRe2JRegexpExtractAll extends GenericUDF {
                     "The function regexp_extract_all takes exactly 2 or 3 arguments.");
         }
         converters = new ObjectInspectorConverters.Converter[arguments.length];
-        for (int i = 0; i < arguments.length; i++) {
+        for (int i = 0; i < 2; i++) {
             converters[i] = ObjectInspectorConverters.getConverter(arguments[i],
+                    PrimitiveObjectInspectorFactory.writableStringObjectInspector);
+        }
+        if (arguments.length == 3) {
+            converters[2] = ObjectInspectorConverters.getConverter(arguments[2],
                     PrimitiveObjectInspectorFactory.javaStringObjectInspector);
         }
         for (int i = 0; i < 2; i++) {
@@ -64,6 +73,8 @@ public class UDFRe2JRegexpExtractAll extends GenericUDF {
             }
         }
 
+        constantRegexp = Re2JRegexpCache.getConstant(arguments[1]);
+
         ObjectInspector expectOI = PrimitiveObjectInspectorFactory.javaStringObjectInspector;
 
         return ObjectInspectorFactory.getStandardListObjectInspector(expectOI);
@@ -71,27 +82,36 @@ public class UDFRe2JRegexpExtractAll extends GenericUDF {
 
     @Override
     public Object evaluate(DeferredObject[] arguments) throws HiveException {
-        String source = converters[0].convert(arguments[0].get()).toString();;
-        String pattern = converters[1].convert(arguments[1].get()).toString();
-        Long groupIndex = 0L;
-        if (arguments.length == 3) {
-            groupIndex = Long.parseLong(converters[2].convert(arguments[2].get()).toString());
-        }
-
+        Text source = (Text) converters[0].convert(arguments[0].get());
         if (source == null) {
             return null;
         }
 
+        Re2JRegexp re2JRegexp = constantRegexp;
         if (re2JRegexp == null) {
-            re2JRegexp = new Re2JRegexp(Integer.MAX_VALUE, 5, Slices.utf8Slice(pattern));
+            Text pattern = (Text) converters[1].convert(arguments[1].get());
+            if (pattern == null) {
+                return null;
+            }
+            re2JRegexp = Re2JRegexpCache.get(pattern.toString());
+        }
+
+        Long groupIndex = 0L;
+        if (arguments.length == 3) {
+            groupIndex = Long.parseLong(converters[2].convert(arguments[2].get()).toString());
         }
 
         result.clear();
-        result.addAll(re2JRegexp.extractAll(Slices.utf8Slice(source), groupIndex));
+        result.addAll(re2JRegexp.extractAll(TextSliceUtils.wrap(source), groupIndex));
 
         return result;
     }
 
+    @Override
+    public void close() throws IOException {
+        Re2JRegexpCounters.report();
+    }
+
     @Override
     public String getDisplayString(String[] strings) {
         assert (strings.length == 2 || strings.length == 3);
@@ -1,10 +1,18 @@
 package com.chinagoods.bigdata.functions.regexp;
 
-import io.airlift.slice.Slices;
+import com.chinagoods.bigdata.functions.utils.TextSliceUtils;
 import org.apache.hadoop.hive.ql.exec.Description;
-import org.apache.hadoop.hive.ql.exec.UDF;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.io.Text;
 
+import java.io.IOException;
+
 /**
  * @author ruifeng.shan
  * date: 2018-07-27
@@ -13,23 +21,61 @@ import org.apache.hadoop.io.Text;
 @Description(name = "regexp_like"
         , value = "_FUNC_(string, string) - returns substrings matching a regular expression."
         , extended = "Example:\n > select _FUNC_(string, pattern) from src;")
-public class UDFRe2JRegexpLike extends UDF {
-    private static Re2JRegexp re2JRegexp;
+public class UDFRe2JRegexpLike extends GenericUDF {
+    private static final int ARG_COUNT = 2;
+    private transient ObjectInspectorConverters.Converter[] converters;
+    /**
+     * 正则为常量时在initialize中编译，否则为null，逐行从Re2JRegexpCache获取
+     */
+    private transient Re2JRegexp constantRegexp;
 
     public UDFRe2JRegexpLike() {
 
     }
 
-    public boolean evaluate(Text text, Text pattern) {
+    @Override
+    public ObjectInspector initialize(ObjectInspector[] arguments) throws UDFArgumentException {
+        if (arguments.length != ARG_COUNT) {
+            throw new UDFArgumentLengthException(
+                    "The function regexp_like(string, pattern) takes exactly " + ARG_COUNT + " arguments.");
+        }
+        converters = new ObjectInspectorConverters.Converter[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            converters[i] = ObjectInspectorConverters.getConverter(arguments[i],
+                    PrimitiveObjectInspectorFactory.writableStringObjectInspector);
+        }
+        constantRegexp = Re2JRegexpCache.getConstant(arguments[1]);
+
+        return PrimitiveObjectInspectorFactory.javaBooleanObjectInspector;
+    }
+
+    @Override
+    public Object evaluate(DeferredObject[] arguments) throws HiveException {
+        Text text = (Text) converters[0].convert(arguments[0].get());
         if (text == null) {
             return false;
         }
 
+        Re2JRegexp re2JRegexp = constantRegexp;
         if (re2JRegexp == null) {
-            re2JRegexp = new Re2JRegexp(Integer.MAX_VALUE, 5, Slices.utf8Slice(pattern.toString()));
+            Text pattern = (Text) converters[1].convert(arguments[1].get());
+            if (pattern == null) {
+                return false;
+            }
+            re2JRegexp = Re2JRegexpCache.get(pattern.toString());
         }
 
-        return re2JRegexp.matches(Slices.utf8Slice(text.toString()));
+        return re2JRegexp.matches(TextSliceUtils.wrap(text));
+    }
+
+    @Override
+    public void close() throws IOException {
+        Re2JRegexpCounters.report();
     }
 
+    @Override
+    public String getDisplayString(String[] strings) {
+        assert (strings.length == ARG_COUNT);
+        return "regexp_like(" + strings[0] + ", " + strings[1] + ")";
+    }
 }
@@ -0,0 +1,127 @@
+package com.chinagoods.bigdata.functions.regexp;
+
+import com.chinagoods.bigdata.functions.regexp.re2j.PatternSet;
+import com.chinagoods.bigdata.functions.utils.TextSliceUtils;
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ConstantObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.Text;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 多正则一次匹配，将一组正则编译为一个程序，单次扫描字符串即可得到全部命中的正则下标
+ * 适用于每行需要逐个尝试几十个正则的场景，如按规则列表判断物流单号、页面地址类型
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+@Description(name = "regexp_match_set"
+        , value = "_FUNC_(string, array<string>) - returns the 0-based indexes of all patterns in the array that match the string."
+        , extended = "Example:\n > select _FUNC_('/goods/123?utm_source=wx', array('^/goods/\\\\d+', '^/shop/', 'utm_source=')) from src;\n"
+        + " [0,2]")
+public class UDFRe2JRegexpMatchSet extends GenericUDF {
+    private static final int ARG_COUNT = 2;
+    private transient ObjectInspectorConverters.Converter sourceConverter;
+    private transient ListObjectInspector patternsInspector;
+    private transient ObjectInspectorConverters.Converter patternConverter;
+    /**
+     * 正则数组为常量时在initialize中编译，否则为null，逐行从Re2JRegexpCache获取
+     */
+    private transient PatternSet constantPatternSet;
+    private transient List<String> patterns;
+    private transient BitSet matched;
+    private transient ArrayList<Object> result;
+
+    public UDFRe2JRegexpMatchSet() {
+
+    }
+
+    @Override
+    public ObjectInspector initialize(ObjectInspector[] arguments) throws UDFArgumentException {
+        if (arguments.length != ARG_COUNT) {
+            throw new UDFArgumentLengthException(
+                    "The function regexp_match_set(string, array<string>) takes exactly " + ARG_COUNT + " arguments.");
+        }
+        if (arguments[1].getCategory() != ObjectInspector.Category.LIST) {
+            throw new UDFArgumentTypeException(1,
+                    "\"array<string>\" expected at function regexp_match_set, but \"" + arguments[1].getTypeName() + "\" is found");
+        }
+        sourceConverter = ObjectInspectorConverters.getConverter(arguments[0],
+                PrimitiveObjectInspectorFactory.writableStringObjectInspector);
+        patternsInspector = (ListObjectInspector) arguments[1];
+        patternConverter = ObjectInspectorConverters.getConverter(patternsInspector.getListElementObjectInspector(),
+                PrimitiveObjectInspectorFactory.javaStringObjectInspector);
+        patterns = new ArrayList<>();
+        matched = new BitSet();
+        result = new ArrayList<>();
+
+        if (arguments[1] instanceof ConstantObjectInspector) {
+            Object constantPatterns = ((ConstantObjectInspector) arguments[1]).getWritableConstantValue();
+            if (constantPatterns != null) {
+                try {
+                    constantPatternSet = Re2JRegexpCache.getPatternSet(readPatterns(constantPatterns));
+                } catch (HiveException e) {
+                    throw new UDFArgumentException(e);
+                }
+            }
+        }
+
+        return ObjectInspectorFactory.getStandardListObjectInspector(PrimitiveObjectInspectorFactory.javaIntObjectInspector);
+    }
+
+    @Override
+    public Object evaluate(DeferredObject[] arguments) throws HiveException {
+        Text source = (Text) sourceConverter.convert(arguments[0].get());
+        if (source == null) {
+            return null;
+        }
+
+        PatternSet patternSet = constantPatternSet;
+        if (patternSet == null) {
+            Object patternsObject = arguments[1].get();
+            if (patternsObject == null) {
+                return null;
+            }
+            patternSet = Re2JRegexpCache.getPatternSet(readPatterns(patternsObject));
+        }
+
+        matched.clear();
+        result.clear();
+        patternSet.match(TextSliceUtils.wrap(source), matched);
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            result.add(i);
+        }
+        return result;
+    }
+
+    private List<String> readPatterns(Object patternsObject) throws UDFArgumentException {
+        patterns.clear();
+        int length = patternsInspector.getListLength(patternsObject);
+        for (int i = 0; i < length; i++) {
+            Object pattern = patternConverter.convert(patternsInspector.getListElement(patternsObject, i));
+            if (pattern == null) {
+                throw new UDFArgumentException("regexp_match_set pattern at index " + i + " is null");
+            }
+            patterns.add(pattern.toString());
+        }
+        return patterns;
+    }
+
+    @Override
+    public String getDisplayString(String[] strings) {
+        assert (strings.length == ARG_COUNT);
+        return "regexp_match_set(" + strings[0] + ", " + strings[1] + ")";
+    }
+}
@@ -1,11 +1,20 @@
 package com.chinagoods.bigdata.functions.regexp;
 
+import com.chinagoods.bigdata.functions.utils.TextSliceUtils;
+import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
 import org.apache.hadoop.hive.ql.exec.Description;
-import org.apache.hadoop.hive.ql.exec.UDF;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.io.Text;
 
+import java.io.IOException;
+
 /**
  * @author ruifeng.shan
  * date: 2018-07-27
@@ -16,29 +25,74 @@ import org.apache.hadoop.io.Text;
         "_FUNC_(string, string, string) - replaces substrings matching a regular expression by given string."
         , extended = "Example:\n > select _FUNC_(string, pattern) from src;\n" +
         "select _FUNC_(string, pattern, replacement) from src;")
-public class UDFRe2JRegexpReplace extends UDF {
-    private static Re2JRegexp re2JRegexp;
-    private Text result = new Text();
+public class UDFRe2JRegexpReplace extends GenericUDF {
+    private transient ObjectInspectorConverters.Converter[] converters;
+    /**
+     * 正则为常量时在initialize中编译，否则为null，逐行从Re2JRegexpCache获取
+     */
+    private transient Re2JRegexp constantRegexp;
+    private transient Text result;
 
     public UDFRe2JRegexpReplace() {
 
     }
 
-    public Text evaluate(Text source, Text pattern) throws HiveException {
-        return evaluate(source, pattern, new Text(Slices.EMPTY_SLICE.toStringUtf8()));
+    @Override
+    public ObjectInspector initialize(ObjectInspector[] arguments) throws UDFArgumentException {
+        if (arguments.length != 2 && arguments.length != 3) {
+            throw new UDFArgumentLengthException(
+                    "The function regexp_replace takes exactly 2 or 3 arguments.");
+        }
+        converters = new ObjectInspectorConverters.Converter[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            converters[i] = ObjectInspectorConverters.getConverter(arguments[i],
+                    PrimitiveObjectInspectorFactory.writableStringObjectInspector);
+        }
+        constantRegexp = Re2JRegexpCache.getConstant(arguments[1]);
+        result = new Text();
+
+        return PrimitiveObjectInspectorFactory.writableStringObjectInspector;
     }
 
-    public Text evaluate(Text source, Text pattern, Text replacement) throws HiveException {
+    @Override
+    public Object evaluate(DeferredObject[] arguments) throws HiveException {
+        Text source = (Text) converters[0].convert(arguments[0].get());
         if (source == null) {
             return null;
         }
 
+        Re2JRegexp re2JRegexp = constantRegexp;
         if (re2JRegexp == null) {
-            re2JRegexp = new Re2JRegexp(Integer.MAX_VALUE, 5, Slices.utf8Slice(pattern.toString()));
+            Text pattern = (Text) converters[1].convert(arguments[1].get());
+            if (pattern == null) {
+                return null;
+            }
+            re2JRegexp = Re2JRegexpCache.get(pattern.toString());
+        }
+
+        Slice replacement = Slices.EMPTY_SLICE;
+        if (arguments.length == 3) {
+            Text replacementText = (Text) converters[2].convert(arguments[2].get());
+            if (replacementText == null) {
+                return null;
+            }
+            replacement = TextSliceUtils.wrap(replacementText);
         }
 
-        result.set(re2JRegexp.replace(Slices.utf8Slice(source.toString()), Slices.utf8Slice(replacement.toString())).toStringUtf8());
-        return result;
+        return TextSliceUtils.set(result, re2JRegexp.replace(TextSliceUtils.wrap(source), replacement));
+    }
+
+    @Override
+    public void close() throws IOException {
+        Re2JRegexpCounters.report();
     }
 
+    @Override
+    public String getDisplayString(String[] strings) {
+        assert (strings.length == 2 || strings.length == 3);
+        if (strings.length == 2) {
+            return "regexp_replace(" + strings[0] + ", " + strings[1] + ")";
+        }
+        return "regexp_replace(" + strings[0] + ", " + strings[1] + ", " + strings[2] + ")";
+    }
 }
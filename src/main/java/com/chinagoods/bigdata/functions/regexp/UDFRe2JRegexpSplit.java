@@ -1,6 +1,7 @@
 package com.chinagoods.bigdata.functions.regexp;
 
-import io.airlift.slice.Slices;
+import com.chinagoods.bigdata.functions.utils.TextSliceUtils;
+import java.io.IOException;
 import java.util.ArrayList;
 import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
@@ -9,9 +10,11 @@ import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.Text;
 
 /**
  * @author ruifeng.shan
@@ -24,7 +27,11 @@ import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectIn
 public class UDFRe2JRegexpSplit extends GenericUDF {
     private static final int ARG_COUNT = 2;
     private transient ArrayList<Object> result = new ArrayList<Object>();
-    private transient Re2JRegexp re2JRegexp;
+    private transient ObjectInspectorConverters.Converter[] converters;
+    /**
+     * 正则为常量时在initialize中编译，否则为null，逐行从Re2JRegexpCache获取
+     */
+    private transient Re2JRegexp constantRegexp;
 
     public UDFRe2JRegexpSplit() {
 
@@ -48,6 +55,13 @@ public class UDFRe2JRegexpSplit extends GenericUDF {
             }
         }
 
+        converters = new ObjectInspectorConverters.Converter[ARG_COUNT];
+        for (int i = 0; i < ARG_COUNT; i++) {
+            converters[i] = ObjectInspectorConverters.getConverter(arguments[i],
+                    PrimitiveObjectInspectorFactory.writableStringObjectInspector);
+        }
+        constantRegexp = Re2JRegexpCache.getConstant(arguments[1]);
+
         ObjectInspector expectOI = PrimitiveObjectInspectorFactory.javaStringObjectInspector;
 
         return ObjectInspectorFactory.getStandardListObjectInspector(expectOI);
@@ -55,23 +69,31 @@ public class UDFRe2JRegexpSplit extends GenericUDF {
 
     @Override
     public Object evaluate(DeferredObject[] arguments) throws HiveException {
-        String source = (String) arguments[0].get();
-        String pattern = (String) arguments[1].get();
-
+        Text source = (Text) converters[0].convert(arguments[0].get());
         if (source == null) {
             return null;
         }
 
+        Re2JRegexp re2JRegexp = constantRegexp;
         if (re2JRegexp == null) {
-            re2JRegexp = new Re2JRegexp(Integer.MAX_VALUE, 5, Slices.utf8Slice(pattern));
+            Text pattern = (Text) converters[1].convert(arguments[1].get());
+            if (pattern == null) {
+                return null;
+            }
+            re2JRegexp = Re2JRegexpCache.get(pattern.toString());
         }
 
         result.clear();
-        result.addAll(re2JRegexp.split(Slices.utf8Slice(source)));
+        result.addAll(re2JRegexp.split(TextSliceUtils.wrap(source)));
 
         return result;
     }
 
+    @Override
+    public void close() throws IOException {
+        Re2JRegexpCounters.report();
+    }
+
     @Override
     public String getDisplayString(String[] strings) {
         assert (strings.length == ARG_COUNT);
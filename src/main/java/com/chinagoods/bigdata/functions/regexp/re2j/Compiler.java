@@ -34,6 +34,27 @@ class Compiler {
         return c.compileToProgram(re, reversed);
     }
 
+    /**
+     * Compiles several regexps into a single unanchored program for {@link PatternSet}.
+     * The i-th regexp ends with its own MATCH instruction whose {@code arg} is i, so a
+     * single simulation of the program can report every regexp that matches.
+     */
+    static Prog compileSet(Regexp[] res) {
+        Compiler c = new Compiler();
+        Frag all = c.fail();
+        for (int i = 0; i < res.length; i++) {
+            Frag match = c.match();
+            c.prog.getInst(match.i).arg = i;
+            all = c.alt(all, c.cat(c.compile(res[i]), match));
+        }
+        c.prog.start = all.i;
+        // Leading .*? loop; patterns anchored with ^ only pass their
+        // EMPTY_BEGIN_TEXT check at the first position.
+        Frag unanchored = c.cat(c.star(c.byteRange(ANY_BYTE, 0), true), all);
+        c.prog.startUnanchored = unanchored.i;
+        return c.prog;
+    }
+
     private Frag newInst(Inst.Op op) {
         // TODO(rsc): impose length limit.
         prog.addInst(op);
@@ -11,6 +11,7 @@ import com.chinagoods.bigdata.functions.regexp.re2j.RE2.MatchKind;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.chinagoods.bigdata.functions.regexp.re2j.DFAState.DEAD_STATE;
 import static com.chinagoods.bigdata.functions.regexp.re2j.Inst.Op.EMPTY_WIDTH;
@@ -44,17 +45,22 @@ class DFA {
     private final StartParams[] startParamsCache = new StartParams[START_PARAMS_CACHE_SIZE];
     private final ConcurrentHashMap<DFAStateKey, DFAState> statesCache;
     private final AtomicInteger availableStates;
+    private final AtomicLong availableMemoryBytes;
+    private final Options.EventsListener eventsListener;
     // some preallocated workspace.
     private WorkQueue currentWorkQ;
     private WorkQueue nextWorkQ;
     public DFA(Prog prog, MatchKind matchKind, boolean reversed,
-               ConcurrentHashMap<DFAStateKey, DFAState> statesCache, AtomicInteger availableStates) {
+               ConcurrentHashMap<DFAStateKey, DFAState> statesCache, AtomicInteger availableStates,
+               AtomicLong availableMemoryBytes, Options.EventsListener eventsListener) {
         this.prog = prog;
         this.instructions = prog.getInst();
         this.matchKind = matchKind;
         this.runForward = !reversed;
         this.statesCache = statesCache;
         this.availableStates = availableStates;
+        this.availableMemoryBytes = availableMemoryBytes;
+        this.eventsListener = eventsListener;
 
         int progSize = prog.numInst();
         int nMarks = 0;
@@ -167,7 +173,13 @@ class DFA {
                 return previousState;
             }
 
-            if (availableStates.decrementAndGet() < 0) {
+            if (eventsListener != null) {
+                eventsListener.dfaStateCreated();
+            }
+            // account for both limits before checking, the machine is discarded once either is exceeded
+            boolean tooManyStates = availableStates.decrementAndGet() < 0;
+            boolean outOfMemory = availableMemoryBytes.addAndGet(-state.estimatedSizeInBytes()) < 0;
+            if (tooManyStates || outOfMemory) {
                 throw new DFATooManyStatesException();
             }
         }
@@ -12,6 +12,7 @@ import com.chinagoods.bigdata.functions.regexp.re2j.RE2.MatchKind;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.chinagoods.bigdata.functions.regexp.re2j.RE2.Anchor.ANCHOR_START;
 import static com.chinagoods.bigdata.functions.regexp.re2j.RE2.MatchKind.FIRST_MATCH;
@@ -27,13 +28,16 @@ class DFAMachine implements Machine {
     @SuppressWarnings("unchecked")
     private final ConcurrentHashMap<DFAStateKey, DFAState>[] stateCache = new ConcurrentHashMap[MAX_DFA_KEY];
     private final AtomicInteger availableStates;
+    // states of the four DFAs share one budget, like the number of states
+    private final AtomicLong availableMemoryBytes;
     @SuppressWarnings("unchecked")
     private final ThreadLocal<DFA>[] dfaCache = new ThreadLocal[MAX_DFA_KEY];
     private final RE2 re2;
 
-    DFAMachine(RE2 re2, int maximumNumberOfDFAStates) {
+    DFAMachine(RE2 re2, int maximumNumberOfDFAStates, long maximumDFAMemoryBytes) {
         this.re2 = re2;
         this.availableStates = new AtomicInteger(maximumNumberOfDFAStates);
+        this.availableMemoryBytes = new AtomicLong(maximumDFAMemoryBytes);
 
         for (int i = 0; i < MAX_DFA_KEY; ++i) {
             stateCache[i] = new ConcurrentHashMap<DFAStateKey, DFAState>();
@@ -155,7 +159,8 @@ class DFAMachine implements Machine {
         dfaCache[dfaKey] = new ThreadLocal<DFA>() {
             @Override
             public DFA initialValue() {
-                return new DFA(prog, matchKind, reversed, stateCache[dfaKey], availableStates);
+                return new DFA(prog, matchKind, reversed, stateCache[dfaKey], availableStates,
+                        availableMemoryBytes, re2.options.getEventsListener());
             }
         };
     }
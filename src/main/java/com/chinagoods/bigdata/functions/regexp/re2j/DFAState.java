@@ -11,6 +11,10 @@ import static java.lang.System.arraycopy;
 
 final class DFAState {
     public static final DFAState DEAD_STATE = new DFAState(StateType.DEAD);
+    // Estimated fixed cost of a cached state, assuming 8 byte references:
+    // the state object, its next array, its instIndexes array header, the DFAStateKey
+    // and the ConcurrentHashMap node that holds it.
+    static final long STATE_OVERHEAD_BYTES = 32 + (16 + 256 * 8) + 16 + 24 + 32;
     private final StateType type;                       // the state type.  Lets us create DEAD_STATE and FULL_MATCH_STATE
     private final int[] instIndexes;                    // indexes into prog instructions for this state
     private final int flag;                             // empty width flags
@@ -48,6 +52,10 @@ final class DFAState {
         return type == StateType.DEAD;
     }
 
+    public long estimatedSizeInBytes() {
+        return STATE_OVERHEAD_BYTES + 4L * instIndexes.length;
+    }
+
     public DFAState getNextState(byte b) {
         return next[b & 0xff];
     }
@@ -17,11 +17,14 @@ public final class Options implements Serializable {
     // Start state + end state
     private static final int MINIMUM_NUMBER_OF_DFA_STATES = 2;
     private static final int DEFAULT_NUMBER_OF_DFA_RETRIES = 5;
+    // Start state + end state
+    private static final long MINIMUM_DFA_MEMORY_BYTES = 2 * DFAState.STATE_OVERHEAD_BYTES;
 
     private Algorithm algorithm = DFA;
     private EventsListener eventsListener = null;
     private int maximumNumberOfDFAStates = Integer.MAX_VALUE;
     private int numberOfDFARetries = DEFAULT_NUMBER_OF_DFA_RETRIES;
+    private long maximumDFAMemoryBytes = Long.MAX_VALUE;
 
     public static OptionsBuilder builder() {
         return new OptionsBuilder();
@@ -43,6 +46,10 @@ public final class Options implements Serializable {
         return numberOfDFARetries;
     }
 
+    public long getMaximumDFAMemoryBytes() {
+        return maximumDFAMemoryBytes;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -52,6 +59,7 @@ public final class Options implements Serializable {
 
         return maximumNumberOfDFAStates == options.maximumNumberOfDFAStates
                 && numberOfDFARetries == options.numberOfDFARetries
+                && maximumDFAMemoryBytes == options.maximumDFAMemoryBytes
                 && algorithm == options.algorithm
                 && !(eventsListener != null ? !eventsListener.equals(options.eventsListener) : options.eventsListener != null);
 
@@ -63,6 +71,7 @@ public final class Options implements Serializable {
         result = 31 * result + (eventsListener != null ? eventsListener.hashCode() : 0);
         result = 31 * result + maximumNumberOfDFAStates;
         result = 31 * result + numberOfDFARetries;
+        result = 31 * result + (int) (maximumDFAMemoryBytes ^ (maximumDFAMemoryBytes >>> 32));
         return result;
     }
 
@@ -73,15 +82,16 @@ public final class Options implements Serializable {
                 ", eventsListener=" + eventsListener +
                 ", maximumNumberOfDFAStates=" + maximumNumberOfDFAStates +
                 ", numberOfDFARetries=" + numberOfDFARetries +
+                ", maximumDFAMemoryBytes=" + maximumDFAMemoryBytes +
                 '}';
     }
 
     public enum Algorithm {
-        // Use DFA exclusively, throw an exception when maximum number of DFA states is reached n times.
-        // DFA machine is reset each time states cache is full.
+        // Use DFA exclusively, throw an exception when maximum number of DFA states (or DFA memory)
+        // is reached n times. DFA machine is reset each time states cache is full.
         DFA,
-        // Use DFA, fallback to NFA when maximum number of DFA states is reached n times. DFA machine
-        // is reset each time states cache is full.
+        // Use DFA, fallback to NFA when maximum number of DFA states (or DFA memory) is reached n times.
+        // DFA machine is reset each time states cache is full.
         DFA_FALLBACK_TO_NFA,
         // use NFA exclusively
         NFA
@@ -97,6 +107,18 @@ public final class Options implements Serializable {
          * created.
          */
         void fallbackToNFA();
+
+        /**
+         * Called each time a new {@link DFAState} is added to the states cache.
+         */
+        default void dfaStateCreated() {
+        }
+
+        /**
+         * Called when the states cache is full and the DFA is rebuilt from an empty cache.
+         */
+        default void dfaCacheReset() {
+        }
     }
 
     public static final class OptionsBuilder {
@@ -123,6 +145,18 @@ public final class Options implements Serializable {
             return this;
         }
 
+        /**
+         * Bounds the estimated memory of the DFA states cache, see {@link DFAState#estimatedSizeInBytes()}.
+         * Unlike the number of states this also accounts for large states of big programs.
+         */
+        public OptionsBuilder setMaximumDFAMemoryBytes(long maximumDFAMemoryBytes) {
+            if (maximumDFAMemoryBytes < MINIMUM_DFA_MEMORY_BYTES) {
+                throw new IllegalArgumentException("maximum DFA memory must be larger or equal to " + MINIMUM_DFA_MEMORY_BYTES + " bytes");
+            }
+            options.maximumDFAMemoryBytes = maximumDFAMemoryBytes;
+            return this;
+        }
+
         public OptionsBuilder setEventsListener(EventsListener eventsListener) {
             options.eventsListener = Preconditions.checkNotNull(eventsListener);
             return this;
@@ -0,0 +1,302 @@
+package com.chinagoods.bigdata.functions.regexp.re2j;
+
+import io.airlift.slice.Slice;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of regular expressions compiled into a single program, the equivalent of
+ * RE2::Set. {@link #match} scans the input once and reports the indexes of all
+ * patterns that match anywhere in it (unanchored, like {@link Pattern#find}).
+ * <p>
+ * The program is simulated as a lazily built DFA whose states are cached per thread,
+ * so a PatternSet is thread-safe and may be shared between UDF instances.
+ * Only match/no-match is reported, there are no submatch positions.
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public final class PatternSet {
+    static final int DEFAULT_MAXIMUM_NUMBER_OF_STATES = 1024;
+
+    private final String[] patterns;
+    private final Prog prog;
+    private final int maximumNumberOfStates;
+    private final ThreadLocal<SetDFA> dfa = new ThreadLocal<SetDFA>() {
+        @Override
+        protected SetDFA initialValue() {
+            return new SetDFA(prog, patterns.length, maximumNumberOfStates);
+        }
+    };
+
+    private PatternSet(String[] patterns, Prog prog, int maximumNumberOfStates) {
+        this.patterns = patterns;
+        this.prog = prog;
+        this.maximumNumberOfStates = maximumNumberOfStates;
+    }
+
+    /**
+     * Compiles the patterns with Perl syntax, the same as {@link Pattern#compile(String)}.
+     *
+     * @throws PatternSyntaxException if any pattern is malformed
+     */
+    public static PatternSet compile(Collection<String> patterns) {
+        return compile(patterns, DEFAULT_MAXIMUM_NUMBER_OF_STATES);
+    }
+
+    static PatternSet compile(Collection<String> patterns, int maximumNumberOfStates) {
+        String[] expressions = patterns.toArray(new String[0]);
+        Regexp[] res = new Regexp[expressions.length];
+        for (int i = 0; i < expressions.length; i++) {
+            res[i] = Simplify.simplify(Parser.parse(expressions[i], RE2.PERL));
+        }
+        return new PatternSet(expressions, Compiler.compileSet(res), maximumNumberOfStates);
+    }
+
+    public int size() {
+        return patterns.length;
+    }
+
+    public String pattern(int index) {
+        return patterns[index];
+    }
+
+    /**
+     * Sets the bit of every pattern that matches {@code input} in {@code matched}.
+     * Bits already set in {@code matched} are left untouched.
+     *
+     * @return true if at least one pattern matches
+     */
+    public boolean match(Slice input, BitSet matched) {
+        return dfa.get().match(input, matched);
+    }
+
+    /**
+     * @return indexes of the matching patterns in ascending order
+     */
+    public int[] match(Slice input) {
+        BitSet matched = new BitSet(patterns.length);
+        match(input, matched);
+        return matched.stream().toArray();
+    }
+
+    /**
+     * Per-thread lazily built DFA over the combined program.
+     * <p>
+     * A state is the set of instructions reached after consuming a byte together with
+     * the class of that byte, which is all that is needed to evaluate the empty-width
+     * assertions before the next byte. The transition on input byte b (or end of text)
+     * takes the closure of the state under the assertions that hold between the two
+     * bytes, records the MATCH instructions found in it and steps the byte
+     * instructions over b. Transitions are cached in flat arrays; when the number of
+     * states exceeds the limit the cache is cleared and rebuilt from the current state.
+     */
+    private static final class SetDFA {
+        private static final int END_OF_TEXT = 256;
+        private static final int NUMBER_OF_INPUTS = 257;
+        private static final int UNKNOWN = -1;
+
+        // Classes of the previous byte, see Utils.emptyOpContext().
+        private static final int BEGIN_OF_TEXT = 0;
+        private static final int NEWLINE = 1;
+        private static final int WORD = 2;
+        private static final int OTHER = 3;
+        private static final byte[] CLASS_REPRESENTATIVE = {MachineInput.EOF, '\n', 'a', ' '};
+        private static final int[] NO_MATCHES = {};
+        private static final int NO_MATCHES_ID = 0;
+        // the start state is always the first state interned after a reset
+        private static final int START_STATE = 0;
+
+        private final Inst[] inst;
+        private final int start;
+        private final int numberOfPatterns;
+        private final int maximumNumberOfStates;
+
+        private final Map<DFAStateKey, Integer> stateIds = new HashMap<>();
+        private final List<int[]> stateInstructions = new ArrayList<>();
+        private int[] stateClasses;
+        // transitions[state * NUMBER_OF_INPUTS + input]: next state, or UNKNOWN
+        private int[] transitions;
+        // transitionMatches[state * NUMBER_OF_INPUTS + input]: index into matchSets
+        private int[] transitionMatches;
+        private final List<int[]> matchSets = new ArrayList<>();
+        private final Map<DFAStateKey, Integer> matchSetIds = new HashMap<>();
+
+        // Scratch space for computing a transition.
+        private final SparseSet visited;
+        private final SparseSet nextInstructions;
+        private final int[] stack;
+        private final BitSet matchScratch;
+
+        SetDFA(Prog prog, int numberOfPatterns, int maximumNumberOfStates) {
+            this.inst = prog.getInst();
+            this.start = prog.startUnanchored;
+            this.numberOfPatterns = numberOfPatterns;
+            this.maximumNumberOfStates = maximumNumberOfStates;
+            this.visited = new SparseSet(inst.length);
+            this.nextInstructions = new SparseSet(inst.length);
+            this.stack = new int[inst.length];
+            this.matchScratch = new BitSet(numberOfPatterns);
+            reset();
+        }
+
+        boolean match(Slice input, BitSet matched) {
+            if (numberOfPatterns == 0) {
+                return false;
+            }
+            int found = 0;
+            int state = START_STATE;
+            for (int position = 0, length = input.length(); position <= length; position++) {
+                int in = position == length ? END_OF_TEXT : input.getByte(position) & 0xff;
+                int index = state * NUMBER_OF_INPUTS + in;
+                int next = transitions[index];
+                if (next == UNKNOWN) {
+                    // computing the transition may reset the cache and renumber the states
+                    index = computeTransition(state, in);
+                    next = transitions[index];
+                }
+                if (transitionMatches[index] != NO_MATCHES_ID) {
+                    for (int pattern : matchSets.get(transitionMatches[index])) {
+                        if (!matched.get(pattern)) {
+                            matched.set(pattern);
+                            found++;
+                        }
+                    }
+                    if (found == numberOfPatterns) {
+                        break;
+                    }
+                }
+                state = next;
+            }
+            return !matched.isEmpty();
+        }
+
+        private void reset() {
+            stateIds.clear();
+            stateInstructions.clear();
+            stateClasses = new int[16];
+            transitions = new int[16 * NUMBER_OF_INPUTS];
+            transitionMatches = new int[16 * NUMBER_OF_INPUTS];
+            matchSets.clear();
+            matchSetIds.clear();
+            matchSetId(NO_MATCHES);
+            stateId(new int[]{start}, BEGIN_OF_TEXT);
+        }
+
+        /**
+         * @return index of the computed transition in the transition arrays
+         */
+        private int computeTransition(int state, int in) {
+            int[] instructions = stateInstructions.get(state);
+            int byteClass = stateClasses[state];
+            if (stateInstructions.size() >= maximumNumberOfStates) {
+                reset();
+                state = stateId(instructions, byteClass);
+            }
+            int flag = Utils.emptyOpContext(CLASS_REPRESENTATIVE[byteClass], in == END_OF_TEXT ? MachineInput.EOF : (byte) in);
+
+            // closure of the state under the empty-width assertions in effect
+            visited.clear();
+            nextInstructions.clear();
+            matchScratch.clear();
+            int top = 0;
+            for (int i = instructions.length - 1; i >= 0; i--) {
+                stack[top++] = instructions[i];
+            }
+            while (top > 0) {
+                int pc = stack[--top];
+                if (visited.contains(pc)) {
+                    continue;
+                }
+                visited.add(pc);
+                Inst i = inst[pc];
+                switch (i.op) {
+                    case ALT:
+                    case ALT_MATCH:
+                        stack[top++] = i.arg;
+                        stack[top++] = i.out;
+                        break;
+                    case NOP:
+                    case CAPTURE:
+                        stack[top++] = i.out;
+                        break;
+                    case EMPTY_WIDTH:
+                        if ((i.arg & ~flag) == 0) {
+                            stack[top++] = i.out;
+                        }
+                        break;
+                    case MATCH:
+                        matchScratch.set(i.arg);
+                        break;
+                    case BYTE:
+                    case BYTE1:
+                        if (in != END_OF_TEXT && i.matchByte((byte) in) && !nextInstructions.contains(i.out)) {
+                            nextInstructions.add(i.out);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            int[] next = new int[nextInstructions.getSize()];
+            for (int i = 0; i < next.length; i++) {
+                next[i] = nextInstructions.getValueAt(i);
+            }
+            Arrays.sort(next);
+
+            int index = state * NUMBER_OF_INPUTS + in;
+            int nextState = stateId(next, in == END_OF_TEXT ? BEGIN_OF_TEXT : classOfByte((byte) in));
+            transitions[index] = nextState;
+            transitionMatches[index] = matchSetId(matchScratch.stream().toArray());
+            return index;
+        }
+
+        private int stateId(int[] instructions, int byteClass) {
+            DFAStateKey key = new DFAStateKey(instructions, instructions.length, byteClass);
+            Integer id = stateIds.get(key);
+            if (id != null) {
+                return id;
+            }
+            id = stateInstructions.size();
+            stateIds.put(key, id);
+            stateInstructions.add(instructions);
+            if (id == stateClasses.length) {
+                stateClasses = Arrays.copyOf(stateClasses, id * 2);
+            }
+            stateClasses[id] = byteClass;
+            int required = (id + 1) * NUMBER_OF_INPUTS;
+            if (required > transitions.length) {
+                int capacity = Math.max(required, transitions.length * 2);
+                transitions = Arrays.copyOf(transitions, capacity);
+                transitionMatches = Arrays.copyOf(transitionMatches, capacity);
+            }
+            Arrays.fill(transitions, id * NUMBER_OF_INPUTS, required, UNKNOWN);
+            return id;
+        }
+
+        private int matchSetId(int[] matches) {
+            DFAStateKey key = new DFAStateKey(matches, matches.length, 0);
+            Integer id = matchSetIds.get(key);
+            if (id == null) {
+                id = matchSets.size();
+                matchSets.add(matches);
+                matchSetIds.put(key, id);
+            }
+            return id;
+        }
+
+        private static int classOfByte(byte b) {
+            if (b == '\n') {
+                return NEWLINE;
+            }
+            return Utils.isWordByte(b) ? WORD : OTHER;
+        }
+    }
+}
@@ -140,7 +140,7 @@ class RE2 {
         this.prefixComplete = prefixComplete;
         this.prefixUTF8 = prefixUTF8;
         if (options.getAlgorithm() == DFA || options.getAlgorithm() == DFA_FALLBACK_TO_NFA) {
-            this.dfaMachine = new DFAMachine(this, options.getMaximumNumberOfDFAStates());
+            this.dfaMachine = new DFAMachine(this, options.getMaximumNumberOfDFAStates(), options.getMaximumDFAMemoryBytes());
             this.numberOfDFARetriesLeft = new AtomicInteger(options.getNumberOfDFARetries());
         }
     }
@@ -280,7 +280,10 @@ class RE2 {
                     throw e;
                 }
             } else {
-                dfaMachine = new DFAMachine(this, options.getMaximumNumberOfDFAStates());
+                dfaMachine = new DFAMachine(this, options.getMaximumNumberOfDFAStates(), options.getMaximumDFAMemoryBytes());
+                if (options.getEventsListener() != null) {
+                    options.getEventsListener().dfaCacheReset();
+                }
             }
         }
     }
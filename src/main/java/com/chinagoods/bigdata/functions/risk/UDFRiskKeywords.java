@@ -1,7 +1,10 @@
 package com.chinagoods.bigdata.functions.risk;
 
-import com.chinagoods.bigdata.functions.utils.MysqlUtil;
+import com.chinagoods.bigdata.functions.utils.DictionaryLoader;
+import com.chinagoods.bigdata.functions.utils.DictionaryRegistry;
+import com.chinagoods.bigdata.functions.utils.ahocorasick.AhoCorasickAutomaton;
 import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
@@ -13,7 +16,9 @@ import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectIn
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.TreeSet;
@@ -51,10 +56,26 @@ public class UDFRiskKeywords extends GenericUDF {
     private static final int ARG_COUNT = 1;
 
     /**
-     * 搜索关键词禁用表
+     * 搜索关键词禁用表，JVM内共享，不可修改
      **/
     public Set<String> riskKeywordsSet = new HashSet<String>();
 
+    private transient DictionaryRegistry.Dictionary riskKeywordsDictionary;
+
+    /**
+     * 禁用词匹配自动机，关键词按字典序构建，关键词下标顺序即输出顺序
+     **/
+    private transient AhoCorasickAutomaton riskKeywordsMatcher;
+
+    private static final String RISK_KEYWORDS_MATCHER_VIEW = "risk_keywords_matcher";
+
+    /**
+     * 当前行命中的关键词下标
+     **/
+    private transient BitSet hitKeywordIndexes;
+
+    private transient AhoCorasickAutomaton.MatchHandler hitKeywordHandler;
+
     public UDFRiskKeywords() {
     }
 
@@ -71,13 +92,22 @@ public class UDFRiskKeywords extends GenericUDF {
                     PrimitiveObjectInspectorFactory.writableStringObjectInspector);
         }
 
-        // 查询现有搜索引擎禁用词
-        MysqlUtil mysqlUtil = new MysqlUtil(DB_URL, DB_USER, DB_PASSWORD);
+        // 查询现有搜索引擎禁用词，优先使用本地快照，同一JVM内只加载一次
+        close();
         try {
-            riskKeywordsSet = mysqlUtil.getKeywords(SELECT_RISK_KEYWORDS_SQL);
+            riskKeywordsDictionary = DictionaryRegistry.acquire(DB_URL, DB_USER, DB_PASSWORD, SELECT_RISK_KEYWORDS_SQL);
         } catch (SQLException e) {
             throw new UDFArgumentException(String.format("Failed to query the set of prohibited words in the risk database, the error details are: %s", e));
         }
+        Set<String> keywords = riskKeywordsDictionary.getSet();
+        riskKeywordsSet = keywords;
+        riskKeywordsMatcher = riskKeywordsDictionary.getView(RISK_KEYWORDS_MATCHER_VIEW,
+                rows -> new AhoCorasickAutomaton(new TreeSet<>(keywords)));
+        hitKeywordIndexes = new BitSet(riskKeywordsMatcher.size());
+        hitKeywordHandler = (keywordIndex, end) -> {
+            hitKeywordIndexes.set(keywordIndex);
+            return true;
+        };
 
         return PrimitiveObjectInspectorFactory.javaStringObjectInspector;
     }
@@ -89,7 +119,6 @@ public class UDFRiskKeywords extends GenericUDF {
         if (arguments[0].get() == null || StringUtils.isBlank(arguments[0].get().toString())) {
             return null;
         }
-        Set<String> hitKeywordSet = new TreeSet<>();
 
         String goodName;
         try {
@@ -99,12 +128,34 @@ public class UDFRiskKeywords extends GenericUDF {
             return null;
         }
 
-        for (String keyword : riskKeywordsSet) {
-            if (StringUtils.contains(goodName, keyword)) {
-                hitKeywordSet.add(keyword);
+        hitKeywordIndexes.clear();
+        riskKeywordsMatcher.match(goodName, hitKeywordHandler);
+
+        StringBuilder hitKeywords = new StringBuilder();
+        for (int i = hitKeywordIndexes.nextSetBit(0); i >= 0; i = hitKeywordIndexes.nextSetBit(i + 1)) {
+            if (hitKeywords.length() > 0) {
+                hitKeywords.append(',');
             }
+            hitKeywords.append(riskKeywordsMatcher.getKeyword(i));
+        }
+        return hitKeywords.toString();
+    }
+
+    /**
+     * 导出risk_keywords使用的mysql字典快照，见DictionaryLoader
+     */
+    public static void exportDictionarySnapshots(Path dir) throws SQLException, IOException {
+        try (DictionaryLoader loader = new DictionaryLoader(DB_URL, DB_USER, DB_PASSWORD)) {
+            loader.export(SELECT_RISK_KEYWORDS_SQL, dir);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (riskKeywordsDictionary != null) {
+            riskKeywordsDictionary.close();
+            riskKeywordsDictionary = null;
         }
-        return StringUtils.join(hitKeywordSet, ",");
     }
 
     @Override
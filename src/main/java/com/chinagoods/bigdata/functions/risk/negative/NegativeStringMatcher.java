@@ -1,47 +1,24 @@
 package com.chinagoods.bigdata.functions.risk.negative;
 
+import com.chinagoods.bigdata.functions.utils.ahocorasick.AhoCorasickAutomaton;
+
 import java.util.List;
 
 /**
  * @author xiaowei.song
  * @version v1.0.0
- * @description 高效负向词匹配，使用trie算法实现，构建负向词词库，
+ * @description 高效负向词匹配，基于Aho-Corasick自动机实现，单次扫描商品名称即可判断是否包含任意负向词，
+ * 失配时沿fail链回退而不是回到根节点，重叠出现的负向词(如"尾尾货")也能正确命中；匹配过程不产生对象分配
  * @date 2023/9/6 10:06
  */
 public class NegativeStringMatcher {
-    private TrieNode root;
+    private final AhoCorasickAutomaton automaton;
 
     public NegativeStringMatcher(List<String> negativeStrings) {
-        root = new TrieNode();
-        for (String negativeString : negativeStrings) {
-            insert(negativeString);
-        }
-    }
-
-    public void insert(String word) {
-        TrieNode current = root;
-        for (char ch : word.toCharArray()) {
-            current.children.putIfAbsent(ch, new TrieNode());
-            current = current.children.get(ch);
-        }
-        current.isEndOfWord = true;
+        automaton = new AhoCorasickAutomaton(negativeStrings);
     }
 
     public boolean containsNegativeString(String goodsName) {
-        TrieNode current = root;
-        for (char ch : goodsName.toCharArray()) {
-            if (current.isEndOfWord) {
-                // 找到匹配的负向字符串
-                return true;
-            }
-            if (!current.children.containsKey(ch)) {
-                // 重置到根节点
-                current = root;
-            } else {
-                current = current.children.get(ch);
-            }
-        }
-        // 检查最后一个字符
-        return current.isEndOfWord;
+        return automaton.containsAny(goodsName);
     }
-}
\ No newline at end of file
+}
@@ -79,7 +79,7 @@ public class UDFNewGoodsNegativeString extends GenericUDF {
         converters = new ObjectInspectorConverters.Converter[arguments.length];
         for (int i = 0; i < arguments.length; i++) {
             converters[i] = ObjectInspectorConverters.getConverter(arguments[i],
-                    PrimitiveObjectInspectorFactory.writableStringObjectInspector);
+                    PrimitiveObjectInspectorFactory.javaStringObjectInspector);
         }
 
         // 初始化负向词匹配器
@@ -92,17 +92,22 @@ public class UDFNewGoodsNegativeString extends GenericUDF {
     public Object evaluate(DeferredObject[] arguments) throws HiveException {
         assert (arguments.length == ARG_COUNT);
 
-        if (arguments[0].get() == null || StringUtils.isBlank(arguments[0].get().toString())) {
+        Object goodNameObject = arguments[0].get();
+        if (goodNameObject == null) {
             return false;
         }
 
+        // 转换为java String，字符串类型输入不再额外分配对象
         String goodName;
         try {
-            goodName = converters[0].convert(arguments[0].get()).toString();
+            goodName = (String) converters[0].convert(goodNameObject);
         } catch (Exception e) {
             logger.error("Type conversion failed", e);
             return false;
         }
+        if (StringUtils.isBlank(goodName)) {
+            return false;
+        }
         return negativeStringMatcher.containsNegativeString(goodName);
     }
 
@@ -1,7 +1,10 @@
 package com.chinagoods.bigdata.functions.search;
 
-import com.chinagoods.bigdata.functions.utils.MysqlUtil;
+import com.chinagoods.bigdata.functions.utils.DictionaryLoader;
+import com.chinagoods.bigdata.functions.utils.DictionaryRegistry;
+import com.chinagoods.bigdata.functions.utils.ahocorasick.AhoCorasickAutomaton;
 import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
@@ -11,6 +14,7 @@ import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.HashSet;
 import java.util.Set;
@@ -42,10 +46,19 @@ public class UDFSearchKeywordsSensitive extends GenericUDF {
     private static final int ARG_COUNT = 1;
 
     /**
-     * 搜索关键词禁用表
+     * 搜索关键词禁用表，JVM内共享，不可修改
      **/
     public Set<String> keywordsSensitive = new HashSet<String>();
 
+    private transient DictionaryRegistry.Dictionary keywordsSensitiveDictionary;
+
+    /**
+     * 禁用词匹配自动机
+     **/
+    private transient AhoCorasickAutomaton keywordsSensitiveMatcher;
+
+    private static final String KEYWORDS_SENSITIVE_MATCHER_VIEW = "keywords_sensitive_matcher";
+
     public UDFSearchKeywordsSensitive() {
     }
 
@@ -62,13 +75,17 @@ public class UDFSearchKeywordsSensitive extends GenericUDF {
                     PrimitiveObjectInspectorFactory.writableStringObjectInspector);
         }
 
-        // 查询现有搜索引擎禁用词
-        MysqlUtil mysqlUtil = new MysqlUtil(DB_URL, DB_USER, DB_PASSWORD);
+        // 查询现有搜索引擎禁用词，优先使用本地快照，同一JVM内只加载一次
+        close();
         try {
-            keywordsSensitive = mysqlUtil.getKeywords(SELECT_SENSITIVE_KEYWORDS_SQL);
+            keywordsSensitiveDictionary = DictionaryRegistry.acquire(DB_URL, DB_USER, DB_PASSWORD, SELECT_SENSITIVE_KEYWORDS_SQL);
         } catch (SQLException e) {
             throw new UDFArgumentException(String.format("Failed to query the set of prohibited words in the search engine database, the error details are: %s", e));
         }
+        Set<String> keywords = keywordsSensitiveDictionary.getSet();
+        keywordsSensitive = keywords;
+        keywordsSensitiveMatcher = keywordsSensitiveDictionary.getView(KEYWORDS_SENSITIVE_MATCHER_VIEW,
+                rows -> new AhoCorasickAutomaton(keywords));
 
         return PrimitiveObjectInspectorFactory
                 .javaIntObjectInspector;
@@ -84,17 +101,29 @@ public class UDFSearchKeywordsSensitive extends GenericUDF {
 
         try {
             String keywords = converters[0].convert(arguments[0].get()).toString();
-            for (String sensitiveKeyword : keywordsSensitive) {
-                if (StringUtils.contains(keywords, sensitiveKeyword)) {
-                    return 1;
-                }
-            }
-            return 0;
+            return keywordsSensitiveMatcher.containsAny(keywords) ? 1 : 0;
         } catch (Exception e) {
             return 0;
         }
     }
 
+    /**
+     * 导出search_keywords_sensitive使用的mysql字典快照，见DictionaryLoader
+     */
+    public static void exportDictionarySnapshots(Path dir) throws SQLException, IOException {
+        try (DictionaryLoader loader = new DictionaryLoader(DB_URL, DB_USER, DB_PASSWORD)) {
+            loader.export(SELECT_SENSITIVE_KEYWORDS_SQL, dir);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (keywordsSensitiveDictionary != null) {
+            keywordsSensitiveDictionary.close();
+            keywordsSensitiveDictionary = null;
+        }
+    }
+
     @Override
     public String getDisplayString(String[] strings) {
         assert (strings.length == ARG_COUNT);
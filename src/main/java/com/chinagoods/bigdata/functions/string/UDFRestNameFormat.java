@@ -1,6 +1,8 @@
 package com.chinagoods.bigdata.functions.string;
 
-import com.chinagoods.bigdata.functions.utils.MysqlUtil;
+import com.chinagoods.bigdata.functions.utils.DictionaryLoader;
+import com.chinagoods.bigdata.functions.utils.DictionaryRegistry;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
@@ -11,6 +13,8 @@ import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectIn
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -37,6 +41,7 @@ public class UDFRestNameFormat extends GenericUDF {
     private ObjectInspectorConverters.Converter[] converters;
     private static final int ARG_COUNT = 2;
     List<List<String>> deviceList = new ArrayList<List<String>>();
+    private transient DictionaryRegistry.Dictionary deviceDictionary;
     DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     public UDFRestNameFormat() {
@@ -77,15 +82,34 @@ public class UDFRestNameFormat extends GenericUDF {
      * @throws UDFArgumentException 查询mysql异常
      */
     public void queryRestDeviceList() throws UDFArgumentException {
+        close();
         try {
-            MysqlUtil mysqlUtil = new MysqlUtil(DB_URL, DB_USER, DB_PASSWORD);
-            deviceList = mysqlUtil.getLists(REST_QUERY_SQL);
+            // JVM内共享，不可修改
+            deviceDictionary = DictionaryRegistry.acquire(DB_URL, DB_USER, DB_PASSWORD, REST_QUERY_SQL);
+            deviceList = deviceDictionary.getRows();
         } catch (Exception e) {
             logger.error("Failed to query the rest name. Procedure, the error details are: ", e);
             throw new UDFArgumentException(String.format("Failed to query the rest name. Procedure, the error details are: %s", e));
         }
     }
 
+    /**
+     * 导出rest_name_format使用的mysql字典快照，见DictionaryLoader
+     */
+    public static void exportDictionarySnapshots(Path dir) throws SQLException, IOException {
+        try (DictionaryLoader loader = new DictionaryLoader(DB_URL, DB_USER, DB_PASSWORD)) {
+            loader.export(REST_QUERY_SQL, dir);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (deviceDictionary != null) {
+            deviceDictionary.close();
+            deviceDictionary = null;
+        }
+    }
+
     @Override
     public String getDisplayString(String[] strings) {
         assert (strings.length == ARG_COUNT);
@@ -0,0 +1,130 @@
+package com.chinagoods.bigdata.functions.url;
+
+import com.chinagoods.bigdata.functions.utils.ahocorasick.AhoCorasickAutomaton;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * standard_special_url规则的子串索引，由initRules构建一次，可被多个UDF实例及线程共享
+ * <p>
+ * 指定列(菜单url或fixed_identity)的全部取值构建一个Aho-Corasick自动机，一次扫描url即得到全部命中的规则，与规则数无关；
+ * 规则url包含请求域名的判断按域名分桶缓存，同一域名只计算一次。命中的规则均按表中的顺序返回，与逐条判断contains的结果相同
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+final class SpecialUrlIndex {
+    /**
+     * 特殊url参数列表: url,fixed_identity,fixed_param,mapping_key,unit,sub_unit,url_param_keys,param_type,page_link_name
+     */
+    static final int URL_COLUMN = 0;
+    static final int FIXED_IDENTITY_COLUMN = 1;
+    /**
+     * 最多缓存的域名数，超过后不再缓存，避免异常日志中的大量域名占用内存
+     */
+    private static final int MAX_HOST_BUCKETS = 1024;
+
+    private final List<List<String>> rules;
+    private final AhoCorasickAutomaton automaton;
+    /**
+     * 关键词下标到规则下标，升序
+     */
+    private final int[][] keywordRules;
+    /**
+     * 关键词为空串的规则，任何url都包含
+     */
+    private final BitSet emptyKeywordRules = new BitSet();
+    /**
+     * 域名到url列包含该域名的规则
+     */
+    private final ConcurrentMap<String, BitSet> hostBuckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param rules         standard_special_url查询结果
+     * @param keywordColumn 需要作为url子串匹配的列，值为null的规则永不命中
+     */
+    SpecialUrlIndex(List<List<String>> rules, int keywordColumn) {
+        this.rules = rules;
+        Map<String, List<Integer>> keywordRuleLists = new LinkedHashMap<>();
+        for (int i = 0; i < rules.size(); i++) {
+            String keyword = rules.get(i).get(keywordColumn);
+            if (keyword == null) {
+                continue;
+            }
+            if (keyword.isEmpty()) {
+                emptyKeywordRules.set(i);
+            } else {
+                keywordRuleLists.computeIfAbsent(keyword, key -> new ArrayList<>()).add(i);
+            }
+        }
+        automaton = new AhoCorasickAutomaton(keywordRuleLists.keySet());
+        keywordRules = new int[automaton.size()][];
+        for (int i = 0; i < keywordRules.length; i++) {
+            keywordRules[i] = keywordRuleLists.get(automaton.getKeyword(i)).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * @return 是否存在关键词是url子串的规则
+     */
+    boolean containsAny(String url) {
+        return !emptyKeywordRules.isEmpty() || automaton.containsAny(url);
+    }
+
+    /**
+     * @return 关键词是url子串的第一条规则的下标，不存在时返回-1
+     */
+    int first(String url) {
+        int[] first = {emptyKeywordRules.isEmpty() ? Integer.MAX_VALUE : emptyKeywordRules.nextSetBit(0)};
+        automaton.match(url, (keywordIndex, end) -> {
+            first[0] = Math.min(first[0], keywordRules[keywordIndex][0]);
+            return true;
+        });
+        return first[0] == Integer.MAX_VALUE ? -1 : first[0];
+    }
+
+    /**
+     * @return 关键词是url子串且url列包含host的规则下标
+     */
+    BitSet matches(String url, String host) {
+        BitSet matched = (BitSet) emptyKeywordRules.clone();
+        automaton.match(url, (keywordIndex, end) -> {
+            for (int rule : keywordRules[keywordIndex]) {
+                matched.set(rule);
+            }
+            return true;
+        });
+        if (!matched.isEmpty()) {
+            matched.and(hostBucket(host));
+        }
+        return matched;
+    }
+
+    List<String> getRule(int index) {
+        return rules.get(index);
+    }
+
+    private BitSet hostBucket(String host) {
+        BitSet bucket = hostBuckets.get(host);
+        if (bucket != null) {
+            return bucket;
+        }
+        bucket = new BitSet(rules.size());
+        for (int i = 0; i < rules.size(); i++) {
+            String url = rules.get(i).get(URL_COLUMN);
+            if (url != null && url.contains(host)) {
+                bucket.set(i);
+            }
+        }
+        if (hostBuckets.size() < MAX_HOST_BUCKETS) {
+            hostBuckets.putIfAbsent(host, bucket);
+        }
+        return bucket;
+    }
+}
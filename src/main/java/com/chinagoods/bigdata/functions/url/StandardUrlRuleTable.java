@@ -0,0 +1,377 @@
+package com.chinagoods.bigdata.functions.url;
+
+import com.chinagoods.bigdata.functions.regexp.re2j.PatternSet;
+import io.airlift.slice.Slices;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * standard_rule_url正则规则编译后的不可修改规则表，由initRules构建一次，可被多个UDF实例及线程共享
+ * <p>
+ * 预先编译正则、拆分params并将NULL替换为空串，替换语义与逐条String.replaceAll相同；regex与params相同的规则共用一次替换，
+ * 替换结果按standard_url查找命中的规则。同一平台的全部正则合并为一个re2j PatternSet，一次扫描url找出候选规则：
+ * 规则的正则在原始url中都不匹配时，替换后的url就是原始url，只有standard_url恰好等于原始url的规则才可能命中，
+ * 因此只需尝试正则有匹配的规则与standard_url等于原始url的规则，取其中最靠前的，结果与逐条尝试全部规则相同
+ * <p>
+ * re2j与java正则语义不同的正则(如环视、反向引用、字符类嵌套与交集)以及含非可打印ascii字符的url不经过PatternSet，逐条尝试
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+final class StandardUrlRuleTable {
+    private static final Logger logger = LoggerFactory.getLogger(StandardUrlRuleTable.class);
+
+    private static final String REGEX_OR_PARAM_SEPARATOR = "/&/";
+    private static final String PARAM_NULL = "NULL";
+    private static final String EMPTY = "";
+    private static final String BACKSLASH = "/";
+    private static final String H5 = "h5";
+    private static final String FLAG_TRUE = "Y";
+
+    private final Map<String, PlatformRules> platformRules;
+
+    private StandardUrlRuleTable(Map<String, PlatformRules> platformRules) {
+        this.platformRules = platformRules;
+    }
+
+    /**
+     * 正则非法或params个数少于正则个数的规则记录日志后跳过，不影响其他规则
+     *
+     * @param rows standard_rule_url查询结果：platform_type,is_h5,standard_url,regex,unit,sub_unit,page_name,params
+     */
+    static StandardUrlRuleTable build(List<List<String>> rows) {
+        Map<String, List<List<String>>> platformRows = new HashMap<>();
+        for (List<String> row : rows) {
+            String fullPlatformType = row.get(0) + (FLAG_TRUE.equals(row.get(1)) ? H5 : EMPTY);
+            platformRows.computeIfAbsent(fullPlatformType, key -> new ArrayList<>()).add(row);
+        }
+
+        Map<String, PlatformRules> platformRules = new HashMap<>();
+        platformRows.forEach((fullPlatformType, ruleRows) -> platformRules.put(fullPlatformType, new PlatformRules(ruleRows)));
+        return new StandardUrlRuleTable(Collections.unmodifiableMap(platformRules));
+    }
+
+    /**
+     * @param fullPlatformType 平台类型，h5页面加h5后缀
+     * @param scUrl            标准化后的原始url
+     * @return 第一条替换后等于standard_url的规则，没有时返回null
+     */
+    Rule match(String fullPlatformType, String scUrl) {
+        PlatformRules rules = platformRules.get(fullPlatformType);
+        return rules == null ? null : rules.match(scUrl);
+    }
+
+    /**
+     * 一条规则的结果
+     */
+    static final class Rule {
+        private final String standardUrl;
+        private final String unit;
+        private final String subUnit;
+        private final String pageName;
+        /**
+         * 命中时返回的不可修改结果，所有命中的行共享
+         */
+        private final List<String> result;
+
+        private Rule(List<String> row) {
+            this.standardUrl = row.get(2);
+            this.unit = row.get(4);
+            this.subUnit = row.get(5);
+            this.pageName = row.get(6);
+            this.result = UDFStandardUrlFormat.result(standardUrl, unit, subUnit, pageName, null);
+        }
+
+        /**
+         * 补全结尾/后永远不可能与url相等的规则
+         */
+        private boolean neverMatches() {
+            return standardUrl == null || !standardUrl.equals(appendBackslash(standardUrl));
+        }
+
+        String getStandardUrl() {
+            return standardUrl;
+        }
+
+        String getUnit() {
+            return unit;
+        }
+
+        String getSubUnit() {
+            return subUnit;
+        }
+
+        String getPageName() {
+            return pageName;
+        }
+
+        List<String> getResult() {
+            return result;
+        }
+    }
+
+    /**
+     * 编译后的一组正则替换，regex与params相同的规则共用，对同一url只替换一次
+     */
+    private static final class Transform {
+        private final Pattern[] patterns;
+        private final String[] replacements;
+        /**
+         * 使用此替换的规则中，standard_url到第一条规则的下标
+         */
+        private final Map<String, Integer> firstRules = new HashMap<>();
+        private final int firstRule;
+
+        private Transform(Pattern[] patterns, String[] replacements, int firstRule) {
+            this.patterns = patterns;
+            this.replacements = replacements;
+            this.firstRule = firstRule;
+        }
+
+        /**
+         * @return regex与params拆分后的key，相同key的规则共用一个Transform
+         */
+        private static List<String> key(List<String> row) {
+            String regex = row.get(3);
+            List<String> key = new ArrayList<>();
+            // 多正则匹配，正则与params均用/&/分割
+            if (StringUtils.isNotBlank(regex)) {
+                String[] regexArray = regex.split(REGEX_OR_PARAM_SEPARATOR);
+                String[] paramsArray = row.get(7) == null ? new String[0] : row.get(7).split(REGEX_OR_PARAM_SEPARATOR);
+                if (paramsArray.length < regexArray.length) {
+                    throw new IllegalArgumentException(String.format("The params of standard url rule %s do not match the regex %s", row.get(2), regex));
+                }
+                for (int i = 0; i < regexArray.length; i++) {
+                    key.add(regexArray[i]);
+                    key.add(paramsArray[i].replace(PARAM_NULL, EMPTY));
+                }
+            }
+            return key;
+        }
+
+        private static Transform compile(List<String> key, int firstRule) {
+            Pattern[] patterns = new Pattern[key.size() / 2];
+            String[] replacements = new String[patterns.length];
+            for (int i = 0; i < patterns.length; i++) {
+                patterns[i] = Pattern.compile(key.get(2 * i));
+                replacements[i] = key.get(2 * i + 1);
+            }
+            return new Transform(patterns, replacements, firstRule);
+        }
+
+        /**
+         * @return 依次替换后补全结尾/的url
+         */
+        private String apply(String scUrl) {
+            String newScUrl = scUrl;
+            for (int i = 0; i < patterns.length; i++) {
+                newScUrl = patterns[i].matcher(newScUrl).replaceAll(replacements[i]);
+            }
+            return appendBackslash(newScUrl);
+        }
+
+        /**
+         * @return 替换后命中的第一条规则的下标，没有时返回-1
+         */
+        private int match(String scUrl) {
+            Integer rule = firstRules.get(apply(scUrl));
+            return rule == null ? -1 : rule;
+        }
+    }
+
+    /**
+     * 同一平台的规则，保持表中的顺序
+     */
+    private static final class PlatformRules {
+        private final Rule[] rules;
+        /**
+         * 按第一条规则的顺序排列
+         */
+        private final Transform[] transforms;
+        /**
+         * 全部可由re2j判断的不重复正则，为空时尝试全部Transform
+         */
+        private final PatternSet patternSet;
+        /**
+         * PatternSet中每个正则所属的Transform
+         */
+        private final int[][] patternTransforms;
+        /**
+         * 需要每次尝试的Transform：含re2j无法等价判断的正则
+         */
+        private final BitSet alwaysTriedTransforms = new BitSet();
+        /**
+         * standard_url到Transform下标，正则都不匹配时只有这些Transform中的规则可能命中
+         */
+        private final Map<String, int[]> identityTransforms = new HashMap<>();
+
+        private PlatformRules(List<List<String>> rows) {
+            rules = new Rule[rows.size()];
+            Map<List<String>, Integer> transformIndexes = new HashMap<>();
+            List<Transform> transformList = new ArrayList<>();
+            Map<String, Set<Integer>> identityTransformSets = new HashMap<>();
+            for (int i = 0; i < rows.size(); i++) {
+                Integer transformIndex;
+                try {
+                    List<String> key = Transform.key(rows.get(i));
+                    transformIndex = transformIndexes.get(key);
+                    if (transformIndex == null) {
+                        Transform transform = Transform.compile(key, i);
+                        transformIndex = transformList.size();
+                        transformIndexes.put(key, transformIndex);
+                        transformList.add(transform);
+                    }
+                } catch (IllegalArgumentException e) {
+                    // 跳过的规则在rules中为null，不会被任何Transform引用
+                    logger.warn("Skip invalid standard url rule {}", rows.get(i), e);
+                    continue;
+                }
+                rules[i] = new Rule(rows.get(i));
+                if (!rules[i].neverMatches()) {
+                    transformList.get(transformIndex).firstRules.putIfAbsent(rules[i].standardUrl, i);
+                    identityTransformSets.computeIfAbsent(rules[i].standardUrl, k -> new LinkedHashSet<>()).add(transformIndex);
+                }
+            }
+            transforms = transformList.toArray(new Transform[0]);
+            identityTransformSets.forEach((standardUrl, indexes) ->
+                    identityTransforms.put(standardUrl, indexes.stream().mapToInt(Integer::intValue).toArray()));
+
+            Map<String, List<Integer>> setPatterns = new LinkedHashMap<>();
+            for (int i = 0; i < transforms.length; i++) {
+                for (Pattern pattern : transforms[i].patterns) {
+                    if (isRe2jCompatible(pattern.pattern())) {
+                        setPatterns.computeIfAbsent(pattern.pattern(), k -> new ArrayList<>()).add(i);
+                    } else {
+                        alwaysTriedTransforms.set(i);
+                    }
+                }
+            }
+            PatternSet compiled = null;
+            if (!setPatterns.isEmpty()) {
+                try {
+                    compiled = PatternSet.compile(setPatterns.keySet());
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to combine {} standard url rule regexes, try every rule", setPatterns.size(), e);
+                }
+            }
+            patternSet = compiled;
+            patternTransforms = new int[setPatterns.size()][];
+            int patternIndex = 0;
+            for (List<Integer> indexes : setPatterns.values()) {
+                patternTransforms[patternIndex++] = indexes.stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+
+        private Rule match(String scUrl) {
+            BitSet candidates;
+            if (patternSet == null || !isPrintableAscii(scUrl)) {
+                candidates = new BitSet(transforms.length);
+                candidates.set(0, transforms.length);
+            } else {
+                candidates = (BitSet) alwaysTriedTransforms.clone();
+                BitSet matchedPatterns = new BitSet(patternTransforms.length);
+                patternSet.match(Slices.utf8Slice(scUrl), matchedPatterns);
+                for (int i = matchedPatterns.nextSetBit(0); i >= 0; i = matchedPatterns.nextSetBit(i + 1)) {
+                    for (int transform : patternTransforms[i]) {
+                        candidates.set(transform);
+                    }
+                }
+                int[] identity = identityTransforms.get(appendBackslash(scUrl));
+                if (identity != null) {
+                    for (int transform : identity) {
+                        candidates.set(transform);
+                    }
+                }
+            }
+
+            // Transform按第一条规则的顺序排列，之后的Transform不可能命中更靠前的规则
+            int best = Integer.MAX_VALUE;
+            for (int i = candidates.nextSetBit(0); i >= 0 && transforms[i].firstRule < best; i = candidates.nextSetBit(i + 1)) {
+                if (transforms[i].firstRules.isEmpty()) {
+                    continue;
+                }
+                int rule = transforms[i].match(scUrl);
+                if (rule >= 0 && rule < best) {
+                    best = rule;
+                }
+            }
+            return best == Integer.MAX_VALUE ? null : rules[best];
+        }
+    }
+
+    private static String appendBackslash(String url) {
+        return url.endsWith(BACKSLASH) || url.isEmpty() ? url : url + BACKSLASH;
+    }
+
+    /**
+     * 只有可打印ascii字符时，java正则与re2j对"是否存在匹配"的判断一致(如.、$、\s、\b的差异只在控制字符与非ascii字符上)
+     */
+    private static boolean isPrintableAscii(String url) {
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c < 0x20 || c > 0x7e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 字符类嵌套([a[b]])、交集(&&)与八进制转义在re2j中可以编译但语义不同，连同re2j不支持的语法一律逐条尝试
+     */
+    static boolean isRe2jCompatible(String regex) {
+        boolean inClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                // java的\0mnn八进制转义最多取三位数字，re2j最多两位
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == '0') {
+                    return false;
+                }
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == 'Q') {
+                    int end = regex.indexOf("\\E", i + 2);
+                    if (end < 0) {
+                        break;
+                    }
+                    i = end + 1;
+                } else {
+                    i++;
+                }
+            } else if (inClass) {
+                if (c == '[' || (c == '&' && i + 1 < regex.length() && regex.charAt(i + 1) == '&')) {
+                    return false;
+                }
+                if (c == ']') {
+                    inClass = false;
+                }
+            } else if (c == '[') {
+                inClass = true;
+                // 字符类开头的]与^]是普通字符
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == '^') {
+                    i++;
+                }
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == ']') {
+                    i++;
+                }
+            }
+        }
+        try {
+            PatternSet.compile(Collections.singletonList(regex));
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.chinagoods.bigdata.functions.url;
 
 import com.chinagoods.bigdata.functions.utils.HttpParamUtil;
 import com.chinagoods.bigdata.functions.utils.CgStringUtils;
+import com.chinagoods.bigdata.functions.utils.UrlTokenizer;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDF;
@@ -31,6 +32,8 @@ public class UDFAdUrlFormat extends UDF {
             "utm_content"
             ));
 
+    private final UrlTokenizer tokenizer = new UrlTokenizer();
+
     public String evaluate(String value) throws MalformedURLException {
         if (value == null) {
             return null;
@@ -41,26 +44,34 @@ public class UDFAdUrlFormat extends UDF {
         logger.debug("转义之后的URL为: {}", value);
 
 
-//        URI adUri = URI.create(value);
-        URL adUri = null;
-        try {
-            adUri = new URL(value);
-        } catch (Exception e) {
-            logger.error("解析ad url失败，{}", value, e);
-        }
-        Map<String, Object> paramsMap = HttpParamUtil.getParameter(value);
-
-        // Fixed me。 若广告解析为null，则返回null
-        if (adUri == null) {
-            return null;
+        String protocol;
+        String authority;
+        String path;
+        // 常见的http(s)://host[:port]链接直接按下标切分，其余仍由java.net.URL解析
+        if (tokenizer.reset(value).isSimpleHttpUrl()) {
+            protocol = tokenizer.scheme().toLowerCase();
+            authority = tokenizer.authority();
+            path = tokenizer.path();
+        } else {
+            try {
+                URL adUri = new URL(value);
+                protocol = adUri.getProtocol();
+                authority = adUri.getAuthority();
+                path = adUri.getPath();
+            } catch (Exception e) {
+                // Fixed me。 若广告解析为null，则返回null
+                logger.error("解析ad url失败，{}", value, e);
+                return null;
+            }
         }
+        String[] params = HttpParamUtil.getParameters(value, AD_PARAM_LIST);
 
-        return String.format("%s://%s%s?utm_campaign=%s&utm_source=%s&utm_medium=%s&utm_content=%s", adUri.getProtocol(), adUri.getAuthority(),
-                adUri.getPath(),
-                paramsMap.getOrDefault("utm_campaign", ""),
-                paramsMap.getOrDefault("utm_source", ""),
-                paramsMap.getOrDefault("utm_medium", ""),
-                paramsMap.getOrDefault("utm_content", "")
+        return String.format("%s://%s%s?utm_campaign=%s&utm_source=%s&utm_medium=%s&utm_content=%s", protocol, authority,
+                path,
+                params[0] == null ? "" : params[0],
+                params[1] == null ? "" : params[1],
+                params[2] == null ? "" : params[2],
+                params[3] == null ? "" : params[3]
         );
     }
 
@@ -1,7 +1,13 @@
 package com.chinagoods.bigdata.functions.url;
 
-import com.chinagoods.bigdata.functions.utils.MysqlUtil;
+import com.chinagoods.bigdata.functions.utils.DictionaryLoader;
+import com.chinagoods.bigdata.functions.utils.DictionaryRegistry;
+import com.chinagoods.bigdata.functions.utils.UrlTokenizer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
@@ -16,12 +22,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.URL;
+import java.sql.SQLException;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * @author zyl
@@ -64,38 +69,38 @@ public class UDFStandardUrlFormat extends GenericUDF {
      */
     private static final String STATIC_URL_SQL = "select standard_url, concat(unit,'---',sub_unit,'---',page_name) url_name from standard_rule_url where (regex is null or regex = '') and standard_url is not null ";
     /**
-     * URL中含菜单信息列表
-     **/
-    private List<List<String>> menuUrlList = new ArrayList<>();
-    /**
-     * 特殊URL信息列表
-     **/
-    private List<List<String>> specialUrlList = new ArrayList<>();
+     * URL中含菜单信息的url子串索引与特殊URL的fixed_identity子串索引，JVM内共享
+     */
+    private transient SpecialUrlIndex menuUrlIndex;
+    private transient SpecialUrlIndex specialUrlIndex;
     /**
      * 参数k-v映射信息
      **/
-    private Map<String, String> paramKvMap = new HashMap<>();
+    private Map<String, String> paramKvMap = Collections.emptyMap();
     /**
-     * 汇总规则
+     * 汇总规则，编译后的正则规则表，JVM内共享
      */
-    private final Map<String, List<List<String>>> allStandardRuleUrlPlatform2EntityMap = new HashMap<>();
+    private transient StandardUrlRuleTable standardUrlRuleTable;
     /**
      * 静态url映射表Map
      */
-    private Map<String, String> staticUrlMap = new HashMap<>();
+    private Map<String, String> staticUrlMap = Collections.emptyMap();
+    /**
+     * (客户端名称, 标准化url)到结果的缓存，按字符数限制大小，随规则一起在initialize时重建
+     */
+    private transient Cache<ResultCacheKey, List<String>> resultCache;
+    /**
+     * JVM内共享的mysql字典，close时释放
+     */
+    private transient List<DictionaryRegistry.Dictionary> dictionaries;
     private ObjectInspectorConverters.Converter[] converters;
     private static final int ARG_COUNT = 2;
     private static final String HTTP_PREFIX = "http:";
     private static final String HTTPS_PREFIX = "https:";
     private static final String HTTPS_H5_PREFIX = "https://h";
-    private static final String FLAG_TRUE = "Y";
     private static final String ONE = "1";
     private static final String TWO = "2";
     private static final String EMPTY = "";
-    /**
-     * 约定空字符用NULL替换
-     **/
-    private static final String PARAM_NULL = "NULL";
     private static final String SEPARATOR = "---";
     private static final String KV_SEPARATOR = "--";
     private static final String KV_VALUE_SEPARATOR = "-";
@@ -103,11 +108,11 @@ public class UDFStandardUrlFormat extends GenericUDF {
      * 参数连接分隔符
      **/
     private static final String CONNECTOR_SEPARATOR = "?";
-    private static final String REGEX_OR_PARAM_SEPARATOR = "/&/";
     private static final String BACKSLASH = "/";
     private static final String PARAM_SEPARATOR = "&";
     private static final String EQ = "=";
     private static final String COMMA = ",";
+    private static final String REGEX_META_CHARS = "\\^$.|?*+()[]{}";
     /**
      * 固定参数
      */
@@ -139,26 +144,77 @@ public class UDFStandardUrlFormat extends GenericUDF {
     private static final String EP = "EP--";
 
     private static final String STANDARD_ZERO = "0000";
+    private static final String STANDARD_URL_RULE_TABLE_VIEW = "standard_url_rule_table";
+    private static final String MENU_URL_INDEX_VIEW = "menu_url_index";
+    private static final String SPECIAL_URL_INDEX_VIEW = "special_url_index";
     private static final String H5 = "h5";
     private static final String MINI_PROGRAMS = "mini_programs";
 
     private static final String FIXED_PARAM = "fixed_param";
     /**
-     * 返回结果list元素
+     * 菜单url标识
+     */
+    private static final String[] MENU_KEYS = {Z, T, M, S, C};
+    /**
+     * 搜索类型key
+     */
+    private static final String[] SEARCH_KEYS = {EY, VL, SF, LT, S, IMT, P, I, HR, EP};
+    /**
+     * 未匹配到规则时的结果，所有行共享
      */
-    private volatile String platformType = null;
-    private volatile String standardUrl = null;
-    private volatile String unit = null;
-    private volatile String subUnit = null;
-    private volatile String pageName = null;
-    private volatile String regex = null;
-    private volatile String params = null;
-    private ArrayList<String> resultPageNameList = new ArrayList<>(4);
+    private static final List<String> DEFAULT_RESULT = Collections.unmodifiableList(
+            Arrays.asList(STANDARD_ZERO, STANDARD_ZERO, STANDARD_ZERO, STANDARD_ZERO));
     public static final String MULTIPLE_URL = "search/categoryProduct";
+    /**
+     * 结果缓存的最大权重，即缓存的客户端名称、url与结果的总字符数(每项另加ENTRY_WEIGHT)，0表示不缓存
+     */
+    public static final String RESULT_CACHE_MAX_WEIGHT_PROPERTY = "chinagoods.standard.url.cache.max.weight";
+    private static final long DEFAULT_RESULT_CACHE_MAX_WEIGHT = 4L * 1024 * 1024;
+    /**
+     * 缓存项中对象头、引用等的估算开销，按字符计
+     */
+    private static final int ENTRY_WEIGHT = 64;
 
     public UDFStandardUrlFormat() {
     }
 
+    /**
+     * 使用已构建的规则，不查询mysql
+     */
+    UDFStandardUrlFormat(Map<String, String> paramKvMap, Map<String, String> staticUrlMap, SpecialUrlIndex menuUrlIndex,
+                         SpecialUrlIndex specialUrlIndex, StandardUrlRuleTable standardUrlRuleTable, long resultCacheMaxWeight) {
+        this.paramKvMap = paramKvMap;
+        this.staticUrlMap = staticUrlMap;
+        this.menuUrlIndex = menuUrlIndex;
+        this.specialUrlIndex = specialUrlIndex;
+        this.standardUrlRuleTable = standardUrlRuleTable;
+        this.resultCache = newResultCache(resultCacheMaxWeight);
+    }
+
+    private static Cache<ResultCacheKey, List<String>> newResultCache(long maxWeight) {
+        if (maxWeight <= 0) {
+            return null;
+        }
+        return CacheBuilder.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((ResultCacheKey key, List<String> result) -> {
+                    int weight = ENTRY_WEIGHT + key.platformType.length() + key.scUrl.length();
+                    for (String value : result) {
+                        weight += value.length();
+                    }
+                    return weight;
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return 结果缓存的命中、未命中及淘汰次数，不缓存时返回null
+     */
+    public CacheStats getResultCacheStats() {
+        return resultCache == null ? null : resultCache.stats();
+    }
+
     @Override
     public ObjectInspector initialize(ObjectInspector[] arguments) throws UDFArgumentException {
         if (arguments.length != ARG_COUNT) {
@@ -172,18 +228,26 @@ public class UDFStandardUrlFormat extends GenericUDF {
         }
         // 初始化标准化url规则，加载URL规则
         initRules();
+        resultCache = newResultCache(Long.getLong(RESULT_CACHE_MAX_WEIGHT_PROPERTY, DEFAULT_RESULT_CACHE_MAX_WEIGHT));
         return ObjectInspectorFactory.getStandardListObjectInspector(PrimitiveObjectInspectorFactory.javaStringObjectInspector);
     }
 
     @Override
-    public ArrayList<String> evaluate(DeferredObject[] arguments) throws HiveException {
+    public List<String> evaluate(DeferredObject[] arguments) throws HiveException {
         assert (arguments.length == ARG_COUNT);
-        // 初始化参数值
-        initParam();
-
-        String scUrl = converters[0].convert(arguments[1].get()).toString();
-        platformType = converters[0].convert(arguments[0].get()).toString();
+        String platformType = converters[0].convert(arguments[0].get()).toString();
+        String scUrl = converters[1].convert(arguments[1].get()).toString();
+        return format(platformType, scUrl);
+    }
 
+    /**
+     * 标准化url；只读取initRules构建的不可修改规则，不修改实例状态，可被多个线程同时调用
+     *
+     * @param platformType 客户端名称
+     * @param scUrl        原始连接请求地址
+     * @return 不可修改的结果：标准url、一级模块、二级模块、页面名称，未匹配时均为0000
+     */
+    public List<String> format(String platformType, String scUrl) throws HiveException {
         // 针对小程序，由于scUrl=pages/search/categoryProduct类型，添加url前缀进行匹配
         if (platformType.equals(MINI_PROGRAMS)) {
             scUrl = String.format("https://www.chinagoods.com/%s", scUrl);
@@ -191,12 +255,12 @@ public class UDFStandardUrlFormat extends GenericUDF {
 
         // 若访问地址为空或者客户端名称为空，则直接返回空结果
         if (StringUtils.isBlank(scUrl) || StringUtils.isBlank(platformType)) {
-            return resultPageNameList;
+            return DEFAULT_RESULT;
         }
 
         // 标准化url，将http转换成https
         if (scUrl.startsWith(HTTP_PREFIX)) {
-            scUrl = scUrl.replaceFirst(HTTP_PREFIX, HTTPS_PREFIX);
+            scUrl = HTTPS_PREFIX + scUrl.substring(HTTP_PREFIX.length());
         }
 
         if (scUrl.contains(HTTPS_PREFIX)) {
@@ -214,21 +278,42 @@ public class UDFStandardUrlFormat extends GenericUDF {
                 scUrl = scUrl.lastIndexOf(BACKSLASH) + 1 == scUrl.length() ? scUrl : scUrl + BACKSLASH;
             }
         }
+        if (resultCache == null) {
+            return cascade(platformType, scUrl);
+        }
+        // 日志中的url重复度高，相同(客户端名称, 标准化url)的结果只计算一次
+        ResultCacheKey key = new ResultCacheKey(platformType, scUrl);
+        List<String> result = resultCache.getIfPresent(key);
+        if (result == null) {
+            result = cascade(platformType, scUrl);
+            resultCache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * 依次进行菜单、特殊参数、正则规则匹配
+     *
+     * @param platformType 客户端名称
+     * @param scUrl        标准化后的原始连接请求地址
+     * @return 不可修改的结果
+     */
+    private List<String> cascade(String platformType, String scUrl) throws HiveException {
         // 处理菜单URL
-        final AtomicReference<String> scUrlRef = new AtomicReference<>(scUrl);
-        if (Stream.of(Z, T, M, S, C).anyMatch(e -> StringUtils.contains(scUrlRef.get(), e))) {
-            resultPageNameList = menuDealUrl(scUrl);
+        List<String> result;
+        if (containsAny(scUrl, MENU_KEYS)) {
+            result = menuDealUrl(scUrl);
         } else {
             // 处理特殊参数URL和部分静态原始地址
-            resultPageNameList = specialParamDealUrl(scUrl);
+            result = specialParamDealUrl(scUrl);
         }
 
         // 页面名称列表结果若为空，则进行正则判断处理
-        if (resultPageNameList.get(0).equals(STANDARD_ZERO)) {
+        if (result.get(0).equals(STANDARD_ZERO)) {
             // 正则处理页面原始url地址
-            resultPageNameList = regexDealUrl(scUrl);
+            result = regexDealUrl(platformType, scUrl);
         }
-        return resultPageNameList;
+        return result;
     }
 
     /**
@@ -237,32 +322,28 @@ public class UDFStandardUrlFormat extends GenericUDF {
      * @throws UDFArgumentException 参数异常
      */
     public void initRules() throws UDFArgumentException {
-        // 配置信息
-        MysqlUtil mysqlUtil = new MysqlUtil(DB_URL, DB_USER, DB_PASSWORD);
-        try {
-            paramKvMap = mysqlUtil.getMap(MENU_MAPPING_SQL);
-            menuUrlList = mysqlUtil.getLists(String.format(STANDARD_SPECIAL_URL_SQL, ONE));
-            mysqlUtil.getLists(STANDARD_URL_RULE_SQL).forEach(rules -> {
-                platformType = rules.get(0);
-                String h5Key = rules.get(1).equals(FLAG_TRUE) ? H5 : EMPTY;
-                String fullPlatformType = String.format("%s%s", platformType, h5Key);
-                // 若allRuleMap中fullPlatformType为为空，则初始化填充空ArrayList
-                allStandardRuleUrlPlatform2EntityMap.putIfAbsent(fullPlatformType, new ArrayList<>());
-                allStandardRuleUrlPlatform2EntityMap.get(fullPlatformType).add(rules);
-            });
-
-            staticUrlMap = mysqlUtil.getMap(STATIC_URL_SQL);
+        // 配置信息，优先使用本地快照，同一JVM内只加载一次；map在下面会被修改，需要复制，构建完成后设为不可修改
+        close();
+        dictionaries = new ArrayList<>();
+        try (DictionaryLoader loader = new DictionaryLoader(DB_URL, DB_USER, DB_PASSWORD)) {
+            Map<String, String> paramKv = new HashMap<>(acquire(loader, MENU_MAPPING_SQL).getMap());
+            menuUrlIndex = acquire(loader, String.format(STANDARD_SPECIAL_URL_SQL, ONE)).getView(MENU_URL_INDEX_VIEW, rows -> new SpecialUrlIndex(rows, SpecialUrlIndex.URL_COLUMN));
+            // 正则只在构建规则表时编译一次
+            standardUrlRuleTable = acquire(loader, STANDARD_URL_RULE_SQL).getView(STANDARD_URL_RULE_TABLE_VIEW, StandardUrlRuleTable::build);
+
+            Map<String, String> staticUrls = new HashMap<>(acquire(loader, STATIC_URL_SQL).getMap());
             // 特殊url动态生成
-            specialUrlList = mysqlUtil.getLists(String.format(STANDARD_SPECIAL_URL_SQL, TWO));
-            for (List<String> urlList : specialUrlList) {
+            DictionaryRegistry.Dictionary specialUrlDictionary = acquire(loader, String.format(STANDARD_SPECIAL_URL_SQL, TWO));
+            specialUrlIndex = specialUrlDictionary.getView(SPECIAL_URL_INDEX_VIEW, rows -> new SpecialUrlIndex(rows, SpecialUrlIndex.FIXED_IDENTITY_COLUMN));
+            for (List<String> urlList : specialUrlDictionary.getRows()) {
                 // 固定参数
                 String fixedParam = urlList.get(2);
                 //参数对应的枚举key前缀
                 String mappingKey = urlList.get(3);
-                unit = urlList.get(4);
-                subUnit = urlList.get(5);
+                String unit = urlList.get(4);
+                String subUnit = urlList.get(5);
                 String paramType = urlList.get(7);
-                paramKvMap.forEach((key, value) -> {
+                paramKv.forEach((key, value) -> {
                     String url = urlList.get(0);
                     String paramKeyPre = key.split(KV_SEPARATOR)[0];
                     String paramValue = key.split(KV_SEPARATOR)[1];
@@ -275,17 +356,20 @@ public class UDFStandardUrlFormat extends GenericUDF {
                             url = url.replace(fixedParam, fixedParam.replace(fixedParam, paramValue));
                         }
                         if (!url.contains(STANDARD_ZERO) && !url.contains(FIXED_PARAM)) {
-                            staticUrlMap.put(url, String.join(SEPARATOR, unit, subUnit, value));
+                            staticUrls.put(url, String.join(SEPARATOR, unit, subUnit, value));
                         }
                     } else if (paramType.equals(TWO)) {
                         // 特殊url类型，贸易咨询中心等
-                        staticUrlMap.put(paramValue, value);
+                        staticUrls.put(paramValue, value);
                     }
                 });
             }
             //统一转小写
-            toLowerMap(staticUrlMap);
-            toLowerMap(paramKvMap);
+            toLowerMap(staticUrls);
+            toLowerMap(paramKv);
+            // 构建完成后不再修改，evaluate可被多个线程同时调用
+            paramKvMap = Collections.unmodifiableMap(paramKv);
+            staticUrlMap = Collections.unmodifiableMap(staticUrls);
         } catch (Exception e) {
             logger.error("Failed to query the standard rule. Procedure, the error details are: ", e);
             throw new UDFArgumentException(String.format("Failed to query the standard rule. Procedure, the error details are: %s", e));
@@ -298,79 +382,78 @@ public class UDFStandardUrlFormat extends GenericUDF {
      * @param scUrl 原始连接请求地址
      * @return 处理后的菜单URL， 结果对象
      */
-    public ArrayList<String> menuDealUrl(String scUrl) throws HiveException {
+    public List<String> menuDealUrl(String scUrl) throws HiveException {
         // 菜单固定参数
         try {
-            // 遍历菜单URL
-            // TODO 后续避免遍历，采用性能更高方式，达到O(1)方式获取
-            for (List<String> ls : menuUrlList) {
+            // 第一条url是scUrl子串的菜单规则
+            int ruleIndex = menuUrlIndex.first(scUrl);
+            if (ruleIndex >= 0) {
                 // 特殊url参数列表: url,fixed_identity,fixed_param,mapping_key,unit,sub_unit,url_param_keys,param_type,page_link_name
+                List<String> ls = menuUrlIndex.getRule(ruleIndex);
                 //当URL是菜单路径
                 String specialUrlPath = ls.get(0);
-                if (StringUtils.contains(scUrl, specialUrlPath)) {
-                    unit = ls.get(4);
-                    subUnit = ls.get(5);
-                    String pageLinkName = ls.get(8);
-                    //当URL包含多个key
-                    int indexStart = scUrl.lastIndexOf(specialUrlPath) + specialUrlPath.length();
-                    int indexEnd = scUrl.length();
-                    String menuUrlParam = scUrl.substring(indexStart, indexEnd).toLowerCase();
-                    if (menuUrlParam.contains(SEPARATOR)) {
-                        // 固定参数
-                        List<String> nameList = new ArrayList<>();
-                        // search搜索存在搜索后筛选的情况，给固定格式
-                        if (menuUrlParam.contains(BACKSLASH)) {
-                            nameList.add(menuUrlParam.substring(0, menuUrlParam.indexOf(BACKSLASH)));
-                            menuUrlParam = menuUrlParam.substring(menuUrlParam.indexOf(BACKSLASH) + 1);
+                String unit = ls.get(4);
+                String subUnit = ls.get(5);
+                String pageLinkName = ls.get(8);
+                //当URL包含多个key
+                int indexStart = scUrl.lastIndexOf(specialUrlPath) + specialUrlPath.length();
+                int indexEnd = scUrl.length();
+                String menuUrlParam = scUrl.substring(indexStart, indexEnd).toLowerCase();
+                String pageName;
+                if (menuUrlParam.contains(SEPARATOR)) {
+                    // 固定参数
+                    List<String> nameList = new ArrayList<>();
+                    // search搜索存在搜索后筛选的情况，给固定格式
+                    if (menuUrlParam.contains(BACKSLASH)) {
+                        nameList.add(menuUrlParam.substring(0, menuUrlParam.indexOf(BACKSLASH)));
+                        menuUrlParam = menuUrlParam.substring(menuUrlParam.indexOf(BACKSLASH) + 1);
+                    }
+                    String[] keysArr = menuUrlParam.split(SEPARATOR);
+                    for (String specialParam : keysArr) {
+                        String upSpecialParam = specialParam.toUpperCase();
+                        // 若upKey中包含EY、VL、SF、LT、S、IMT、P、I、HR、EP字符串，则跳过，此为搜索类型key
+                        if (containsAny(upSpecialParam, SEARCH_KEYS)) {
+                            continue;
                         }
-                        String[] keysArr = menuUrlParam.split(SEPARATOR);
-                        for (String specialParam : keysArr) {
-                            String upSpecialParam = specialParam.toUpperCase();
-                            // 若upKey中包含EY、VL、SF、LT、S、IMT、P、I、HR、EP字符串，则跳过，此为搜索类型key
-                            if (Stream.of(EY, VL, SF, LT, S, IMT, P, I, HR, EP).anyMatch(e -> StringUtils.contains(upSpecialParam, e))) {
-                                continue;
+                        boolean isAddNameListFlag = false;
+                        if ((upSpecialParam.contains(C) || upSpecialParam.contains(M)) && scUrl.contains(MULTIPLE_URL)) {
+                            // upSpecialParam举例为T--446
+                            String mOrCKey = upSpecialParam.split(KV_SEPARATOR)[0];
+                            String value = EMPTY;
+                            if (upSpecialParam.contains(C)) {
+                                value = upSpecialParam.replaceFirst(C, EMPTY).toLowerCase();
+                            } else if (upSpecialParam.contains(M)) {
+                                value = upSpecialParam.replaceFirst(M, EMPTY).toLowerCase();
                             }
-                            boolean isAddNameListFlag = false;
-                            if ((upSpecialParam.contains(C) || upSpecialParam.contains(M)) && scUrl.contains(MULTIPLE_URL)) {
-                                // upSpecialParam举例为T--446
-                                String mOrCKey = upSpecialParam.split(KV_SEPARATOR)[0];
-                                String value = EMPTY;
-                                if (upSpecialParam.contains(C)) {
-                                    value = upSpecialParam.replaceFirst(C, EMPTY).toLowerCase();
-                                } else if (upSpecialParam.contains(M)) {
-                                    value = upSpecialParam.replaceFirst(M, EMPTY).toLowerCase();
-                                }
-                                if (value.contains(KV_VALUE_SEPARATOR)) {
-                                    isAddNameListFlag = true;
-                                    String[] valueArr = value.split(KV_VALUE_SEPARATOR);
-                                    String specialParamKeyTpl = "%s" + KV_SEPARATOR + "%s";
-                                    for (String v : valueArr) {
-                                        String res = paramKvMap.get(String.format(specialParamKeyTpl, mOrCKey, v).toLowerCase());
-                                        if (StringUtils.isNotBlank(res)) {
-                                            nameList.add(res);
-                                        }
+                            if (value.contains(KV_VALUE_SEPARATOR)) {
+                                isAddNameListFlag = true;
+                                String[] valueArr = value.split(KV_VALUE_SEPARATOR);
+                                String specialParamKeyTpl = "%s" + KV_SEPARATOR + "%s";
+                                for (String v : valueArr) {
+                                    String res = paramKvMap.get(String.format(specialParamKeyTpl, mOrCKey, v).toLowerCase());
+                                    if (StringUtils.isNotBlank(res)) {
+                                        nameList.add(res);
                                     }
                                 }
                             }
+                        }
 
-                            if (!isAddNameListFlag) {
-                                nameList.add(paramKvMap.get(specialParam));
-                            }
+                        if (!isAddNameListFlag) {
+                            nameList.add(paramKvMap.get(specialParam));
                         }
-                        pageName = String.join(SEPARATOR, nameList);
-                    } else {
-                        pageName = paramKvMap.get(menuUrlParam);
                     }
-
-                    setResultListValue(scUrl, unit, subUnit, pageName, pageLinkName);
-                    break;
+                    pageName = String.join(SEPARATOR, nameList);
+                } else {
+                    pageName = paramKvMap.get(menuUrlParam);
                 }
+
+                return result(scUrl, unit, subUnit, pageName, pageLinkName);
             }
         } catch (Exception e) {
             logger.error("Menu URL handling error,url is {},error is ", scUrl, e);
             throw new HiveException(String.format("Menu URL handling error, url is %s,error is ", scUrl), e);
         }
-        return resultPageNameList;
+        return DEFAULT_RESULT;
     }
 
     /**
@@ -379,112 +462,83 @@ public class UDFStandardUrlFormat extends GenericUDF {
      * @param scUrl 原始连接请求地址
      * @return 处理后的菜单URL， 结果对象
      */
-    public ArrayList<String> specialParamDealUrl(String scUrl) throws HiveException {
+    public List<String> specialParamDealUrl(String scUrl) throws HiveException {
         try {
             // 区分是否特殊URL
             // 特殊url参数列表: url,fixed_identity,fixed_param,mapping_key,unit,sub_unit,url_param_keys,param_type,page_link_name
-            boolean isSpecial = specialUrlList.stream().anyMatch(ls -> scUrl.contains(ls.get(1)));
+            boolean isSpecial = specialUrlIndex.containsAny(scUrl);
             // 非正则url处理，处理静态URL地址
             if (!isSpecial) {
                 String scUrlPath = scUrl;
                 if (scUrl.contains(CONNECTOR_SEPARATOR)) {
                     scUrlPath = scUrl.substring(0, scUrl.indexOf(CONNECTOR_SEPARATOR));
                 }
-                staticDealUrl(scUrlPath, null);
-                return resultPageNameList;
+                return staticDealUrl(scUrlPath, null);
             }
 
-            // 特殊url处理
-            for (List<String> ls : specialUrlList) {
+            // 特殊url处理，只遍历fixed_identity是scUrl子串且url包含请求域名的规则
+            UrlTokenizer tokenizer = new UrlTokenizer().reset(scUrl);
+            String host = tokenizer.isSimpleHttpUrl() ? tokenizer.host() : new URL(scUrl).getHost();
+            BitSet candidates = specialUrlIndex.matches(scUrl, host);
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                List<String> ls = specialUrlIndex.getRule(i);
                 // 特殊url地址中含域名，eg. https://h5.chinagoods.com/venue/?fixed_param
                 String url = ls.get(0);
-                String fixedIdentity = ls.get(1);
                 String urlParamKeys = ls.get(6);
                 String paramType = ls.get(7);
                 String pageLinkName = ls.get(8);
 
-                URL urls = new URL(scUrl);
-                String host = urls.getHost();
-                if (scUrl.contains(fixedIdentity) && url.contains(host)) {
-                    standardUrl = scUrl;
-                    int scUrlConnectorSeparatorPos = scUrl.length();
-                    if (scUrl.indexOf(CONNECTOR_SEPARATOR) > 0) {
-                        scUrlConnectorSeparatorPos = scUrl.indexOf(CONNECTOR_SEPARATOR);
+                String standardUrl = scUrl;
+                int scUrlConnectorSeparatorPos = scUrl.length();
+                if (scUrl.indexOf(CONNECTOR_SEPARATOR) > 0) {
+                    scUrlConnectorSeparatorPos = scUrl.indexOf(CONNECTOR_SEPARATOR);
+                }
+                // param_type 1: 参数 2: url
+                if (paramType.equals(ONE)) {
+                    // url中请求参数不为空，进行请求参数解析,获取请求参数对应的值
+                    if (StringUtils.isNotBlank(urlParamKeys)) {
+                        String[] urlParamKeysArray = urlParamKeys.split(COMMA);
+                        // 获取urlPath和参数列表
+                        List<String> urlPathAndParams = getUrlPathAndParams(scUrl, urlParamKeysArray);
+                        standardUrl = String.join(CONNECTOR_SEPARATOR, urlPathAndParams.get(0), String.join(PARAM_SEPARATOR, urlPathAndParams.subList(1, urlPathAndParams.size())));
+                    } else if (!url.contains(CONNECTOR_SEPARATOR)) {
+                        standardUrl = scUrl.substring(0, scUrlConnectorSeparatorPos);
                     }
-                    // param_type 1: 参数 2: url
-                    if (paramType.equals(ONE)) {
-                        // url中请求参数不为空，进行请求参数解析,获取请求参数对应的值
-                        if (StringUtils.isNotBlank(urlParamKeys)) {
-                            String[] urlParamKeysArray = urlParamKeys.split(COMMA);
-                            // 获取urlPath和参数列表
-                            List<String> urlPathAndParams = getUrlPathAndParams(scUrl, urlParamKeysArray);
-                            standardUrl = String.join(CONNECTOR_SEPARATOR, urlPathAndParams.get(0), String.join(PARAM_SEPARATOR, urlPathAndParams.subList(1, urlPathAndParams.size())));
-                        } else if (!url.contains(CONNECTOR_SEPARATOR)) {
-                            standardUrl = scUrl.substring(0, scUrlConnectorSeparatorPos);
-                        }
-                    } else if (paramType.equals(TWO)) {
-                        if (!url.contains(CONNECTOR_SEPARATOR)) {
-                            standardUrl = scUrl.substring(0, scUrlConnectorSeparatorPos);
-                        }
+                } else if (paramType.equals(TWO)) {
+                    if (!url.contains(CONNECTOR_SEPARATOR)) {
+                        standardUrl = scUrl.substring(0, scUrlConnectorSeparatorPos);
                     }
+                }
 
-                    if (StringUtils.isNotBlank(standardUrl)) {
-                        // 静态url获取三级名称
-                        staticDealUrl(standardUrl, pageLinkName);
-                        return resultPageNameList;
-                    }
+                if (StringUtils.isNotBlank(standardUrl)) {
+                    // 静态url获取三级名称
+                    return staticDealUrl(standardUrl, pageLinkName);
                 }
             }
         } catch (Exception e) {
             logger.error("Error handling special parameter scUrl, scUrl is {}, error is ", scUrl, e);
             throw new HiveException("Error handling special parameter scUrl, scUrl is " + scUrl + ",error is ", e);
         }
-        return resultPageNameList;
+        return DEFAULT_RESULT;
     }
 
     /**
      * 处理正则匹配的URL
      *
-     * @param scUrl 原始连接请求地址
+     * @param platformType 客户端名称
+     * @param scUrl        原始连接请求地址
      * @return 处理后的菜单URL， 结果对象
      */
-    public ArrayList<String> regexDealUrl(String scUrl) throws HiveException {
+    public List<String> regexDealUrl(String platformType, String scUrl) throws HiveException {
         String h5Key = scUrl.startsWith(HTTPS_H5_PREFIX) ? H5 : EMPTY;
         String fullPlatformType = String.format("%s%s", platformType, h5Key);
         try {
-            List<List<String>> platFormRules = allStandardRuleUrlPlatform2EntityMap.get(fullPlatformType);
-            if (platFormRules != null) {
-                for (List<String> rules : platFormRules) {
-                    String newScUrl = scUrl;
-                    standardUrl = rules.get(2);
-                    regex = rules.get(3);
-                    unit = rules.get(4);
-                    subUnit = rules.get(5);
-                    pageName = rules.get(6);
-                    params = rules.get(7);
-                    // 多正则匹配
-                    if (StringUtils.isNotBlank(regex)) {
-                        String[] regexArray = regex.split(REGEX_OR_PARAM_SEPARATOR);
-                        String[] ruleParamsArray = params.split(REGEX_OR_PARAM_SEPARATOR);
-                        String indexRegex, indexRegexParam;
-                        for (int i = 0; i < regexArray.length; i++) {
-                            indexRegex = regexArray[i];
-                            indexRegexParam = ruleParamsArray[i];
-                            newScUrl = newScUrl.replaceAll(indexRegex, indexRegexParam.replace(PARAM_NULL, EMPTY));
-                        }
-                    }
-                    newScUrl = newScUrl.lastIndexOf(BACKSLASH) + 1 == newScUrl.length() ? newScUrl : newScUrl + BACKSLASH;
-                    if (newScUrl.equals(standardUrl)) {
-                        setResultListValue(standardUrl, unit, subUnit, pageName, null);
-                        return resultPageNameList;
-                    }
-                }
-            }
+            StandardUrlRuleTable.Rule rule = standardUrlRuleTable.match(fullPlatformType, scUrl);
+            return rule == null ? DEFAULT_RESULT : rule.getResult();
         } catch (Exception e) {
             logger.error("Regular expression rule URL processing error,url is {},error is ", scUrl, e);
             throw new HiveException("Regular expression rule URL processing error ,url is " + scUrl + ",error is ", e);
         }
-        return resultPageNameList;
     }
 
     /**
@@ -492,50 +546,42 @@ public class UDFStandardUrlFormat extends GenericUDF {
      *
      * @param standardUrl  标准url
      * @param pageLinkName 页面链接名称
+     * @return 结果对象，静态url不存在时为默认结果
      */
-    public void staticDealUrl(String standardUrl, String pageLinkName) {
+    public List<String> staticDealUrl(String standardUrl, String pageLinkName) {
         String pageSeparatorName = staticUrlMap.get(standardUrl.toLowerCase());
         if (!StringUtils.isBlank(pageSeparatorName)) {
             String[] pageNameArr = pageSeparatorName.split(SEPARATOR);
-            setResultListValue(standardUrl, pageNameArr[0], pageNameArr[1], pageNameArr[2], pageLinkName);
+            return result(standardUrl, pageNameArr[0], pageNameArr[1], pageNameArr[2], pageLinkName);
         }
+        return DEFAULT_RESULT;
     }
 
     /**
-     * 初始化变量
-     */
-    public void initParam() {
-        platformType = null;
-        standardUrl = null;
-        unit = null;
-        subUnit = null;
-        pageName = null;
-        regex = null;
-        params = null;
-        resultPageNameList.clear();
-        resultPageNameList.add(STANDARD_ZERO);
-        resultPageNameList.add(STANDARD_ZERO);
-        resultPageNameList.add(STANDARD_ZERO);
-        resultPageNameList.add(STANDARD_ZERO);
-    }
-
-    /**
-     * 设置返回结果
+     * 生成返回结果
      *
      * @param standardUrl  标准url
      * @param unit         一级模块
      * @param subUnit      二级模块
      * @param pageName     页面名称
      * @param pageLinkName 页面链接名
+     * @return 不可修改的结果，任一字段为空时为默认结果
      */
-    public void setResultListValue(String standardUrl, String unit, String subUnit, String pageName, String pageLinkName) {
+    static List<String> result(String standardUrl, String unit, String subUnit, String pageName, String pageLinkName) {
         if (StringUtils.isNotBlank(standardUrl) && StringUtils.isNotBlank(unit) && StringUtils.isNotBlank(subUnit)
                 && StringUtils.isNotBlank(pageName)) {
-            resultPageNameList.set(0, standardUrl);
-            resultPageNameList.set(1, unit);
-            resultPageNameList.set(2, subUnit);
-            resultPageNameList.set(3, pageName + (pageLinkName == null ? "" : pageLinkName));
+            return Collections.unmodifiableList(Arrays.asList(standardUrl, unit, subUnit, pageName + (pageLinkName == null ? "" : pageLinkName)));
         }
+        return DEFAULT_RESULT;
+    }
+
+    private static boolean containsAny(String value, String[] keys) {
+        for (String key : keys) {
+            if (value.contains(key)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -572,16 +618,8 @@ public class UDFStandardUrlFormat extends GenericUDF {
             scUrlPath = scUrl.substring(0, posIndex);
             urlPathAndParams.add(scUrlPath);
             for (String key : keyArr) {
-                Pattern pattern = Pattern.compile(key + "=([^&]*)");
-                Matcher matcher = pattern.matcher(scUrl);
-                if (matcher.find()) {
-                    // 提取关键字和关键字值
-                    String keyVal = matcher.group(0);
-                    String[] keyValArr = keyVal.split(EQ);
-                    String value = EMPTY;
-                    if (keyValArr.length == 2) {
-                        value = keyValArr[1].replace(PARAM_SEPARATOR, EMPTY);
-                    }
+                String value = paramValue(scUrl, key);
+                if (value != null) {
                     urlPathAndParams.add(String.format("%s=%s", key, value));
                 }
             }
@@ -589,6 +627,93 @@ public class UDFStandardUrlFormat extends GenericUDF {
         return urlPathAndParams;
     }
 
+    /**
+     * 第一个key=之后到&之前的值，按=切分后不是两段时为空串，与正则key=([^&]*)的结果相同；key含正则元字符时仍按正则匹配
+     *
+     * @return 不存在key=时返回null
+     */
+    private static String paramValue(String scUrl, String key) {
+        String keyVal;
+        if (StringUtils.containsAny(key, REGEX_META_CHARS)) {
+            Matcher matcher = Pattern.compile(key + "=([^&]*)").matcher(scUrl);
+            if (!matcher.find()) {
+                return null;
+            }
+            keyVal = matcher.group(0);
+        } else {
+            int start = scUrl.indexOf(key + EQ);
+            if (start == -1) {
+                return null;
+            }
+            int end = scUrl.indexOf(PARAM_SEPARATOR, start + key.length() + 1);
+            keyVal = scUrl.substring(start, end == -1 ? scUrl.length() : end);
+        }
+        String[] keyValArr = keyVal.split(EQ);
+        return keyValArr.length == 2 ? keyValArr[1] : EMPTY;
+    }
+
+    private DictionaryRegistry.Dictionary acquire(DictionaryLoader loader, String sql) throws SQLException {
+        DictionaryRegistry.Dictionary dictionary = DictionaryRegistry.acquire(loader, sql);
+        dictionaries.add(dictionary);
+        return dictionary;
+    }
+
+    @Override
+    public void close() {
+        if (resultCache != null && resultCache.stats().requestCount() > 0) {
+            logger.info("standard_url_format result cache size={}, {}", resultCache.size(), resultCache.stats());
+        }
+        if (dictionaries == null) {
+            return;
+        }
+        for (DictionaryRegistry.Dictionary dictionary : dictionaries) {
+            dictionary.close();
+        }
+        dictionaries = null;
+    }
+
+    /**
+     * 导出standard_url_format使用的mysql字典快照，见DictionaryLoader
+     */
+    public static void exportDictionarySnapshots(Path dir) throws SQLException, IOException {
+        try (DictionaryLoader loader = new DictionaryLoader(DB_URL, DB_USER, DB_PASSWORD)) {
+            loader.export(MENU_MAPPING_SQL, dir);
+            loader.export(String.format(STANDARD_SPECIAL_URL_SQL, ONE), dir);
+            loader.export(STANDARD_URL_RULE_SQL, dir);
+            loader.export(STATIC_URL_SQL, dir);
+            loader.export(String.format(STANDARD_SPECIAL_URL_SQL, TWO), dir);
+        }
+    }
+
+    private static final class ResultCacheKey {
+        private final String platformType;
+        private final String scUrl;
+        private final int hash;
+
+        private ResultCacheKey(String platformType, String scUrl) {
+            this.platformType = platformType;
+            this.scUrl = scUrl;
+            this.hash = 31 * platformType.hashCode() + scUrl.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ResultCacheKey)) {
+                return false;
+            }
+            ResultCacheKey key = (ResultCacheKey) o;
+            return hash == key.hash && scUrl.equals(key.scUrl) && platformType.equals(key.platformType);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
     @Override
     public String getDisplayString(String[] strings) {
         assert (strings.length == ARG_COUNT);
@@ -598,7 +723,7 @@ public class UDFStandardUrlFormat extends GenericUDF {
     public static void main(String[] args) throws HiveException {
         String url = "https://www.chinagoods.com/login?return_url=https://www.chinagoods.com/search/categoryProduct/T--401---C--402---S--1---P--3---I--20";
 //        String url = "https://h5.chinagoods.com/enterYiwu/venue/";
-        ArrayList<String> retArr;
+        List<String> retArr;
         try (UDFStandardUrlFormat urlFormat = new UDFStandardUrlFormat()) {
             DeferredObject[] deferredObjects = new DeferredObject[2];
             // 平台类型、sc_url
@@ -609,8 +734,6 @@ public class UDFStandardUrlFormat extends GenericUDF {
             inspectorArr[1] = PrimitiveObjectInspectorFactory.javaStringObjectInspector;
             urlFormat.initialize(inspectorArr);
             retArr = urlFormat.evaluate(deferredObjects);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
         }
         System.out.println(retArr);
     }
@@ -0,0 +1,180 @@
+package com.chinagoods.bigdata.functions.utils;
+
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 加载mysql字典，查询方法与MysqlUtil相同，优先使用DictionarySnapshot快照，只有快照不存在或过期时才查询mysql
+ * <p>
+ * 快照按以下顺序查找：
+ * <ol>
+ * <li>任务工作目录，即通过add file或分布式缓存分发到本地的文件</li>
+ * <li>系统属性chinagoods.dictionary.snapshot.dir指定的目录，可以是本地路径或hdfs://路径</li>
+ * </ol>
+ * 快照超过chinagoods.dictionary.snapshot.max.age.hours(默认24)小时视为过期；查询mysql失败时仍使用过期的快照
+ * <p>
+ * 导出快照：java -cp ... DictionaryLoader &lt;输出目录&gt; &lt;UDF类名&gt;...，调用各UDF的静态方法exportDictionarySnapshots(Path)
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public final class DictionaryLoader implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(DictionaryLoader.class);
+
+    public static final String SNAPSHOT_DIR_PROPERTY = "chinagoods.dictionary.snapshot.dir";
+    public static final String SNAPSHOT_MAX_AGE_HOURS_PROPERTY = "chinagoods.dictionary.snapshot.max.age.hours";
+    private static final long DEFAULT_SNAPSHOT_MAX_AGE_HOURS = 24;
+
+    private final String dbUrl;
+    private final String dbUser;
+    private final String dbPassword;
+    private final String snapshotDir;
+    private final long snapshotMaxAgeMillis;
+    /**
+     * 只有需要查询mysql时才建立连接
+     */
+    private MysqlUtil mysqlUtil;
+
+    public DictionaryLoader(String dbUrl, String dbUser, String dbPassword) {
+        this(dbUrl, dbUser, dbPassword, System.getProperty(SNAPSHOT_DIR_PROPERTY),
+                TimeUnit.HOURS.toMillis(Long.getLong(SNAPSHOT_MAX_AGE_HOURS_PROPERTY, DEFAULT_SNAPSHOT_MAX_AGE_HOURS)));
+    }
+
+    DictionaryLoader(String dbUrl, String dbUser, String dbPassword, String snapshotDir, long snapshotMaxAgeMillis) {
+        this.dbUrl = dbUrl;
+        this.dbUser = dbUser;
+        this.dbPassword = dbPassword;
+        this.snapshotDir = snapshotDir;
+        this.snapshotMaxAgeMillis = snapshotMaxAgeMillis;
+    }
+
+    /**
+     * @return 查询结果的每一行，不可修改
+     * @throws SQLException 没有可用的快照且查询mysql失败
+     */
+    public List<List<String>> getLists(String sql) throws SQLException {
+        return load(sql).getRows();
+    }
+
+    /**
+     * @return 快照，或由mysql查询结果生成、以查询时间为版本的快照
+     * @throws SQLException 没有可用的快照且查询mysql失败
+     */
+    public DictionarySnapshot load(String sql) throws SQLException {
+        String fileName = DictionarySnapshot.fileName(dbUrl, sql);
+        DictionarySnapshot snapshot = readSnapshot(new Path(new File(fileName).getAbsoluteFile().toURI()), sql);
+        if (snapshot == null && snapshotDir != null) {
+            snapshot = readSnapshot(new Path(snapshotDir, fileName), sql);
+        }
+        if (snapshot != null && System.currentTimeMillis() - snapshot.getVersion() <= snapshotMaxAgeMillis) {
+            return snapshot;
+        }
+
+        try {
+            return new DictionarySnapshot(dbUrl, sql, System.currentTimeMillis(), query(sql));
+        } catch (SQLException e) {
+            if (snapshot == null) {
+                throw e;
+            }
+            logger.warn("Failed to query mysql, use the stale dictionary snapshot {} of version {}", fileName, snapshot.getVersion(), e);
+            return snapshot;
+        }
+    }
+
+    /**
+     * @return 所有列的值，同MysqlUtil.getKeywords
+     */
+    public Set<String> getSet(String sql) throws SQLException {
+        Set<String> set = new HashSet<>();
+        for (List<String> row : getLists(sql)) {
+            set.addAll(row);
+        }
+        return set;
+    }
+
+    /**
+     * @return 第一列到第二列的映射，同MysqlUtil.getMap
+     */
+    public Map<String, String> getMap(String sql) throws SQLException {
+        Map<String, String> map = new HashMap<>();
+        for (List<String> row : getLists(sql)) {
+            map.put(row.get(0), row.get(1));
+        }
+        return map;
+    }
+
+    /**
+     * @return 快照不存在、无法读取或不是同一数据源与sql的快照时返回null
+     */
+    private DictionarySnapshot readSnapshot(Path path, String sql) {
+        try {
+            DictionarySnapshot snapshot = DictionarySnapshot.read(path);
+            if (snapshot == null) {
+                return null;
+            }
+            if (!dbUrl.equals(snapshot.getSource()) || !sql.equals(snapshot.getQuery())) {
+                logger.warn("Dictionary snapshot {} does not match the query, ignore it", path);
+                return null;
+            }
+            logger.info("load dictionary snapshot {}, version={}, rows={}", path, snapshot.getVersion(), snapshot.getRows().size());
+            return snapshot;
+        } catch (IOException e) {
+            logger.warn("Failed to read dictionary snapshot {}, ignore it", path, e);
+            return null;
+        }
+    }
+
+    private List<List<String>> query(String sql) throws SQLException {
+        if (mysqlUtil == null) {
+            mysqlUtil = new MysqlUtil(dbUrl, dbUser, dbPassword);
+        }
+        return mysqlUtil.getLists(sql);
+    }
+
+    /**
+     * 查询mysql并导出快照
+     */
+    public void export(String sql, Path dir) throws SQLException, IOException {
+        DictionarySnapshot snapshot = new DictionarySnapshot(dbUrl, sql, System.currentTimeMillis(), query(sql));
+        Path path = new Path(dir, DictionarySnapshot.fileName(dbUrl, sql));
+        snapshot.write(path);
+        logger.info("export dictionary snapshot {}, rows={}", path, snapshot.getRows().size());
+    }
+
+    /**
+     * @return 数据源，即jdbc url
+     */
+    public String getSource() {
+        return dbUrl;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (mysqlUtil != null) {
+            mysqlUtil.close();
+            mysqlUtil = null;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: DictionaryLoader <output dir> <udf class>...");
+            System.exit(1);
+        }
+        Path dir = new Path(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            Class.forName(args[i]).getMethod("exportDictionarySnapshots", Path.class).invoke(null, dir);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.chinagoods.bigdata.functions.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * JVM内共享的mysql字典，按(数据源, sql, 版本)登记，同一字典只加载一次，所有UDF实例共享同一份不可修改的数据
+ * <p>
+ * acquire返回的Dictionary需要在UDF的close中关闭，最后一个使用者关闭后释放字典及由其构建的视图；
+ * 加载超过chinagoods.dictionary.snapshot.max.age.hours(默认24)小时的字典不再分配给新的使用者，重新加载后版本不变则继续共享
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public final class DictionaryRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(DictionaryRegistry.class);
+
+    private static final long RELOAD_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(
+            Long.getLong(DictionaryLoader.SNAPSHOT_MAX_AGE_HOURS_PROPERTY, 24));
+    private static final String SET_VIEW = "set";
+    private static final String MAP_VIEW = "map";
+
+    /**
+     * 以下两个map均由DictionaryRegistry.class同步
+     */
+    private static final Map<Key, Entry> ENTRIES = new HashMap<>();
+    /**
+     * (数据源, sql)最近加载的字典
+     */
+    private static final Map<List<String>, Entry> LATEST_ENTRIES = new HashMap<>();
+
+    private DictionaryRegistry() {
+    }
+
+    /**
+     * 获取共享的字典，必要时使用loader加载；加载在锁内进行，同一字典不会被并发加载多次
+     *
+     * @throws SQLException 没有可用的快照且查询mysql失败
+     */
+    public static Dictionary acquire(DictionaryLoader loader, String sql) throws SQLException {
+        return acquire(loader.getSource(), sql, loader::load, RELOAD_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param reloadIntervalMillis 距上次加载超过该时间后重新加载，版本不变时继续共享并重新计时
+     */
+    static synchronized Dictionary acquire(String source, String sql, SnapshotLoader loader, long reloadIntervalMillis)
+            throws SQLException {
+        List<String> sourceQuery = Arrays.asList(source, sql);
+        Entry entry = LATEST_ENTRIES.get(sourceQuery);
+        long now = System.currentTimeMillis();
+        if (entry == null || now - entry.checkedAt > reloadIntervalMillis) {
+            DictionarySnapshot snapshot = loader.load(sql);
+            Key key = new Key(snapshot.getSource(), snapshot.getQuery(), snapshot.getVersion());
+            entry = ENTRIES.get(key);
+            if (entry == null) {
+                entry = new Entry(key, snapshot.getRows());
+                ENTRIES.put(key, entry);
+                logger.info("register dictionary {}, rows={}", key, snapshot.getRows().size());
+            }
+            // 版本未变(包括mysql不可用时沿用旧快照)时同样重新计时，避免之后每次acquire都查询mysql
+            entry.checkedAt = now;
+            LATEST_ENTRIES.put(sourceQuery, entry);
+        }
+        entry.references++;
+        return new Dictionary(entry);
+    }
+
+    /**
+     * 获取共享的字典，需要查询mysql时临时建立连接
+     */
+    public static Dictionary acquire(String dbUrl, String dbUser, String dbPassword, String sql) throws SQLException {
+        try (DictionaryLoader loader = new DictionaryLoader(dbUrl, dbUser, dbPassword)) {
+            return acquire(loader, sql);
+        }
+    }
+
+    private static synchronized void release(Entry entry) {
+        if (--entry.references > 0) {
+            return;
+        }
+        ENTRIES.remove(entry.key);
+        List<String> sourceQuery = Arrays.asList(entry.key.source, entry.key.query);
+        if (LATEST_ENTRIES.get(sourceQuery) == entry) {
+            LATEST_ENTRIES.remove(sourceQuery);
+        }
+        logger.info("release dictionary {}", entry.key);
+    }
+
+    /**
+     * @return 仍有使用者的字典数
+     */
+    static synchronized int size() {
+        return ENTRIES.size();
+    }
+
+    /**
+     * 字典的加载方式，默认为DictionaryLoader.load
+     */
+    interface SnapshotLoader {
+        DictionarySnapshot load(String sql) throws SQLException;
+    }
+
+    private static final class Key {
+        private final String source;
+        private final String query;
+        private final long version;
+
+        private Key(String source, String query, long version) {
+            this.source = source;
+            this.query = query;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return version == key.version && source.equals(key.source) && query.equals(key.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, query, version);
+        }
+
+        @Override
+        public String toString() {
+            return DictionarySnapshot.fileName(source, query) + "@" + version;
+        }
+    }
+
+    private static final class Entry {
+        private final Key key;
+        private final List<List<String>> rows;
+        /**
+         * 最近一次加载得到该字典的时间，由DictionaryRegistry.class同步
+         */
+        private long checkedAt;
+        private final ConcurrentMap<String, Object> views = new ConcurrentHashMap<>();
+        /**
+         * 由DictionaryRegistry.class同步
+         */
+        private int references;
+
+        private Entry(Key key, List<List<String>> rows) {
+            this.key = key;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * 一个使用者持有的字典，所有方法返回的数据均为共享且不可修改的
+     */
+    public static final class Dictionary implements Closeable {
+        private final Entry entry;
+        private boolean closed;
+
+        private Dictionary(Entry entry) {
+            this.entry = entry;
+        }
+
+        public List<List<String>> getRows() {
+            return entry.rows;
+        }
+
+        public long getVersion() {
+            return entry.key.version;
+        }
+
+        /**
+         * @return 所有列的值，同DictionaryLoader.getSet
+         */
+        public Set<String> getSet() {
+            return getView(SET_VIEW, rows -> {
+                Set<String> set = new HashSet<>();
+                for (List<String> row : rows) {
+                    set.addAll(row);
+                }
+                return Collections.unmodifiableSet(set);
+            });
+        }
+
+        /**
+         * @return 第一列到第二列的映射，同DictionaryLoader.getMap
+         */
+        public Map<String, String> getMap() {
+            return getView(MAP_VIEW, rows -> {
+                Map<String, String> map = new HashMap<>();
+                for (List<String> row : rows) {
+                    map.put(row.get(0), row.get(1));
+                }
+                return Collections.unmodifiableMap(map);
+            });
+        }
+
+        /**
+         * 由字典构建的数据(如匹配自动机)，同一字典的同名视图只构建一次，随字典一起释放
+         *
+         * @param name    视图名，不同使用者以相同的名字取得相同的视图
+         * @param builder 由字典的行构建视图，结果会被多个线程共享，必须不可修改
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T getView(String name, Function<List<List<String>>, ? extends T> builder) {
+            return (T) entry.views.computeIfAbsent(name, key -> builder.apply(entry.rows));
+        }
+
+        /**
+         * 释放字典，重复调用无效
+         */
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.chinagoods.bigdata.functions.utils;
+
+import com.google.common.hash.Hashing;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * mysql字典查询结果的本地快照，由DictionaryLoader.main一次导出，UDF优先加载快照，避免每个task都连接mysql
+ * <p>
+ * 文件格式(大端)：
+ * <pre>
+ * int    魔数 CGDS
+ * int    格式版本
+ * long   快照版本，即导出时间(毫秒)
+ * string 数据源(jdbc url)
+ * string 查询sql
+ * int    行数
+ * 每行：int列数，每列一个string
+ * long   以上内容的CRC32
+ * </pre>
+ * string为int字节数(-1表示null)加UTF-8字节；文件名由数据源与sql的哈希生成，读取时校验数据源与sql是否一致
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public final class DictionarySnapshot {
+    private static final int MAGIC = 0x43474453;
+    private static final int FORMAT_VERSION = 1;
+    private static final String FILE_NAME_PREFIX = "dictionary_";
+    private static final String FILE_NAME_SUFFIX = ".snapshot";
+
+    private final String source;
+    private final String query;
+    private final long version;
+    private final List<List<String>> rows;
+
+    public DictionarySnapshot(String source, String query, long version, List<List<String>> rows) {
+        this.source = source;
+        this.query = query;
+        this.version = version;
+        this.rows = Collections.unmodifiableList(rows);
+    }
+
+    /**
+     * @return 数据源与sql对应的快照文件名，同一份sql在不同数据源上的快照互不覆盖
+     */
+    public static String fileName(String source, String query) {
+        String key = source + '\n' + query;
+        return FILE_NAME_PREFIX + Hashing.sha1().hashString(key, StandardCharsets.UTF_8).toString().substring(0, 16) + FILE_NAME_SUFFIX;
+    }
+
+    /**
+     * 读取快照
+     *
+     * @throws IOException 读取失败、格式版本不支持或校验和不一致
+     */
+    public static DictionarySnapshot read(InputStream inputStream) throws IOException {
+        CRC32 crc32 = new CRC32();
+        DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(inputStream), crc32));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a dictionary snapshot");
+        }
+        int formatVersion = in.readInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("unsupported dictionary snapshot format version " + formatVersion);
+        }
+        long version = in.readLong();
+        String source = readString(in);
+        String query = readString(in);
+        int rowCount = in.readInt();
+        List<List<String>> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            int columnCount = in.readInt();
+            List<String> row = new ArrayList<>(columnCount);
+            for (int j = 0; j < columnCount; j++) {
+                row.add(readString(in));
+            }
+            rows.add(Collections.unmodifiableList(row));
+        }
+        long expectedChecksum = crc32.getValue();
+        if (in.readLong() != expectedChecksum) {
+            throw new IOException("dictionary snapshot checksum mismatch");
+        }
+        return new DictionarySnapshot(source, query, version, rows);
+    }
+
+    /**
+     * 读取工作目录或Hadoop文件系统(本地路径或hdfs://)上的快照
+     *
+     * @return 文件不存在时返回null
+     */
+    public static DictionarySnapshot read(Path path) throws IOException {
+        FileSystem fileSystem = path.getFileSystem(ConfigUtils.getHDFSConf());
+        if (!fileSystem.exists(path)) {
+            return null;
+        }
+        try (InputStream in = fileSystem.open(path)) {
+            return read(in);
+        }
+    }
+
+    public void write(OutputStream outputStream) throws IOException {
+        CRC32 crc32 = new CRC32();
+        DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(outputStream), crc32));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(version);
+        writeString(out, source);
+        writeString(out, query);
+        out.writeInt(rows.size());
+        for (List<String> row : rows) {
+            out.writeInt(row.size());
+            for (String value : row) {
+                writeString(out, value);
+            }
+        }
+        out.flush();
+        out.writeLong(crc32.getValue());
+        out.flush();
+    }
+
+    /**
+     * 写入Hadoop文件系统，先写临时文件再重命名，读取方不会看到写了一半的快照
+     */
+    public void write(Path path) throws IOException {
+        FileSystem fileSystem = path.getFileSystem(ConfigUtils.getHDFSConf());
+        Path temporaryPath = new Path(path.getParent(), "." + path.getName() + ".tmp");
+        try (OutputStream out = fileSystem.create(temporaryPath, true)) {
+            write(out);
+        }
+        fileSystem.delete(path, false);
+        if (!fileSystem.rename(temporaryPath, path)) {
+            throw new IOException("Failed to rename " + temporaryPath + " to " + path);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * @return 快照版本，即导出时间(毫秒)
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return 查询结果，不可修改
+     */
+    public List<List<String>> getRows() {
+        return rows;
+    }
+}
@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -21,28 +22,71 @@ public class HttpParamUtil {
      */
     public static Map<String, Object> getParameter(String url) {
         Map<String, Object> map = new HashMap<String, Object>();
-        try {
-            url = URLDecoder.decode(url, StandardCharsets.UTF_8.name());
-        } catch (Exception e) {
-            logger.error("url解码异常: {}", url, e);
+        UrlTokenizer tokenizer = parameters(url);
+        while (tokenizer.nextParameter()) {
+            map.put(tokenizer.key(), removeSpecialChars(tokenizer.value()));
         }
-        if (url.indexOf('?') != -1) {
-            final String contents = url.substring(url.indexOf('?') + 1);
-            String[] keyValues = contents.split("[&#]");
-            for (int i = 0; i < keyValues.length; i++) {
-                // url结尾为/非标准k=v格式，跳过
-                if (!keyValues[i].contains("=")) {
-                    continue;
+        return map;
+    }
+
+    /**
+     * 获得url中指定参数，与getParameter(url).get(name)的结果相同，只解码需要的参数
+     * @param url url链接
+     * @param names 参数名列表
+     * @return 与names对应的参数值，不存在时为null
+     */
+    public static String[] getParameters(String url, List<String> names) {
+        String[] values = new String[names.size()];
+        UrlTokenizer tokenizer = parameters(url);
+        while (tokenizer.nextParameter()) {
+            for (int i = 0; i < values.length; i++) {
+                if (tokenizer.keyEquals(names.get(i))) {
+                    values[i] = removeSpecialChars(tokenizer.value());
                 }
-                String key = keyValues[i].substring(0, keyValues[i].indexOf("="));
-                String value = keyValues[i].substring(keyValues[i].indexOf("=") + 1);
-                // value去除特殊字符
-                value = value.replaceAll("[.、']", "");
-                map.put(key, value);
             }
         }
-        return map;
+        return values;
+    }
+
+    /**
+     * 第一个?之后以&或#分隔的参数。原逻辑先整体解码再切分，url中没有解码后为分隔符的转义时改为逐个参数按需解码，结果相同
+     */
+    private static UrlTokenizer parameters(String url) {
+        boolean decode = true;
+        if (!UrlTokenizer.isDecodable(url)) {
+            logger.error("url解码异常: {}", url);
+            decode = false;
+        } else if (UrlTokenizer.containsEncodedDelimiter(url)) {
+            try {
+                url = URLDecoder.decode(url, StandardCharsets.UTF_8.name());
+            } catch (Exception e) {
+                logger.error("url解码异常: {}", url, e);
+            }
+            decode = false;
+        }
+        UrlTokenizer tokenizer = new UrlTokenizer().reset(url);
+        int question = url.indexOf('?');
+        tokenizer.parameters(question == -1 ? url.length() : question + 1, url.length(), decode);
+        return tokenizer;
+    }
+
+    /**
+     * value去除特殊字符. 、 '
+     */
+    private static String removeSpecialChars(String value) {
+        StringBuilder builder = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            boolean special = c == '.' || c == '、' || c == '\'';
+            if (special && builder == null) {
+                builder = new StringBuilder(value.length()).append(value, 0, i);
+            } else if (!special && builder != null) {
+                builder.append(c);
+            }
+        }
+        return builder == null ? value : builder.toString();
     }
+
     /**
      * 测试
      * @param args main方法参数列表
@@ -21,23 +21,24 @@ final public class MysqlUtil {
      **/
     private static final String JDBC_DRIVER = "com.mysql.jdbc.Driver";
 
-    public MysqlUtil(String dbUrl, String dbUser, String dbPassword) {
+    public MysqlUtil(String dbUrl, String dbUser, String dbPassword) throws SQLException {
         this.dbUrl = dbUrl;
         this.dbUser = dbUser;
         this.dbPassword = dbPassword;
         connection = getConnection();
     }
 
-    public Connection getConnection(){
-        Connection conn = null;
+    /**
+     * @throws SQLException 获取连接失败，由调用方决定是否使用快照等其他数据
+     */
+    public Connection getConnection() throws SQLException {
         try {
             Class.forName(JDBC_DRIVER);
-            conn = DriverManager.getConnection(this.dbUrl, this.dbUser, this.dbPassword);
-        }catch (Exception e) {
-            logger.error("获取mysql连接失败, dbUrl: {}, username: {}, password: {}", dbUrl, dbUser, dbPassword, e);
-            System.exit(1);
+            return DriverManager.getConnection(this.dbUrl, this.dbUser, this.dbPassword);
+        } catch (ClassNotFoundException | SQLException e) {
+            logger.error("获取mysql连接失败, dbUrl: {}, username: {}", dbUrl, dbUser, e);
+            throw e instanceof SQLException ? (SQLException) e : new SQLException("mysql jdbc driver not found", e);
         }
-        return conn;
     }
 
     /**
@@ -0,0 +1,48 @@
+package com.chinagoods.bigdata.functions.utils;
+
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import org.apache.hadoop.io.Text;
+
+/**
+ * hadoop Text与airlift Slice之间的零转码互转
+ * Text与Slice内部均为UTF-8字节，直接共享/拷贝字节即可，无需经过java String的解码与再编码
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public final class TextSliceUtils {
+    /**
+     * 堆内Slice的address为数组基址加偏移，以长度为1的数组取得基址，避免直接依赖Unsafe
+     */
+    private static final long BYTE_ARRAY_BASE_ADDRESS = Slices.wrappedBuffer(new byte[1]).getAddress();
+
+    private TextSliceUtils() {
+    }
+
+    /**
+     * 将Text包装为Slice，与Text共享底层字节数组，不拷贝
+     * 返回的Slice仅在Text被下一次修改前有效，不能跨行保留
+     */
+    public static Slice wrap(Text text) {
+        return Slices.wrappedBuffer(text.getBytes(), 0, text.getLength());
+    }
+
+    /**
+     * 将Slice的字节写入target，target的底层数组容量足够时不分配内存
+     */
+    public static Text set(Text target, Slice value) {
+        int length = value.length();
+        if (length == 0) {
+            target.clear();
+            return target;
+        }
+        Object base = value.getBase();
+        if (base instanceof byte[]) {
+            target.set((byte[]) base, (int) (value.getAddress() - BYTE_ARRAY_BASE_ADDRESS), length);
+        } else {
+            target.set(value.getBytes());
+        }
+        return target;
+    }
+}
@@ -0,0 +1,318 @@
+package com.chinagoods.bigdata.functions.utils;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 基于下标的url切分，scheme、authority、path、query、fragment均为原字符串上的区间，取值时才复制
+ * <p>
+ * 查询参数按需逐个迭代，以&amp;或#分隔，没有=的片段跳过；参数名与参数值只在取值时按URLDecoder的规则解码，
+ * 不含%与+时直接截取原字符串。实例不是线程安全的，每个UDF实例复用一个，reset后重新切分
+ * <pre>
+ * https://www.chinagoods.com:443/product/1.html?id=1&amp;q=%E6%B0%B4#top
+ * |scheme|     authority       |     path    |      query      |fragment
+ * </pre>
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public final class UrlTokenizer {
+    private static final int MAX_PORT_DIGITS = 5;
+
+    private String url;
+    /**
+     * 各部分的区间[start, end)，不存在时start为-1
+     */
+    private int schemeEnd;
+    private int authorityStart;
+    private int authorityEnd;
+    private int pathStart;
+    private int pathEnd;
+    private int queryStart;
+    private int queryEnd;
+    private int fragmentStart;
+
+    /**
+     * 参数迭代状态
+     */
+    private int parameterEnd;
+    private boolean decodeParameters;
+    private int keyStart;
+    private int keyEnd;
+    private int valueEnd;
+    private int next;
+
+    public UrlTokenizer reset(String url) {
+        this.url = url;
+        int length = url.length();
+        fragmentStart = url.indexOf('#');
+        int limit = fragmentStart < 0 ? length : fragmentStart;
+        if (fragmentStart >= 0) {
+            fragmentStart++;
+        }
+        int question = url.indexOf('?');
+        if (question >= 0 && question < limit) {
+            queryStart = question + 1;
+            queryEnd = limit;
+            limit = question;
+        } else {
+            queryStart = -1;
+            queryEnd = -1;
+        }
+
+        // scheme为第一个/之前的:之前的部分
+        schemeEnd = -1;
+        for (int i = 0; i < limit; i++) {
+            char c = url.charAt(i);
+            if (c == ':') {
+                schemeEnd = i;
+                break;
+            }
+            if (c == '/') {
+                break;
+            }
+        }
+
+        int start = schemeEnd + 1;
+        authorityStart = -1;
+        authorityEnd = -1;
+        if (start + 1 < limit && url.charAt(start) == '/' && url.charAt(start + 1) == '/') {
+            authorityStart = start + 2;
+            authorityEnd = authorityStart;
+            while (authorityEnd < limit && url.charAt(authorityEnd) != '/') {
+                authorityEnd++;
+            }
+            start = authorityEnd;
+        }
+        pathStart = start;
+        pathEnd = limit;
+        parameterEnd = 0;
+        next = 0;
+        return this;
+    }
+
+    /**
+     * @return 是否为scheme为http/https、authority为普通的host[:port]且首尾没有空白的url，此时各部分与java.net.URL的解析结果相同
+     */
+    public boolean isSimpleHttpUrl() {
+        int length = url.length();
+        if (length == 0 || url.charAt(0) <= ' ' || url.charAt(length - 1) <= ' ') {
+            return false;
+        }
+        if (!schemeEquals("http") && !schemeEquals("https")) {
+            return false;
+        }
+        // ////开头为UNC路径，没有authority
+        if (authorityStart < 0 || authorityStart == authorityEnd || url.charAt(authorityStart) == '/') {
+            return false;
+        }
+        int port = -1;
+        for (int i = authorityStart; i < authorityEnd; i++) {
+            char c = url.charAt(i);
+            if (port >= 0) {
+                if (c < '0' || c > '9' || i - port > MAX_PORT_DIGITS) {
+                    return false;
+                }
+            } else if (c == ':') {
+                port = i;
+            } else if (!isHostChar(c)) {
+                return false;
+            }
+        }
+        return port != authorityEnd - 1;
+    }
+
+    private static boolean isHostChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '_';
+    }
+
+    /**
+     * @return scheme是否为name，忽略大小写
+     */
+    public boolean schemeEquals(String name) {
+        return schemeEnd == name.length() && url.regionMatches(true, 0, name, 0, schemeEnd);
+    }
+
+    /**
+     * @return scheme原文，不存在时返回null
+     */
+    public String scheme() {
+        return schemeEnd < 0 ? null : url.substring(0, schemeEnd);
+    }
+
+    /**
+     * @return host[:port]原文，不存在时返回null
+     */
+    public String authority() {
+        return authorityStart < 0 ? null : url.substring(authorityStart, authorityEnd);
+    }
+
+    /**
+     * @return authority中:之前的部分，不存在时返回null
+     */
+    public String host() {
+        if (authorityStart < 0) {
+            return null;
+        }
+        int end = authorityStart;
+        while (end < authorityEnd && url.charAt(end) != ':') {
+            end++;
+        }
+        return url.substring(authorityStart, end);
+    }
+
+    public String path() {
+        return url.substring(pathStart, pathEnd);
+    }
+
+    /**
+     * @return ?与#之间的部分，不存在时返回null
+     */
+    public String query() {
+        return queryStart < 0 ? null : url.substring(queryStart, queryEnd);
+    }
+
+    /**
+     * @return #之后的部分，不存在时返回null
+     */
+    public String fragment() {
+        return fragmentStart < 0 ? null : url.substring(fragmentStart);
+    }
+
+    public int getQueryStart() {
+        return queryStart;
+    }
+
+    public int getQueryEnd() {
+        return queryEnd;
+    }
+
+    /**
+     * 开始迭代[start, end)中的参数
+     *
+     * @param decode 取值时是否按URLDecoder的规则解码
+     */
+    public void parameters(int start, int end, boolean decode) {
+        next = start;
+        parameterEnd = end;
+        decodeParameters = decode;
+    }
+
+    /**
+     * 移动到下一个参数，&amp;与#均为分隔符，没有=的片段跳过
+     *
+     * @return 没有更多参数时返回false
+     */
+    public boolean nextParameter() {
+        while (next < parameterEnd) {
+            int start = next;
+            int equal = -1;
+            int end = start;
+            while (end < parameterEnd) {
+                char c = url.charAt(end);
+                if (c == '&' || c == '#') {
+                    break;
+                }
+                if (c == '=' && equal < 0) {
+                    equal = end;
+                }
+                end++;
+            }
+            next = end + 1;
+            if (equal >= 0) {
+                keyStart = start;
+                keyEnd = equal;
+                valueEnd = end;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return 当前参数名是否为name，不解码时直接比较原字符串
+     */
+    public boolean keyEquals(String name) {
+        if (decodeParameters && needsDecoding(url, keyStart, keyEnd)) {
+            return name.equals(key());
+        }
+        return keyEnd - keyStart == name.length() && url.startsWith(name, keyStart);
+    }
+
+    public String key() {
+        return decodeParameters ? decode(url, keyStart, keyEnd) : url.substring(keyStart, keyEnd);
+    }
+
+    public String value() {
+        return decodeParameters ? decode(url, keyEnd + 1, valueEnd) : url.substring(keyEnd + 1, valueEnd);
+    }
+
+    private static boolean needsDecoding(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '%' || c == '+') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按URLDecoder的规则解码[start, end)，不含%与+时直接截取；非法的%转义不解码
+     */
+    public static String decode(String s, int start, int end) {
+        String value = s.substring(start, end);
+        if (!needsDecoding(s, start, end)) {
+            return value;
+        }
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return value;
+        }
+    }
+
+    /**
+     * @return URLDecoder.decode(s)是否不会抛出异常：每个%后都是Integer.parseInt(16进制)可以解析的非负两位数
+     */
+    public static boolean isDecodable(String s) {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(i) != '%') {
+                continue;
+            }
+            if (i + 2 >= length) {
+                return false;
+            }
+            char first = s.charAt(i + 1);
+            char second = s.charAt(i + 2);
+            if (Character.digit(second, 16) < 0) {
+                return false;
+            }
+            // Integer.parseInt允许符号位，"-0"为0，其余负数非法
+            if (Character.digit(first, 16) < 0 && first != '+' && !(first == '-' && Character.digit(second, 16) == 0)) {
+                return false;
+            }
+            i += 2;
+        }
+        return true;
+    }
+
+    /**
+     * @return 是否含有解码后为分隔符? &amp; = #的转义，此时先解码再切分与先切分再解码的结果不同
+     */
+    public static boolean containsEncodedDelimiter(String s) {
+        for (int i = s.indexOf('%'); i >= 0 && i + 2 < s.length(); i = s.indexOf('%', i + 1)) {
+            char first = s.charAt(i + 1);
+            char second = Character.toUpperCase(s.charAt(i + 2));
+            if (first == '2' && (second == '3' || second == '6')) {
+                return true;
+            }
+            if (first == '3' && (second == 'D' || second == 'F')) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,239 @@
+package com.chinagoods.bigdata.functions.utils.ahocorasick;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 基于字符的Aho-Corasick多模式匹配自动机，一次扫描输入即可找出全部命中的关键词
+ * 构建完成后为不可变对象，可在多个线程、多个UDF实例间共享
+ * <p>
+ * 状态按广度优先顺序编号，goto表以数组压缩存储：
+ * 状态s的出边为 edgeChars/edgeTargets 中 [edgeStart[s], edgeStart[s + 1]) 区间，按字符升序排列，查找时二分；
+ * 根节点的出边单独展开为以字符为下标的数组，绝大多数字符直接命中该数组
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public final class AhoCorasickAutomaton {
+    private static final int ROOT = 0;
+    private static final int NO_KEYWORD = -1;
+    private static final int NO_STATE = -1;
+
+    /**
+     * 去重后的关键词，下标即keywordIndex，顺序与构建时传入的顺序一致
+     */
+    private final String[] keywords;
+    /**
+     * 根节点按字符展开的转移表，无出边时为ROOT
+     */
+    private final int[] rootNext;
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] fail;
+    /**
+     * 以该状态结尾的关键词下标，不存在时为NO_KEYWORD
+     */
+    private final int[] keywordAt;
+    /**
+     * 沿fail链最近一个以关键词结尾的状态(字典后缀链接)，不存在时为NO_STATE
+     */
+    private final int[] outputLink;
+
+    /**
+     * 关键词命中回调
+     */
+    public interface MatchHandler {
+        /**
+         * @param keywordIndex 命中的关键词下标，见 {@link #getKeyword(int)}
+         * @param end          关键词在输入中的结束位置(不含)
+         * @return true 继续匹配，false 终止本次匹配
+         */
+        boolean onMatch(int keywordIndex, int end);
+    }
+
+    /**
+     * @param keywords 关键词集合，null与空串会被忽略，重复词只保留第一次出现
+     */
+    public AhoCorasickAutomaton(Collection<String> keywords) {
+        Set<String> distinctKeywords = new LinkedHashSet<>();
+        for (String keyword : keywords) {
+            if (keyword != null && !keyword.isEmpty()) {
+                distinctKeywords.add(keyword);
+            }
+        }
+        this.keywords = distinctKeywords.toArray(new String[0]);
+
+        // 1. 以临时结构构建trie，仅在初始化时使用
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> trieKeyword = new ArrayList<>();
+        trie.add(new HashMap<>());
+        trieKeyword.add(NO_KEYWORD);
+        for (int k = 0; k < this.keywords.length; k++) {
+            String keyword = this.keywords[k];
+            int state = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                Integer next = trie.get(state).get(keyword.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new HashMap<>());
+                    trieKeyword.add(NO_KEYWORD);
+                    trie.get(state).put(keyword.charAt(i), next);
+                }
+                state = next;
+            }
+            trieKeyword.set(state, k);
+        }
+
+        // 2. 广度优先重新编号，父状态编号总是小于子状态，便于按编号顺序计算fail
+        int stateCount = trie.size();
+        int[] order = new int[stateCount];
+        int[] newId = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+        order[tail++] = ROOT;
+        while (head < tail) {
+            int state = order[head++];
+            newId[state] = head - 1;
+            Character[] chars = trie.get(state).keySet().toArray(new Character[0]);
+            Arrays.sort(chars);
+            for (Character ch : chars) {
+                order[tail++] = trie.get(state).get(ch);
+            }
+        }
+
+        // 3. 压缩goto表
+        edgeStart = new int[stateCount + 1];
+        edgeChars = new char[stateCount - 1];
+        edgeTargets = new int[stateCount - 1];
+        keywordAt = new int[stateCount];
+        int edge = 0;
+        for (int id = 0; id < stateCount; id++) {
+            int state = order[id];
+            edgeStart[id] = edge;
+            keywordAt[id] = trieKeyword.get(state);
+            Map<Character, Integer> children = trie.get(state);
+            Character[] chars = children.keySet().toArray(new Character[0]);
+            Arrays.sort(chars);
+            for (Character ch : chars) {
+                edgeChars[edge] = ch;
+                edgeTargets[edge] = newId[children.get(ch)];
+                edge++;
+            }
+        }
+        edgeStart[stateCount] = edge;
+
+        rootNext = new int[Character.MAX_VALUE + 1];
+        for (int e = edgeStart[ROOT]; e < edgeStart[ROOT + 1]; e++) {
+            rootNext[edgeChars[e]] = edgeTargets[e];
+        }
+
+        // 4. 按广度优先顺序计算fail与字典后缀链接
+        fail = new int[stateCount];
+        outputLink = new int[stateCount];
+        outputLink[ROOT] = NO_STATE;
+        for (int state = 0; state < stateCount; state++) {
+            for (int e = edgeStart[state]; e < edgeStart[state + 1]; e++) {
+                int child = edgeTargets[e];
+                int childFail = state == ROOT ? ROOT : next(fail[state], edgeChars[e]);
+                fail[child] = childFail;
+                outputLink[child] = keywordAt[childFail] != NO_KEYWORD ? childFail : outputLink[childFail];
+            }
+        }
+    }
+
+    /**
+     * 关键词数量
+     */
+    public int size() {
+        return keywords.length;
+    }
+
+    public String getKeyword(int keywordIndex) {
+        return keywords[keywordIndex];
+    }
+
+    /**
+     * 判断文本中是否包含任意关键词，命中第一个关键词即返回
+     */
+    public boolean containsAny(CharSequence text) {
+        if (keywords.length == 0) {
+            return false;
+        }
+        int state = ROOT;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            state = next(state, text.charAt(i));
+            if (keywordAt[state] != NO_KEYWORD || outputLink[state] != NO_STATE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 将文本中命中的全部关键词加入hits，同一关键词命中多次时会重复加入，由调用方决定是否去重
+     */
+    public void findAll(CharSequence text, final Collection<? super String> hits) {
+        match(text, (keywordIndex, end) -> {
+            hits.add(keywords[keywordIndex]);
+            return true;
+        });
+    }
+
+    /**
+     * 单次扫描文本，按结束位置顺序回调全部命中，同一结束位置上较长的关键词先回调
+     *
+     * @return true 扫描完整个文本，false 被handler终止
+     */
+    public boolean match(CharSequence text, MatchHandler handler) {
+        if (keywords.length == 0) {
+            return true;
+        }
+        int state = ROOT;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            state = next(state, text.charAt(i));
+            int output = keywordAt[state] != NO_KEYWORD ? state : outputLink[state];
+            while (output != NO_STATE) {
+                if (!handler.onMatch(keywordAt[output], i + 1)) {
+                    return false;
+                }
+                output = outputLink[output];
+            }
+        }
+        return true;
+    }
+
+    private int next(int state, char ch) {
+        while (state != ROOT) {
+            int target = gotoState(state, ch);
+            if (target != NO_STATE) {
+                return target;
+            }
+            state = fail[state];
+        }
+        return rootNext[ch];
+    }
+
+    private int gotoState(int state, char ch) {
+        int low = edgeStart[state];
+        int high = edgeStart[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = edgeChars[mid];
+            if (midChar < ch) {
+                low = mid + 1;
+            } else if (midChar > ch) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return NO_STATE;
+    }
+}
@@ -2,12 +2,21 @@ package com.chinagoods.bigdata.functions.utils.json;
 
 import com.fasterxml.jackson.core.*;
 import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import org.apache.hadoop.io.Text;
+
 import java.io.IOException;
 import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.fasterxml.jackson.core.JsonFactory.Feature.CANONICALIZE_FIELD_NAMES;
+import static com.fasterxml.jackson.core.JsonFactory.Feature.FAIL_ON_SYMBOL_HASH_OVERFLOW;
+import static com.fasterxml.jackson.core.JsonFactory.Feature.INTERN_FIELD_NAMES;
 import static com.fasterxml.jackson.core.JsonToken.*;
 
 /**
@@ -18,6 +27,17 @@ import static com.fasterxml.jackson.core.JsonToken.*;
 public class JsonExtract {
     private static final JsonFactory JSON_FACTORY = new JsonFactory()
             .disable(CANONICALIZE_FIELD_NAMES);
+    /**
+     * 解析UTF-8字节用的factory。关闭CANONICALIZE_FIELD_NAMES时jackson会退回先将字节解码为字符的解析器，
+     * 因此字节输入保留字段名符号表，只关闭intern与哈希冲突过多时报错，符号表大小由jackson自身限制
+     */
+    static final JsonFactory UTF8_JSON_FACTORY = new JsonFactory()
+            .disable(INTERN_FIELD_NAMES)
+            .disable(FAIL_ON_SYMBOL_HASH_OVERFLOW);
+    /**
+     * Slice extractor的输出缓冲区，每个线程一份，按最大结果扩容后复用
+     */
+    private static final ThreadLocal<JsonTextBuffer> OUTPUT_BUFFER = ThreadLocal.withInitial(JsonTextBuffer::new);
 
     private JsonExtract() {
     }
@@ -26,9 +46,29 @@ public class JsonExtract {
         if (jsonInput == null) {
             throw new NullPointerException("jsonInput is null");
         }
+        return extract(() -> JSON_FACTORY.createParser(jsonInput), jsonExtractor);
+    }
+
+    /**
+     * 直接解析UTF-8字节，省去先解码为String、再由jackson扫描字符的两次转码
+     */
+    public static <T> T extract(byte[] jsonInput, int offset, int length, JsonExtractor<T> jsonExtractor) {
+        if (jsonInput == null) {
+            throw new NullPointerException("jsonInput is null");
+        }
+        return extract(() -> UTF8_JSON_FACTORY.createParser(jsonInput, offset, length), jsonExtractor);
+    }
+
+    public static <T> T extract(Text jsonInput, JsonExtractor<T> jsonExtractor) {
+        if (jsonInput == null) {
+            throw new NullPointerException("jsonInput is null");
+        }
+        return extract(jsonInput.getBytes(), 0, jsonInput.getLength(), jsonExtractor);
+    }
 
+    private static <T> T extract(JsonParserSupplier jsonParserSupplier, JsonExtractor<T> jsonExtractor) {
         try {
-            JsonParser jsonParser = JSON_FACTORY.createParser(jsonInput);
+            JsonParser jsonParser = jsonParserSupplier.get();
             // Initialize by advancing to first token and make sure it exists
             if (jsonParser.nextToken() == null) {
                 return null;
@@ -43,13 +83,69 @@ public class JsonExtract {
         }
     }
 
+    /**
+     * 单次遍历json数组，对每个元素原地执行extractor，避免按下标重复解析数组
+     *
+     * @param jsonInput        json数组
+     * @param elementExtractor 作用于每个元素的extractor
+     * @return 每个元素的抽取结果，元素不匹配时对应位置为null；输入不是合法的json数组时返回null
+     */
+    public static <T> List<T> extractArray(String jsonInput, JsonExtractor<T> elementExtractor) {
+        if (jsonInput == null) {
+            throw new NullPointerException("jsonInput is null");
+        }
+        return extractArray(() -> JSON_FACTORY.createParser(jsonInput), elementExtractor);
+    }
+
+    public static <T> List<T> extractArray(Text jsonInput, JsonExtractor<T> elementExtractor) {
+        if (jsonInput == null) {
+            throw new NullPointerException("jsonInput is null");
+        }
+        return extractArray(() -> UTF8_JSON_FACTORY.createParser(jsonInput.getBytes(), 0, jsonInput.getLength()), elementExtractor);
+    }
+
+    private static <T> List<T> extractArray(JsonParserSupplier jsonParserSupplier, JsonExtractor<T> elementExtractor) {
+        try {
+            JsonParser jsonParser = jsonParserSupplier.get();
+            if (jsonParser.nextToken() != START_ARRAY) {
+                return null;
+            }
+            JsonStreamContext arrayContext = jsonParser.getParsingContext();
+
+            List<T> results = new ArrayList<>();
+            while (true) {
+                JsonToken token = jsonParser.nextToken();
+                if (token == null) {
+                    return null;
+                }
+                if (token == END_ARRAY) {
+                    return results;
+                }
+                results.add(elementExtractor.extract(jsonParser));
+                // the extractor may stop inside the element, move on to its last token
+                while (jsonParser.getParsingContext() != arrayContext) {
+                    if (jsonParser.nextToken() == null) {
+                        return null;
+                    }
+                }
+            }
+        } catch (JsonParseException e) {
+            // Return null if we failed to parse something
+            return null;
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
     public static <T> JsonExtractor<T> generateExtractor(String path, JsonExtractor<T> rootExtractor) {
         return generateExtractor(path, rootExtractor, false);
     }
 
     public static <T> JsonExtractor<T> generateExtractor(String path, JsonExtractor<T> rootExtractor, boolean exceptionOnOutOfBounds) {
-        ImmutableList<String> tokens = ImmutableList.copyOf(new JsonPathTokenizer(path));
+        return generateExtractor(new JsonPath(path).getTokens(), rootExtractor, exceptionOnOutOfBounds);
+    }
 
+    public static <T> JsonExtractor<T> generateExtractor(ImmutableList<String> tokens, JsonExtractor<T> rootExtractor, boolean exceptionOnOutOfBounds) {
         JsonExtractor<T> jsonExtractor = rootExtractor;
         for (String token : tokens.reverse()) {
             jsonExtractor = new ObjectFieldJsonExtractor(token, jsonExtractor, exceptionOnOutOfBounds);
@@ -66,6 +162,10 @@ public class JsonExtract {
         return index;
     }
 
+    private interface JsonParserSupplier {
+        JsonParser get() throws IOException;
+    }
+
     public interface JsonExtractor<T> {
         /**
          * Executes the extraction on the existing content of the JsonParser and outputs the match.
@@ -118,7 +218,8 @@ public class JsonExtract {
                 return processJsonArray(jsonParser);
             }
 
-            throw new JsonParseException("Expected a JSON object or array", jsonParser.getCurrentLocation());
+            // a scalar has no fields, it is also its own last token
+            return null;
         }
 
         public T processJsonObject(JsonParser jsonParser)
@@ -200,6 +301,385 @@ public class JsonExtract {
         }
     }
 
+    /**
+     * 与ScalarValueJsonExtractor相同，但将值的UTF-8字节写入线程内复用的输出缓冲区
+     * 返回的Slice指向该缓冲区，仅在本线程下一次抽取前有效，调用方需在此之前拷贝(如TextSliceUtils.set)
+     */
+    public static class ScalarValueSliceJsonExtractor
+            implements JsonExtractor<Slice> {
+        public Slice extract(JsonParser jsonParser)
+                throws IOException {
+            JsonToken token = jsonParser.getCurrentToken();
+            if (token == null) {
+                throw new JsonParseException("Unexpected end of value", jsonParser.getCurrentLocation());
+            }
+            if (!token.isScalarValue() || token == VALUE_NULL) {
+                return null;
+            }
+            return OUTPUT_BUFFER.get().toUtf8(jsonParser.getTextCharacters(), jsonParser.getTextOffset(), jsonParser.getTextLength());
+        }
+    }
+
+    /**
+     * 与JsonValueJsonExtractor相同，但生成到线程内复用的输出缓冲区，有效期同ScalarValueSliceJsonExtractor
+     */
+    public static class JsonValueSliceJsonExtractor
+            implements JsonExtractor<Slice> {
+        public Slice extract(JsonParser jsonParser)
+                throws IOException {
+            if (!jsonParser.hasCurrentToken()) {
+                throw new JsonParseException("Unexpected end of value", jsonParser.getCurrentLocation());
+            }
+
+            JsonTextBuffer output = OUTPUT_BUFFER.get();
+            try {
+                JsonGenerator jsonGenerator = JSON_FACTORY.createGenerator(output.reset());
+                jsonGenerator.copyCurrentStructure(jsonParser);
+                jsonGenerator.flush();
+                jsonGenerator.close();
+            } catch (IOException e) {
+                return null;
+            }
+            return output.toUtf8();
+        }
+    }
+
+    /**
+     * 求值含[*]、..name、[?()]的不定path，一次流式遍历json，按文档顺序将每个匹配值交给子类汇总
+     * <p>
+     * 每个值上仍在进行的匹配用位图表示，第i位表示已匹配前i步、下一步为steps[i]，第steps.length位表示匹配完成
+     * 只向位图非空的子树下降，其余子树直接跳过；同一个值经不同途径匹配只计一次
+     * 匹配值本身还需继续向下匹配(如..name匹配到对象)，或数组元素为对象、数组且需先求过滤条件时，
+     * 先将该值缓存为TokenBuffer再分别遍历，其余情况不缓存
+     * <p>
+     * 实例无状态，可在线程间共享
+     *
+     * @param <A> 一次抽取中汇总匹配值的状态
+     * @param <T> 抽取结果
+     */
+    public abstract static class MatchesJsonExtractor<A, T>
+            implements JsonExtractor<T> {
+        private static final int MAXIMUM_STEPS = 63;
+
+        private final JsonPathStep[] steps;
+        private final int[] indexes;
+        private final JsonExtractor<Boolean>[] filters;
+        private final long matchedState;
+        private final long filterStates;
+
+        @SuppressWarnings("unchecked")
+        protected MatchesJsonExtractor(List<JsonPathStep> steps) {
+            if (steps.size() > MAXIMUM_STEPS) {
+                throw new IllegalArgumentException("json path has more than " + MAXIMUM_STEPS + " steps");
+            }
+            this.steps = steps.toArray(new JsonPathStep[0]);
+            this.indexes = new int[this.steps.length];
+            this.filters = new JsonExtractor[this.steps.length];
+            long filterStates = 0;
+            for (int i = 0; i < this.steps.length; i++) {
+                JsonPathStep step = this.steps[i];
+                indexes[i] = step.getType() == JsonPathStep.Type.FIELD ? tryParseInt(step.getName(), -1) : -1;
+                if (step.getType() == JsonPathStep.Type.FILTER) {
+                    filters[i] = generateExtractor(step.getFilterTokens(), new FilterValueJsonExtractor(step), false);
+                    filterStates |= 1L << i;
+                }
+            }
+            this.matchedState = 1L << this.steps.length;
+            this.filterStates = filterStates;
+        }
+
+        public T extract(JsonParser jsonParser)
+                throws IOException {
+            A matches = begin();
+            walk(jsonParser, 1L, matches);
+            return finish(matches);
+        }
+
+        protected abstract A begin()
+                throws IOException;
+
+        /**
+         * 解析器位于匹配值的第一个token，返回时须位于该值的最后一个token
+         */
+        protected abstract void accept(JsonParser jsonParser, A matches)
+                throws IOException;
+
+        protected abstract T finish(A matches)
+                throws IOException;
+
+        private void walk(JsonParser jsonParser, long states, A matches)
+                throws IOException {
+            JsonToken token = jsonParser.getCurrentToken();
+            if (token == null) {
+                throw new JsonParseException("Unexpected end of value", jsonParser.getCurrentLocation());
+            }
+            long pending = states & ~matchedState;
+            if ((states & matchedState) != 0) {
+                if (pending == 0 || !token.isStructStart()) {
+                    accept(jsonParser, matches);
+                    return;
+                }
+                // the match is searched further, e.g. $..name matching an object
+                TokenBuffer buffer = buffer(jsonParser);
+                accept(replay(buffer), matches);
+                walkChildren(replay(buffer), pending, matches);
+                return;
+            }
+            if (token.isStructStart()) {
+                walkChildren(jsonParser, pending, matches);
+            }
+        }
+
+        private void walkChildren(JsonParser jsonParser, long states, A matches)
+                throws IOException {
+            JsonToken token;
+            if (jsonParser.getCurrentToken() == START_OBJECT) {
+                while ((token = jsonParser.nextToken()) == FIELD_NAME) {
+                    long childStates = fieldStates(states, jsonParser.getCurrentName());
+                    jsonParser.nextToken();
+                    if (childStates == 0) {
+                        jsonParser.skipChildren();
+                    } else {
+                        walk(jsonParser, childStates, matches);
+                    }
+                }
+                if (token != END_OBJECT) {
+                    throw new JsonParseException("Unexpected end of object", jsonParser.getCurrentLocation());
+                }
+                return;
+            }
+
+            int index = 0;
+            while ((token = jsonParser.nextToken()) != END_ARRAY) {
+                if (token == null) {
+                    throw new JsonParseException("Unexpected end of array", jsonParser.getCurrentLocation());
+                }
+                long childStates = elementStates(states, index++);
+                long activeFilters = states & filterStates;
+                if (activeFilters != 0 && token.isStructStart()) {
+                    // the condition may depend on fields after the ones to be matched
+                    TokenBuffer buffer = buffer(jsonParser);
+                    for (long remaining = activeFilters; remaining != 0; remaining &= remaining - 1) {
+                        int i = Long.numberOfTrailingZeros(remaining);
+                        if (Boolean.TRUE.equals(filters[i].extract(replay(buffer)))) {
+                            childStates |= 1L << (i + 1);
+                        }
+                    }
+                    if (childStates != 0) {
+                        walk(replay(buffer), childStates, matches);
+                    }
+                    continue;
+                }
+                for (long remaining = activeFilters; remaining != 0; remaining &= remaining - 1) {
+                    int i = Long.numberOfTrailingZeros(remaining);
+                    // a scalar element is its own last token, the filter leaves the parser on it
+                    if (Boolean.TRUE.equals(filters[i].extract(jsonParser))) {
+                        childStates |= 1L << (i + 1);
+                    }
+                }
+                if (childStates == 0) {
+                    jsonParser.skipChildren();
+                } else {
+                    walk(jsonParser, childStates, matches);
+                }
+            }
+        }
+
+        private long fieldStates(long states, String fieldName) {
+            long childStates = 0;
+            for (long remaining = states; remaining != 0; remaining &= remaining - 1) {
+                int i = Long.numberOfTrailingZeros(remaining);
+                JsonPathStep step = steps[i];
+                switch (step.getType()) {
+                    case FIELD:
+                        if (step.getName().equals(fieldName)) {
+                            childStates |= 1L << (i + 1);
+                        }
+                        break;
+                    case WILDCARD:
+                        childStates |= 1L << (i + 1);
+                        break;
+                    case DESCENDANT:
+                        childStates |= 1L << i;
+                        if (step.getName() == null || step.getName().equals(fieldName)) {
+                            childStates |= 1L << (i + 1);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return childStates;
+        }
+
+        /**
+         * 不含过滤条件，过滤条件需要读取元素内容，由walkChildren处理
+         */
+        private long elementStates(long states, int index) {
+            long childStates = 0;
+            for (long remaining = states; remaining != 0; remaining &= remaining - 1) {
+                int i = Long.numberOfTrailingZeros(remaining);
+                switch (steps[i].getType()) {
+                    case FIELD:
+                        if (indexes[i] == index) {
+                            childStates |= 1L << (i + 1);
+                        }
+                        break;
+                    case WILDCARD:
+                        childStates |= 1L << (i + 1);
+                        break;
+                    case DESCENDANT:
+                        childStates |= 1L << i;
+                        if (steps[i].getName() == null) {
+                            childStates |= 1L << (i + 1);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return childStates;
+        }
+
+        private static TokenBuffer buffer(JsonParser jsonParser)
+                throws IOException {
+            TokenBuffer buffer = new TokenBuffer(jsonParser);
+            buffer.copyCurrentStructure(jsonParser);
+            return buffer;
+        }
+
+        private static JsonParser replay(TokenBuffer buffer)
+                throws IOException {
+            JsonParser jsonParser = buffer.asParser();
+            jsonParser.nextToken();
+            return jsonParser;
+        }
+    }
+
+    /**
+     * 不定path的json_extract结果：全部匹配值组成的json数组
+     */
+    public static class JsonValueMatchesJsonExtractor
+            extends MatchesJsonExtractor<JsonGenerator, String> {
+        public JsonValueMatchesJsonExtractor(List<JsonPathStep> steps) {
+            super(steps);
+        }
+
+        @Override
+        protected JsonGenerator begin()
+                throws IOException {
+            JsonGenerator jsonGenerator = JSON_FACTORY.createGenerator(new StringWriter());
+            jsonGenerator.writeStartArray();
+            return jsonGenerator;
+        }
+
+        @Override
+        protected void accept(JsonParser jsonParser, JsonGenerator matches)
+                throws IOException {
+            matches.copyCurrentStructure(jsonParser);
+        }
+
+        @Override
+        protected String finish(JsonGenerator matches)
+                throws IOException {
+            matches.writeEndArray();
+            matches.close();
+            return matches.getOutputTarget().toString();
+        }
+    }
+
+    /**
+     * 与JsonValueMatchesJsonExtractor相同，但生成到线程内复用的输出缓冲区，有效期同ScalarValueSliceJsonExtractor
+     */
+    public static class JsonValueMatchesSliceJsonExtractor
+            extends MatchesJsonExtractor<JsonGenerator, Slice> {
+        public JsonValueMatchesSliceJsonExtractor(List<JsonPathStep> steps) {
+            super(steps);
+        }
+
+        @Override
+        protected JsonGenerator begin()
+                throws IOException {
+            JsonGenerator jsonGenerator = JSON_FACTORY.createGenerator(OUTPUT_BUFFER.get().reset());
+            jsonGenerator.writeStartArray();
+            return jsonGenerator;
+        }
+
+        @Override
+        protected void accept(JsonParser jsonParser, JsonGenerator matches)
+                throws IOException {
+            matches.copyCurrentStructure(jsonParser);
+        }
+
+        @Override
+        protected Slice finish(JsonGenerator matches)
+                throws IOException {
+            matches.writeEndArray();
+            matches.close();
+            return OUTPUT_BUFFER.get().toUtf8();
+        }
+    }
+
+    /**
+     * 不定path的json_size结果：匹配值的个数
+     */
+    public static class MatchCountJsonExtractor
+            extends MatchesJsonExtractor<long[], Long> {
+        public MatchCountJsonExtractor(List<JsonPathStep> steps) {
+            super(steps);
+        }
+
+        @Override
+        protected long[] begin() {
+            return new long[1];
+        }
+
+        @Override
+        protected void accept(JsonParser jsonParser, long[] matches)
+                throws IOException {
+            jsonParser.skipChildren();
+            matches[0]++;
+        }
+
+        @Override
+        protected Long finish(long[] matches) {
+            return matches[0];
+        }
+    }
+
+    /**
+     * 求[?(@.k == v)]的条件，解析器位于@.k的值上；值不存在时由ObjectFieldJsonExtractor返回null，视为不满足
+     * 对象与数组不等于任何比较值
+     */
+    private static class FilterValueJsonExtractor
+            implements JsonExtractor<Boolean> {
+        private final JsonPathStep step;
+
+        private FilterValueJsonExtractor(JsonPathStep step) {
+            this.step = step;
+        }
+
+        public Boolean extract(JsonParser jsonParser)
+                throws IOException {
+            JsonToken token = jsonParser.getCurrentToken();
+            if (token == null) {
+                throw new JsonParseException("Unexpected end of value", jsonParser.getCurrentLocation());
+            }
+            boolean equal;
+            if (!token.isScalarValue()) {
+                jsonParser.skipChildren();
+                equal = false;
+            } else if (step.getFilterValueToken() == VALUE_STRING) {
+                equal = token == VALUE_STRING && step.getFilterValue().equals(jsonParser.getText());
+            } else if (step.getFilterValueToken() == VALUE_NUMBER_FLOAT) {
+                equal = token.isNumeric() && jsonParser.getDecimalValue().compareTo((BigDecimal) step.getFilterValue()) == 0;
+            } else {
+                equal = token == step.getFilterValueToken();
+            }
+            return equal != step.isFilterNegated();
+        }
+    }
+
     public static class JsonSizeExtractor
             implements JsonExtractor<Long> {
         public Long extract(JsonParser jsonParser)
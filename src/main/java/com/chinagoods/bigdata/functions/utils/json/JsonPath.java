@@ -1,30 +1,133 @@
 package com.chinagoods.bigdata.functions.utils.json;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+
+import java.io.IOException;
+
 /**
+ * 编译后的json path，构造时完成分词校验，各类extractor在首次使用时才生成
+ * extractor无状态，并发时重复生成也只是多一次构造，因此不加锁
+ * <p>
+ * 含[*]、..name或[?()]的path为不定path，可能匹配多个值：object extractor返回全部匹配值组成的json数组，
+ * size extractor返回匹配值个数，scalar extractor总是返回null
+ *
  * @author ruifeng.shan
  * date: 2016-07-25
  * time: 15:15
  */
 public class JsonPath {
-    private final JsonExtract.JsonExtractor<String> scalarExtractor;
-    private final JsonExtract.JsonExtractor<String> objectExtractor;
-    private final JsonExtract.JsonExtractor<Long> sizeExtractor;
+    private static final JsonExtract.JsonExtractor<?> NULL_EXTRACTOR = new JsonExtract.JsonExtractor<Object>() {
+        @Override
+        public Object extract(JsonParser jsonParser) throws IOException {
+            jsonParser.skipChildren();
+            return null;
+        }
+    };
+
+    private final ImmutableList<JsonPathStep> steps;
+    /**
+     * 各步的字段名或下标，不定path为null
+     */
+    private final ImmutableList<String> tokens;
+    private volatile JsonExtract.JsonExtractor<String> scalarExtractor;
+    private volatile JsonExtract.JsonExtractor<String> objectExtractor;
+    private volatile JsonExtract.JsonExtractor<Long> sizeExtractor;
+    private volatile JsonExtract.JsonExtractor<Slice> scalarSliceExtractor;
+    private volatile JsonExtract.JsonExtractor<Slice> objectSliceExtractor;
 
     public JsonPath(String pattern) {
-        scalarExtractor = JsonExtract.generateExtractor(pattern, new JsonExtract.ScalarValueJsonExtractor());
-        objectExtractor = JsonExtract.generateExtractor(pattern, new JsonExtract.JsonValueJsonExtractor());
-        sizeExtractor = JsonExtract.generateExtractor(pattern, new JsonExtract.JsonSizeExtractor());
+        steps = ImmutableList.copyOf(new JsonPathTokenizer(pattern));
+        ImmutableList.Builder<String> fieldTokens = ImmutableList.builder();
+        for (JsonPathStep step : steps) {
+            if (step.getType() != JsonPathStep.Type.FIELD) {
+                tokens = null;
+                return;
+            }
+            fieldTokens.add(step.getName());
+        }
+        tokens = fieldTokens.build();
+    }
+
+    public ImmutableList<JsonPathStep> getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return path只由字段与下标组成，最多匹配一个值
+     */
+    public boolean isDefinite() {
+        return tokens != null;
+    }
+
+    /**
+     * @throws IllegalStateException 不定path
+     */
+    public ImmutableList<String> getTokens() {
+        if (tokens == null) {
+            throw new IllegalStateException("JSON path is not definite");
+        }
+        return tokens;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> JsonExtract.JsonExtractor<T> nullExtractor() {
+        return (JsonExtract.JsonExtractor<T>) NULL_EXTRACTOR;
     }
 
     public JsonExtract.JsonExtractor<String> getScalarExtractor() {
-        return scalarExtractor;
+        JsonExtract.JsonExtractor<String> extractor = scalarExtractor;
+        if (extractor == null) {
+            extractor = isDefinite()
+                    ? JsonExtract.generateExtractor(tokens, new JsonExtract.ScalarValueJsonExtractor(), false)
+                    : nullExtractor();
+            scalarExtractor = extractor;
+        }
+        return extractor;
     }
 
     public JsonExtract.JsonExtractor<String> getObjectExtractor() {
-        return objectExtractor;
+        JsonExtract.JsonExtractor<String> extractor = objectExtractor;
+        if (extractor == null) {
+            extractor = isDefinite()
+                    ? JsonExtract.generateExtractor(tokens, new JsonExtract.JsonValueJsonExtractor(), false)
+                    : new JsonExtract.JsonValueMatchesJsonExtractor(steps);
+            objectExtractor = extractor;
+        }
+        return extractor;
     }
 
     public JsonExtract.JsonExtractor<Long> getSizeExtractor() {
-        return sizeExtractor;
+        JsonExtract.JsonExtractor<Long> extractor = sizeExtractor;
+        if (extractor == null) {
+            extractor = isDefinite()
+                    ? JsonExtract.generateExtractor(tokens, new JsonExtract.JsonSizeExtractor(), false)
+                    : new JsonExtract.MatchCountJsonExtractor(steps);
+            sizeExtractor = extractor;
+        }
+        return extractor;
+    }
+
+    public JsonExtract.JsonExtractor<Slice> getScalarSliceExtractor() {
+        JsonExtract.JsonExtractor<Slice> extractor = scalarSliceExtractor;
+        if (extractor == null) {
+            extractor = isDefinite()
+                    ? JsonExtract.generateExtractor(tokens, new JsonExtract.ScalarValueSliceJsonExtractor(), false)
+                    : nullExtractor();
+            scalarSliceExtractor = extractor;
+        }
+        return extractor;
+    }
+
+    public JsonExtract.JsonExtractor<Slice> getObjectSliceExtractor() {
+        JsonExtract.JsonExtractor<Slice> extractor = objectSliceExtractor;
+        if (extractor == null) {
+            extractor = isDefinite()
+                    ? JsonExtract.generateExtractor(tokens, new JsonExtract.JsonValueSliceJsonExtractor(), false)
+                    : new JsonExtract.JsonValueMatchesSliceJsonExtractor(steps);
+            objectSliceExtractor = extractor;
+        }
+        return extractor;
     }
 }
@@ -0,0 +1,117 @@
+package com.chinagoods.bigdata.functions.utils.json;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.collect.ImmutableList;
+
+import java.math.BigDecimal;
+
+/**
+ * json path中的一步，由JsonPathTokenizer生成
+ * <ul>
+ * <li>FIELD: .name、["name"]或[0]，数组上能解析为整数的name作为下标</li>
+ * <li>WILDCARD: .*或[*]，对象的全部字段值、数组的全部元素</li>
+ * <li>DESCENDANT: ..name或..*，当前值及其全部后代中名为name(..*为任意)的字段值</li>
+ * <li>FILTER: [?(@.k == 'v')]、[?(@ != 1)]，数组中满足条件的元素；@后只能是普通字段与下标</li>
+ * </ul>
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public final class JsonPathStep {
+    public enum Type {
+        FIELD, WILDCARD, DESCENDANT, FILTER
+    }
+
+    private static final JsonPathStep WILDCARD_STEP = new JsonPathStep(Type.WILDCARD, null, null, false, null, null);
+
+    private final Type type;
+    private final String name;
+    private final ImmutableList<String> filterTokens;
+    private final boolean filterNegated;
+    /**
+     * 比较值的类型，VALUE_STRING、VALUE_NUMBER_FLOAT(数字统一按BigDecimal比较)、VALUE_TRUE、VALUE_FALSE或VALUE_NULL
+     */
+    private final JsonToken filterValueToken;
+    private final Object filterValue;
+
+    private JsonPathStep(Type type, String name, ImmutableList<String> filterTokens, boolean filterNegated,
+                         JsonToken filterValueToken, Object filterValue) {
+        this.type = type;
+        this.name = name;
+        this.filterTokens = filterTokens;
+        this.filterNegated = filterNegated;
+        this.filterValueToken = filterValueToken;
+        this.filterValue = filterValue;
+    }
+
+    public static JsonPathStep field(String name) {
+        return new JsonPathStep(Type.FIELD, name, null, false, null, null);
+    }
+
+    public static JsonPathStep wildcard() {
+        return WILDCARD_STEP;
+    }
+
+    /**
+     * @param name 字段名，null表示任意字段及数组元素
+     */
+    public static JsonPathStep descendant(String name) {
+        return new JsonPathStep(Type.DESCENDANT, name, null, false, null, null);
+    }
+
+    /**
+     * @param tokens  @之后的相对路径
+     * @param negated true为!=，false为==
+     * @param literal 比较值的原文，单引号或双引号括起为字符串，否则为数字、true、false或null
+     * @return null表示比较值不合法
+     */
+    static JsonPathStep filter(ImmutableList<String> tokens, boolean negated, String literal, boolean quoted) {
+        if (quoted) {
+            return new JsonPathStep(Type.FILTER, null, tokens, negated, JsonToken.VALUE_STRING, literal);
+        }
+        switch (literal) {
+            case "true":
+                return new JsonPathStep(Type.FILTER, null, tokens, negated, JsonToken.VALUE_TRUE, null);
+            case "false":
+                return new JsonPathStep(Type.FILTER, null, tokens, negated, JsonToken.VALUE_FALSE, null);
+            case "null":
+                return new JsonPathStep(Type.FILTER, null, tokens, negated, JsonToken.VALUE_NULL, null);
+            default:
+                try {
+                    return new JsonPathStep(Type.FILTER, null, tokens, negated, JsonToken.VALUE_NUMBER_FLOAT, new BigDecimal(literal));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return FIELD与DESCENDANT的字段名
+     */
+    public String getName() {
+        return name;
+    }
+
+    public ImmutableList<String> getFilterTokens() {
+        return filterTokens;
+    }
+
+    public boolean isFilterNegated() {
+        return filterNegated;
+    }
+
+    public JsonToken getFilterValueToken() {
+        return filterValueToken;
+    }
+
+    /**
+     * @return 字符串比较值为String，数字为BigDecimal，其余为null
+     */
+    public Object getFilterValue() {
+        return filterValue;
+    }
+}
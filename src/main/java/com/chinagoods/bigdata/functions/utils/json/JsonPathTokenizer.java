@@ -1,8 +1,10 @@
 package com.chinagoods.bigdata.functions.utils.json;
 
 import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
 
 import static java.lang.Character.isLetterOrDigit;
+import static java.lang.Character.isWhitespace;
 import static java.lang.String.format;
 
 /**
@@ -10,11 +12,20 @@ import static java.lang.String.format;
  * date: 2016-07-25
  * time: 15:06
  */
-public class JsonPathTokenizer extends AbstractIterator<String> {
+public class JsonPathTokenizer extends AbstractIterator<JsonPathStep> {
     private static final char QUOTE = '\"';
+    private static final char SINGLE_QUOTE = '\'';
+    private static final char BACKSLASH = '\\';
     private static final char DOT = '.';
     private static final char OPEN_BRACKET = '[';
     private static final char CLOSE_BRACKET = ']';
+    private static final char STAR = '*';
+    private static final char QUESTION_MARK = '?';
+    private static final char OPEN_PAREN = '(';
+    private static final char CLOSE_PAREN = ')';
+    private static final char AT = '@';
+    private static final char EQUALS = '=';
+    private static final char BANG = '!';
     private static final char UNICODE_CARET = '\u2038';
 
     private final String path;
@@ -43,25 +54,103 @@ public class JsonPathTokenizer extends AbstractIterator<String> {
     }
 
     @Override
-    protected String computeNext() {
+    protected JsonPathStep computeNext() {
         if (!hasNextCharacter()) {
             return endOfData();
         }
 
         if (tryMatch(DOT)) {
-            return matchPathSegment();
+            if (tryMatch(DOT)) {
+                return JsonPathStep.descendant(tryMatch(STAR) ? null : matchPathSegment());
+            }
+            return tryMatch(STAR) ? JsonPathStep.wildcard() : JsonPathStep.field(matchPathSegment());
         }
 
         if (tryMatch(OPEN_BRACKET)) {
-            String token = tryMatch(QUOTE) ? matchQuotedSubscript() : matchUnquotedSubscript();
+            JsonPathStep step;
+            if (tryMatch(STAR)) {
+                step = JsonPathStep.wildcard();
+            } else if (tryMatch(QUESTION_MARK)) {
+                step = matchFilter();
+            } else {
+                step = JsonPathStep.field(tryMatch(QUOTE) ? matchQuotedSubscript() : matchUnquotedSubscript());
+            }
 
             match(CLOSE_BRACKET);
-            return token;
+            return step;
         }
 
         throw invalidJsonPath();
     }
 
+    /**
+     * 匹配(@.k == 'v')，?已匹配
+     */
+    private JsonPathStep matchFilter() {
+        match(OPEN_PAREN);
+        skipWhitespace();
+
+        // the relative path after @ only has plain field and index steps
+        int start = index;
+        match(AT);
+        while (hasNextCharacter() && !isWhitespace(peekCharacter()) && peekCharacter() != EQUALS && peekCharacter() != BANG) {
+            nextCharacter();
+        }
+        ImmutableList.Builder<String> tokens = ImmutableList.builder();
+        try {
+            JsonPathTokenizer relativeTokenizer = new JsonPathTokenizer("$" + path.substring(start + 1, index));
+            while (relativeTokenizer.hasNext()) {
+                JsonPathStep step = relativeTokenizer.next();
+                if (step.getType() != JsonPathStep.Type.FIELD) {
+                    throw invalidJsonPath();
+                }
+                tokens.add(step.getName());
+            }
+        } catch (RuntimeException e) {
+            throw invalidJsonPath();
+        }
+        skipWhitespace();
+
+        boolean negated = tryMatch(BANG);
+        if (!negated) {
+            match(EQUALS);
+        }
+        match(EQUALS);
+        skipWhitespace();
+
+        String literal;
+        boolean quoted = tryMatch(SINGLE_QUOTE) || tryMatch(QUOTE);
+        if (quoted) {
+            char quote = path.charAt(index - 1);
+            int literalStart = index;
+            while (hasNextCharacter() && peekCharacter() != quote) {
+                nextCharacter();
+            }
+            literal = path.substring(literalStart, index);
+            match(quote);
+        } else {
+            int literalStart = index;
+            while (hasNextCharacter() && !isWhitespace(peekCharacter()) && peekCharacter() != CLOSE_PAREN) {
+                nextCharacter();
+            }
+            literal = path.substring(literalStart, index);
+        }
+        skipWhitespace();
+        match(CLOSE_PAREN);
+
+        JsonPathStep step = JsonPathStep.filter(tokens.build(), negated, literal, quoted);
+        if (step == null) {
+            throw invalidJsonPath();
+        }
+        return step;
+    }
+
+    private void skipWhitespace() {
+        while (hasNextCharacter() && isWhitespace(peekCharacter())) {
+            nextCharacter();
+        }
+    }
+
     private String matchPathSegment() {
         // seek until we see a special character or whitespace
         int start = index;
@@ -101,14 +190,25 @@ public class JsonPathTokenizer extends AbstractIterator<String> {
     private String matchQuotedSubscript() {
         // quote has already been matched
 
-        // seek until we see the close quote
+        // seek until we see the close quote, \" and \\ are escaped quote and backslash
         int start = index;
+        StringBuilder unescaped = null;
         while (hasNextCharacter() && peekCharacter() != QUOTE) {
+            char c = peekCharacter();
             nextCharacter();
+            if (c == BACKSLASH && hasNextCharacter() && (peekCharacter() == QUOTE || peekCharacter() == BACKSLASH)) {
+                if (unescaped == null) {
+                    unescaped = new StringBuilder(path.substring(start, index - 1));
+                }
+                unescaped.append(peekCharacter());
+                nextCharacter();
+            } else if (unescaped != null) {
+                unescaped.append(c);
+            }
         }
         int end = index;
 
-        String token = path.substring(start, end);
+        String token = unescaped == null ? path.substring(start, end) : unescaped.toString();
 
         match(QUOTE);
         return token;
@@ -125,7 +225,7 @@ public class JsonPathTokenizer extends AbstractIterator<String> {
     }
 
     private boolean tryMatch(char expected) {
-        if (peekCharacter() != expected) {
+        if (!hasNextCharacter() || peekCharacter() != expected) {
             return false;
         }
         index++;
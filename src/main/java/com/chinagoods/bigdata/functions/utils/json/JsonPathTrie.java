@@ -0,0 +1,231 @@
+package com.chinagoods.bigdata.functions.utils.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.base.Throwables;
+import org.apache.hadoop.io.Text;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.fasterxml.jackson.core.JsonFactory.Feature.CANONICALIZE_FIELD_NAMES;
+import static com.fasterxml.jackson.core.JsonToken.*;
+
+/**
+ * 将多个json path按前缀合并为一棵trie，一次流式解析同时求出全部path的标量值
+ * 每个path的结果与对其单独调用json_extract_scalar一致：标量返回文本，对象、数组、null及不存在返回null
+ * 解析时跳过没有path需要的子树，全部path都有结果后立即停止解析
+ * <p>
+ * 实例持有解析过程中的状态，非线程安全，每个函数实例各自创建
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public class JsonPathTrie {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(CANONICALIZE_FIELD_NAMES);
+
+    private final Node root = new Node();
+    private final int size;
+
+    private String[] results;
+    private final boolean[] found;
+    private int remaining;
+
+    public JsonPathTrie(List<JsonPath> paths) {
+        size = paths.size();
+        found = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            Node node = root;
+            for (String token : paths.get(i).getTokens()) {
+                node = node.child(token);
+            }
+            node.paths = Arrays.copyOf(node.paths, node.paths.length + 1);
+            node.paths[node.paths.length - 1] = i;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 解析json，将第i个path的结果写入results[i]，json在找到某个path之前就不合法时该path结果为null
+     *
+     * @param jsonInput json文本
+     * @param results   长度不小于size()的结果数组
+     */
+    public void extract(String jsonInput, String[] results) {
+        if (jsonInput == null) {
+            throw new NullPointerException("jsonInput is null");
+        }
+        try {
+            extract(JSON_FACTORY.createParser(jsonInput), results);
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * 同extract(String, String[])，直接解析Text的UTF-8字节
+     */
+    public void extract(Text jsonInput, String[] results) {
+        if (jsonInput == null) {
+            throw new NullPointerException("jsonInput is null");
+        }
+        try {
+            extract(JsonExtract.UTF8_JSON_FACTORY.createParser(jsonInput.getBytes(), 0, jsonInput.getLength()), results);
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private void extract(JsonParser jsonParser, String[] results) throws IOException {
+        this.results = results;
+        Arrays.fill(results, 0, size, null);
+        Arrays.fill(found, false);
+        remaining = size;
+
+        try {
+            if (jsonParser.nextToken() != null) {
+                resolve(jsonParser, root);
+            }
+        } catch (JsonParseException e) {
+            // paths not resolved before the malformed part stay null
+        } finally {
+            this.results = null;
+        }
+    }
+
+    /**
+     * 解析器位于node对应值的第一个token，返回时位于该值的最后一个token(全部path已有结果而提前结束时除外)
+     */
+    private void resolve(JsonParser jsonParser, Node node) throws IOException {
+        JsonToken token = jsonParser.getCurrentToken();
+        if (token.isScalarValue()) {
+            String value = token == VALUE_NULL ? null : jsonParser.getText();
+            for (int path : node.paths) {
+                setResult(path, value);
+            }
+            return;
+        }
+
+        for (int path : node.paths) {
+            setResult(path, null);
+        }
+        if (token == START_OBJECT && !node.fields.isEmpty()) {
+            while ((token = jsonParser.nextToken()) == FIELD_NAME) {
+                Node child = node.fields.get(jsonParser.getCurrentName());
+                jsonParser.nextToken();
+                if (child == null) {
+                    jsonParser.skipChildren();
+                    continue;
+                }
+                resolve(jsonParser, child);
+                if (remaining == 0) {
+                    return;
+                }
+            }
+            if (token != END_OBJECT) {
+                throw new JsonParseException("Unexpected end of object", jsonParser.getCurrentLocation());
+            }
+        } else if (token == START_ARRAY && !node.elements.isEmpty()) {
+            int index = 0;
+            while ((token = jsonParser.nextToken()) != END_ARRAY) {
+                if (token == null) {
+                    throw new JsonParseException("Unexpected end of array", jsonParser.getCurrentLocation());
+                }
+                List<Node> children = node.elements.get(index++);
+                if (children == null) {
+                    jsonParser.skipChildren();
+                    continue;
+                }
+                if (children.size() == 1) {
+                    resolve(jsonParser, children.get(0));
+                } else {
+                    resolveEach(jsonParser, children);
+                }
+                if (remaining == 0) {
+                    return;
+                }
+            }
+        } else {
+            jsonParser.skipChildren();
+        }
+    }
+
+    /**
+     * 同一数组元素被多个下标写法(如[1]与[01])引用时，先缓存元素文本再分别解析
+     */
+    private void resolveEach(JsonParser jsonParser, List<Node> nodes) throws IOException {
+        StringWriter stringWriter = new StringWriter();
+        JsonGenerator jsonGenerator = JSON_FACTORY.createGenerator(stringWriter);
+        jsonGenerator.copyCurrentStructure(jsonParser);
+        jsonGenerator.close();
+        String element = stringWriter.toString();
+        for (Node node : nodes) {
+            JsonParser elementParser = JSON_FACTORY.createParser(element);
+            elementParser.nextToken();
+            resolve(elementParser, node);
+        }
+    }
+
+    private void setResult(int path, String value) {
+        if (!found[path]) {
+            found[path] = true;
+            results[path] = value;
+            remaining--;
+        }
+    }
+
+    private static final class Node {
+        private static final int[] NO_PATHS = {};
+
+        /**
+         * 在此结束的path下标
+         */
+        private int[] paths = NO_PATHS;
+        /**
+         * 当前值为对象时按字段名匹配的子节点
+         */
+        private final Map<String, Node> fields = new HashMap<>();
+        /**
+         * 当前值为数组时按下标匹配的子节点，与JsonExtract一致，能解析为整数的token也作为数组下标
+         */
+        private final Map<Integer, List<Node>> elements = new HashMap<>();
+
+        private Node child(String token) {
+            Node child = fields.get(token);
+            if (child == null) {
+                child = new Node();
+                fields.put(token, child);
+                int index = parseIndex(token);
+                if (index >= 0) {
+                    List<Node> nodes = elements.get(index);
+                    if (nodes == null) {
+                        nodes = new ArrayList<>(1);
+                        elements.put(index, nodes);
+                    }
+                    nodes.add(child);
+                }
+            }
+            return child;
+        }
+
+        private static int parseIndex(String token) {
+            try {
+                return Integer.parseInt(token);
+            } catch (NumberFormatException ignored) {
+                return -1;
+            }
+        }
+    }
+}
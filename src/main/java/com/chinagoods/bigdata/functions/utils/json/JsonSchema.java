@@ -0,0 +1,250 @@
+package com.chinagoods.bigdata.functions.utils.json;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.base.Throwables;
+import org.apache.hadoop.io.Text;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.fasterxml.jackson.core.JsonToken.*;
+
+/**
+ * 流式解析json，按path统计各类型值出现的次数，用于推断一批json的结构
+ * path与json path写法一致，对象字段为$.a.b，不能直接写为.name的字段为$["a b"]，数组元素统一记为$.a[*]
+ * 每个path对应一个长度为NUMBER_OF_TYPES的计数数组，下标为OBJECT、ARRAY等类型常量
+ * <p>
+ * 逐行解析时沿已出现过的path组成的树向下匹配，只在第一次出现新path时生成path字符串
+ * 其他实例的统计结果可通过add(path, type, count)合并，path数量超过上限后新出现的path及其子节点不再统计
+ * json不合法时，不合法位置之前的值仍计入统计
+ * <p>
+ * 实例非线程安全
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public class JsonSchema {
+    public static final int OBJECT = 0;
+    public static final int ARRAY = 1;
+    public static final int STRING = 2;
+    public static final int INTEGER = 3;
+    public static final int FLOAT = 4;
+    public static final int BOOLEAN = 5;
+    public static final int NULL = 6;
+    public static final int NUMBER_OF_TYPES = 7;
+
+    public static final int DEFAULT_MAXIMUM_PATHS = 10000;
+
+    private static final String[] TYPE_NAMES = {"object", "array", "string", "integer", "float", "boolean", "null"};
+    private static final String ROOT_PATH = "$";
+    private static final String ELEMENTS_PATH = "[*]";
+
+    private final int maximumPaths;
+    /**
+     * path -> 各类型出现次数
+     */
+    private final Map<String, long[]> counts = new HashMap<>();
+    private Node root;
+
+    public JsonSchema() {
+        this(DEFAULT_MAXIMUM_PATHS);
+    }
+
+    public JsonSchema(int maximumPaths) {
+        this.maximumPaths = maximumPaths;
+    }
+
+    /**
+     * 统计一个json中全部path的值类型
+     */
+    public void add(Text json) {
+        if (json == null) {
+            throw new NullPointerException("json is null");
+        }
+        if (root == null) {
+            long[] rootCounts = counts(ROOT_PATH);
+            if (rootCounts == null) {
+                return;
+            }
+            root = new Node(ROOT_PATH, rootCounts);
+        }
+        try (JsonParser jsonParser = JsonExtract.UTF8_JSON_FACTORY.createParser(json.getBytes(), 0, json.getLength())) {
+            if (jsonParser.nextToken() != null) {
+                add(jsonParser, root);
+            }
+        } catch (JsonParseException e) {
+            // values before the malformed part stay counted
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * 解析器位于node对应值的第一个token，返回时位于该值的最后一个token
+     */
+    private void add(JsonParser jsonParser, Node node) throws IOException {
+        JsonToken token = jsonParser.getCurrentToken();
+        node.typeCounts[typeOf(token)]++;
+        if (token == START_OBJECT) {
+            while ((token = jsonParser.nextToken()) == FIELD_NAME) {
+                Node child = node.field(jsonParser.getCurrentName());
+                jsonParser.nextToken();
+                if (child == null) {
+                    jsonParser.skipChildren();
+                } else {
+                    add(jsonParser, child);
+                }
+            }
+            if (token != END_OBJECT) {
+                throw new JsonParseException("Unexpected end of object", jsonParser.getCurrentLocation());
+            }
+        } else if (token == START_ARRAY) {
+            while ((token = jsonParser.nextToken()) != END_ARRAY) {
+                if (token == null) {
+                    throw new JsonParseException("Unexpected end of array", jsonParser.getCurrentLocation());
+                }
+                Node child = node.elements();
+                if (child == null) {
+                    jsonParser.skipChildren();
+                } else {
+                    add(jsonParser, child);
+                }
+            }
+        }
+    }
+
+    /**
+     * 合并其他实例的统计结果
+     */
+    public void add(String path, int type, long count) {
+        long[] pathCounts = counts(path);
+        if (pathCounts != null) {
+            pathCounts[type] += count;
+        }
+    }
+
+    /**
+     * @return path -> 各类型出现次数，只读视图
+     */
+    public Map<String, long[]> getCounts() {
+        return Collections.unmodifiableMap(counts);
+    }
+
+    public void reset() {
+        counts.clear();
+        root = null;
+    }
+
+    /**
+     * @return path的计数数组，path数量已达上限时返回null
+     */
+    private long[] counts(String path) {
+        long[] pathCounts = counts.get(path);
+        if (pathCounts == null && counts.size() < maximumPaths) {
+            pathCounts = new long[NUMBER_OF_TYPES];
+            counts.put(path, pathCounts);
+        }
+        return pathCounts;
+    }
+
+    /**
+     * @return 出现过的非null类型按类型常量顺序以|连接，只出现过null时为null
+     */
+    public static String typeName(long[] typeCounts) {
+        StringBuilder name = new StringBuilder();
+        for (int type = 0; type < NULL; type++) {
+            if (typeCounts[type] > 0) {
+                if (name.length() > 0) {
+                    name.append('|');
+                }
+                name.append(TYPE_NAMES[type]);
+            }
+        }
+        return name.length() == 0 ? TYPE_NAMES[NULL] : name.toString();
+    }
+
+    private static int typeOf(JsonToken token) {
+        switch (token) {
+            case START_OBJECT:
+                return OBJECT;
+            case START_ARRAY:
+                return ARRAY;
+            case VALUE_NUMBER_INT:
+                return INTEGER;
+            case VALUE_NUMBER_FLOAT:
+                return FLOAT;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return BOOLEAN;
+            case VALUE_NULL:
+                return NULL;
+            default:
+                return STRING;
+        }
+    }
+
+    private static String fieldPath(String parent, String fieldName) {
+        if (fieldName.isEmpty()) {
+            return parent + "[\"\"]";
+        }
+        for (int i = 0; i < fieldName.length(); i++) {
+            char c = fieldName.charAt(i);
+            if (c != ':' && c != '_' && !Character.isLetterOrDigit(c)) {
+                return parent + "[\"" + fieldName.replace("\\", "\\\\").replace("\"", "\\\"") + "\"]";
+            }
+        }
+        return parent + "." + fieldName;
+    }
+
+    private final class Node {
+        private final String path;
+        private final long[] typeCounts;
+        /**
+         * 超出path上限而被忽略的字段映射为null，避免逐行重复生成path
+         */
+        private Map<String, Node> fields;
+        private Node elements;
+
+        private Node(String path, long[] typeCounts) {
+            this.path = path;
+            this.typeCounts = typeCounts;
+        }
+
+        /**
+         * @return 字段对应的子节点，path数量已达上限时返回null
+         */
+        private Node field(String fieldName) {
+            if (fields == null) {
+                fields = new HashMap<>();
+            }
+            Node child = fields.get(fieldName);
+            if (child == null && !fields.containsKey(fieldName)) {
+                String childPath = fieldPath(path, fieldName);
+                long[] childCounts = counts(childPath);
+                if (childCounts != null) {
+                    child = new Node(childPath, childCounts);
+                    fields.put(fieldName, child);
+                } else if (fields.size() < maximumPaths) {
+                    fields.put(fieldName, null);
+                }
+            }
+            return child;
+        }
+
+        private Node elements() {
+            if (elements == null) {
+                String childPath = path + ELEMENTS_PATH;
+                long[] childCounts = counts(childPath);
+                if (childCounts == null) {
+                    return null;
+                }
+                elements = new Node(childPath, childCounts);
+            }
+            return elements;
+        }
+    }
+}
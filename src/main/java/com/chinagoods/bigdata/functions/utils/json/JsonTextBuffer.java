@@ -0,0 +1,77 @@
+package com.chinagoods.bigdata.functions.utils.json;
+
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
+
+import java.io.CharArrayWriter;
+import java.io.Writer;
+
+/**
+ * 可复用的json输出缓冲区：jackson以字符生成到内部字符缓冲，再一次性编码为UTF-8字节
+ * 不直接使用jackson的UTF-8 generator，是因为它会把辅助平面字符(如emoji)输出为转义序列，与按字符生成再编码的结果不一致
+ * <p>
+ * 非线程安全，toUtf8返回的Slice指向内部缓冲区，仅在下一次写入前有效
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public final class JsonTextBuffer {
+    private static final int INITIAL_SIZE = 256;
+
+    private final ReusableCharArrayWriter chars = new ReusableCharArrayWriter();
+    private final DynamicSliceOutput bytes = new DynamicSliceOutput(INITIAL_SIZE);
+
+    /**
+     * 清空字符缓冲并返回其Writer，用于创建或继续使用jackson generator
+     */
+    public Writer reset() {
+        chars.reset();
+        return chars;
+    }
+
+    /**
+     * 将reset之后写入的字符编码为UTF-8
+     */
+    public Slice toUtf8() {
+        return toUtf8(chars.buffer(), 0, chars.size());
+    }
+
+    /**
+     * 将给定字符编码为UTF-8，不成对的代理字符与String.getBytes(UTF_8)一样替换为'?'
+     */
+    public Slice toUtf8(char[] text, int offset, int length) {
+        bytes.reset();
+        for (int i = offset, end = offset + length; i < end; i++) {
+            char c = text[i];
+            if (c < 0x80) {
+                bytes.appendByte(c);
+            } else if (c < 0x800) {
+                bytes.appendByte(0xc0 | (c >> 6));
+                bytes.appendByte(0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text[i + 1])) {
+                int codePoint = Character.toCodePoint(c, text[++i]);
+                bytes.appendByte(0xf0 | (codePoint >> 18));
+                bytes.appendByte(0x80 | ((codePoint >> 12) & 0x3f));
+                bytes.appendByte(0x80 | ((codePoint >> 6) & 0x3f));
+                bytes.appendByte(0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                bytes.appendByte('?');
+            } else {
+                bytes.appendByte(0xe0 | (c >> 12));
+                bytes.appendByte(0x80 | ((c >> 6) & 0x3f));
+                bytes.appendByte(0x80 | (c & 0x3f));
+            }
+        }
+        return bytes.slice();
+    }
+
+    private static final class ReusableCharArrayWriter extends CharArrayWriter {
+        private ReusableCharArrayWriter() {
+            super(INITIAL_SIZE);
+        }
+
+        private char[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -6,11 +6,14 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.MappingJsonFactory;
 import com.google.common.collect.Lists;
+import org.apache.hadoop.io.Text;
 
 import java.io.IOException;
 import java.util.List;
 
 import static com.fasterxml.jackson.core.JsonFactory.Feature.CANONICALIZE_FIELD_NAMES;
+import static com.fasterxml.jackson.core.JsonFactory.Feature.FAIL_ON_SYMBOL_HASH_OVERFLOW;
+import static com.fasterxml.jackson.core.JsonFactory.Feature.INTERN_FIELD_NAMES;
 import static com.fasterxml.jackson.core.JsonToken.*;
 
 /**
@@ -25,9 +28,34 @@ public class JsonUtils {
     private static final JsonFactory MAPPING_JSON_FACTORY = new MappingJsonFactory()
             .disable(CANONICALIZE_FIELD_NAMES);
 
+    /**
+     * 字节输入用的factory，原因见JsonExtract.UTF8_JSON_FACTORY
+     */
+    private static final JsonFactory UTF8_MAPPING_JSON_FACTORY = new MappingJsonFactory()
+            .disable(INTERN_FIELD_NAMES)
+            .disable(FAIL_ON_SYMBOL_HASH_OVERFLOW);
+
     public static Long jsonArrayLength(String jsonString) {
         try {
-            JsonParser parser = JSON_FACTORY.createParser(jsonString);
+            return jsonArrayLength(JSON_FACTORY.createParser(jsonString));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 同jsonArrayLength(String)，直接解析Text的UTF-8字节
+     */
+    public static Long jsonArrayLength(Text json) {
+        try {
+            return jsonArrayLength(JsonExtract.UTF8_JSON_FACTORY.createParser(json.getBytes(), 0, json.getLength()));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static Long jsonArrayLength(JsonParser parser) {
+        try {
             if (parser.nextToken() != START_ARRAY) {
                 return null;
             }
@@ -51,8 +79,25 @@ public class JsonUtils {
 
     public static String jsonArrayGet(String json, long index) {
         try {
-            JsonParser parser = MAPPING_JSON_FACTORY.createParser(json);
+            return jsonArrayGet(MAPPING_JSON_FACTORY.createParser(json), index);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 同jsonArrayGet(String, long)，直接解析Text的UTF-8字节
+     */
+    public static String jsonArrayGet(Text json, long index) {
+        try {
+            return jsonArrayGet(UTF8_MAPPING_JSON_FACTORY.createParser(json.getBytes(), 0, json.getLength()), index);
+        } catch (IOException e) {
+            return null;
+        }
+    }
 
+    private static String jsonArrayGet(JsonParser parser, long index) {
+        try {
             if (parser.nextToken() != START_ARRAY) {
                 return null;
             }
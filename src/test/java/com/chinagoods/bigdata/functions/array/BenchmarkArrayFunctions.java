@@ -0,0 +1,109 @@
+package com.chinagoods.bigdata.functions.array;
+
+import com.chinagoods.bigdata.functions.utils.BenchmarkCorpus;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数组函数基准测试，样本为nginx日志页面地址按/?&=切分后的片段数组
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@BenchmarkMode(Mode.Throughput)
+public class BenchmarkArrayFunctions {
+    private static final Splitter URL_SPLITTER = Splitter.onPattern("[/?&=]").omitEmptyStrings();
+    private static final List<String> AD_PARAMS = ImmutableList.of("utm_campaign", "utm_source", "utm_medium", "utm_content", "from", "spm");
+
+    private final UDFArrayContains arrayContains = new UDFArrayContains();
+    private final UDFArrayIntersect arrayIntersect = new UDFArrayIntersect();
+    private final UDFArrayDistinct arrayDistinct = new UDFArrayDistinct();
+    private final UDFArrayJoin arrayJoin = new UDFArrayJoin();
+
+    private BenchmarkCorpus.Cursor<GenericUDF.DeferredObject[]> containsArgs;
+    private BenchmarkCorpus.Cursor<GenericUDF.DeferredObject[]> intersectArgs;
+    private BenchmarkCorpus.Cursor<GenericUDF.DeferredObject[]> distinctArgs;
+    private BenchmarkCorpus.Cursor<GenericUDF.DeferredObject[]> joinArgs;
+
+    @Setup
+    public void setup() throws HiveException {
+        containsArgs = BenchmarkCorpus.cursor(BenchmarkCorpus.NGINX_URLS, url -> new GenericUDF.DeferredObject[]{
+                new GenericUDF.DeferredJavaObject(segments(url)), new GenericUDF.DeferredJavaObject("utm_source")});
+        intersectArgs = BenchmarkCorpus.cursor(BenchmarkCorpus.NGINX_URLS, url -> new GenericUDF.DeferredObject[]{
+                new GenericUDF.DeferredJavaObject(segments(url)), new GenericUDF.DeferredJavaObject(AD_PARAMS)});
+        distinctArgs = BenchmarkCorpus.cursor(BenchmarkCorpus.NGINX_URLS, url -> new GenericUDF.DeferredObject[]{
+                new GenericUDF.DeferredJavaObject(segments(url))});
+        joinArgs = BenchmarkCorpus.cursor(BenchmarkCorpus.NGINX_URLS, url -> new GenericUDF.DeferredObject[]{
+                new GenericUDF.DeferredJavaObject(segments(url)), new GenericUDF.DeferredJavaObject(",")});
+
+        ObjectInspector stringOI = PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+        ObjectInspector stringArrayOI = ObjectInspectorFactory.getStandardListObjectInspector(stringOI);
+        arrayContains.initialize(new ObjectInspector[]{stringArrayOI, stringOI});
+        arrayIntersect.initialize(new ObjectInspector[]{stringArrayOI, stringArrayOI});
+        arrayDistinct.initialize(new ObjectInspector[]{stringArrayOI});
+        arrayJoin.initialize(new ObjectInspector[]{stringArrayOI, stringOI});
+    }
+
+    private static List<String> segments(String url) {
+        return ImmutableList.copyOf(URL_SPLITTER.split(url));
+    }
+
+    @Benchmark
+    public Object arrayContains() throws HiveException {
+        return arrayContains.evaluate(containsArgs.next());
+    }
+
+    @Benchmark
+    public Object arrayIntersect() throws HiveException {
+        return arrayIntersect.evaluate(intersectArgs.next());
+    }
+
+    @Benchmark
+    public Object arrayDistinct() throws HiveException {
+        return arrayDistinct.evaluate(distinctArgs.next());
+    }
+
+    @Benchmark
+    public Object arrayJoin() throws HiveException {
+        return arrayJoin.evaluate(joinArgs.next());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkArrayFunctions.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,112 @@
+package com.chinagoods.bigdata.functions.ip;
+
+import com.chinagoods.bigdata.functions.utils.BenchmarkCorpus;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ip2region基准测试，样本为访问来源ip
+ * 运行前需将ip2region.db(及可选的ip2region_v6.txt)放入工作目录或classpath(如src/main/resources)，该文件不随代码提交
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@BenchmarkMode(Mode.Throughput)
+public class BenchmarkIP2Region {
+    private static final IntWritable COUNTRY_POS = new IntWritable(IP2RegionIndex.COUNTRY);
+    private static final IntWritable PROVINCE_POS = new IntWritable(IP2RegionIndex.PROVINCE);
+    private static final IntWritable CITY_POS = new IntWritable(IP2RegionIndex.CITY);
+    private static final IntWritable ISP_POS = new IntWritable(IP2RegionIndex.ISP);
+
+    private final UDFIP2Region ip2Region = new UDFIP2Region();
+    private final UDFIP2RegionStruct ip2RegionStruct = new UDFIP2RegionStruct();
+
+    private BenchmarkCorpus.Cursor<Text> ips;
+    private BenchmarkCorpus.Cursor<Text> ipv6s;
+    private final GenericUDF.DeferredObject[] arguments = {() -> ips.next()};
+
+    @Setup
+    public void setup() throws HiveException, IOException {
+        // 找不到ip2region.db时直接失败
+        IP2RegionIndex.getInstance();
+        ips = BenchmarkCorpus.cursor(BenchmarkCorpus.IPS, Text::new);
+        ipv6s = BenchmarkCorpus.cursor(BenchmarkCorpus.IPV6S, Text::new);
+        // 预先执行一次，避免首次调用的耗时计入预热
+        ip2Region.evaluate(ips.next(), PROVINCE_POS);
+        ip2RegionStruct.initialize(new ObjectInspector[]{PrimitiveObjectInspectorFactory.writableStringObjectInspector});
+    }
+
+    @Benchmark
+    public Text ip2RegionProvince() throws HiveException {
+        return ip2Region.evaluate(ips.next(), PROVINCE_POS);
+    }
+
+    @Benchmark
+    public Text ip2RegionContent() throws HiveException {
+        return ip2Region.evaluate(ips.next());
+    }
+
+    /**
+     * ipv6区间来自工作目录或classpath下的ip2region_v6.txt，不存在时全部查不到，只剩解析的开销
+     */
+    @Benchmark
+    public Text ip2RegionIpv6Content() throws HiveException {
+        return ip2Region.evaluate(ipv6s.next());
+    }
+
+    /**
+     * 一次返回country、area、province、city、isp与city_id，对比多次调用ip2region(ip, pos)
+     */
+    @Benchmark
+    public Object ip2RegionStruct() throws HiveException {
+        return ip2RegionStruct.evaluate(arguments);
+    }
+
+    @Benchmark
+    public void ip2RegionFourFields(Blackhole blackhole) throws HiveException {
+        Text next = ips.next();
+        blackhole.consume(ip2Region.evaluate(next, COUNTRY_POS));
+        blackhole.consume(ip2Region.evaluate(next, PROVINCE_POS));
+        blackhole.consume(ip2Region.evaluate(next, CITY_POS));
+        blackhole.consume(ip2Region.evaluate(next, ISP_POS));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkIP2Region.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
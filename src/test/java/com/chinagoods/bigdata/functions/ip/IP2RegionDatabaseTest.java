@@ -0,0 +1,42 @@
+package com.chinagoods.bigdata.functions.ip;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.lionsoul.ip2region.DataBlock;
+import org.lionsoul.ip2region.DbConfig;
+import org.lionsoul.ip2region.DbSearcher;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IP2RegionDatabaseTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSearchMatchesDbSearcher() throws Exception {
+        IP2RegionTestDatabase db = new IP2RegionTestDatabase(20221018L, 500);
+        File file = temporaryFolder.newFile(IP2RegionDatabase.DB_FILE_NAME);
+        Files.write(file.toPath(), db.bytes);
+        IP2RegionDatabase database = IP2RegionDatabase.map(file);
+        DbSearcher searcher = new DbSearcher(new DbConfig(), db.bytes);
+
+        Random random = new Random(20221018L);
+        for (int i = 0; i < 10000; i++) {
+            long ip = i < db.startIps.length ? db.startIps[i] : random.nextLong() & 0xFFFFFFFFL;
+            assertDataBlockEquals(searcher.memorySearch(ip), database.search(ip));
+        }
+        assertDataBlockEquals(searcher.memorySearch(0xFFFFFFFFL), database.search(0xFFFFFFFFL));
+        assertEquals(db.regions[0], database.search(0).getRegion());
+    }
+
+    private static void assertDataBlockEquals(DataBlock expected, DataBlock actual) {
+        assertEquals(expected.getRegion(), actual.getRegion());
+        assertEquals(expected.getCityId(), actual.getCityId());
+        assertEquals(expected.getDataPtr(), actual.getDataPtr());
+    }
+}
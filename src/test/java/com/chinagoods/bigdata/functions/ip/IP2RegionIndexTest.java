@@ -0,0 +1,195 @@
+package com.chinagoods.bigdata.functions.ip;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.io.Text;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.lionsoul.ip2region.DataBlock;
+import org.lionsoul.ip2region.DbConfig;
+import org.lionsoul.ip2region.DbSearcher;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IP2RegionIndexTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testFindMatchesDbSearcher() throws Exception {
+        IP2RegionTestDatabase db = new IP2RegionTestDatabase(20221018L, 500);
+        File file = temporaryFolder.newFile(IP2RegionDatabase.DB_FILE_NAME);
+        Files.write(file.toPath(), db.bytes);
+        IP2RegionIndex index = IP2RegionIndex.build(IP2RegionDatabase.map(file));
+        DbSearcher searcher = new DbSearcher(new DbConfig(), db.bytes);
+
+        Random random = new Random(20221018L);
+        for (int i = 0; i < 10000; i++) {
+            long ip = i < db.endIps.length ? db.endIps[i] : random.nextLong() & 0xFFFFFFFFL;
+            DataBlock expected = searcher.memorySearch(ip);
+            int region = index.find(ip);
+            if (expected == null) {
+                assertEquals(-1, region);
+                continue;
+            }
+            // the fields UDFIP2Region used to split out of the region on every row
+            String[] fields = StringUtils.split(expected.getRegion(), '|');
+            for (int pos = IP2RegionIndex.COUNTRY; pos <= IP2RegionIndex.ISP; pos++) {
+                assertEquals(pos < fields.length ? fields[pos] : "0", value(index, region, pos));
+            }
+            assertEquals(String.valueOf(expected.getCityId()), value(index, region, IP2RegionIndex.CITY_ID));
+            assertEquals(expected.getRegion(), value(index, region, IP2RegionIndex.CONTENT));
+            assertEquals(String.valueOf(expected.getDataPtr()), value(index, region, IP2RegionIndex.DATA_PTR));
+        }
+        assertEquals(db.regions[0], value(index, index.find(0), IP2RegionIndex.CONTENT));
+        assertEquals(db.regions[db.regions.length - 1], value(index, index.find(0xFFFFFFFFL), IP2RegionIndex.CONTENT));
+    }
+
+    @Test
+    public void testParseIpv4() {
+        assertEquals(0L, IP2RegionIndex.parseIpv4(new Text("0.0.0.0")));
+        assertEquals(0xFFFFFFFFL, IP2RegionIndex.parseIpv4(new Text("255.255.255.255")));
+        assertEquals(0x27B790ABL, IP2RegionIndex.parseIpv4(new Text(" 39.183.144.171\t")));
+        assertEquals(0x01020304L, IP2RegionIndex.parseIpv4(new Text("001.2.03.4")));
+        for (String ip : new String[]{"", " ", "1.2.3", "1.2.3.4.5", "1.2.3.", ".1.2.3", "1..2.3", "256.1.1.1",
+                "1.2.3.a", "1.2.3.1000", "1.2. 3.4", "::1", "-1.2.3.4"}) {
+            assertEquals(ip, -1L, IP2RegionIndex.parseIpv4(new Text(ip)));
+        }
+
+        // a reused Text keeps stale bytes past getLength()
+        Text text = new Text("1.2.3.45");
+        text.set("1.2.3.4");
+        assertEquals(0x01020304L, IP2RegionIndex.parseIpv4(text));
+    }
+
+    @Test
+    public void testParseIpv6() throws Exception {
+        long[] ip = new long[2];
+        assertIpv6("0:0:0:0:0:0:0:0", 0, 0);
+        assertIpv6("::", 0, 0);
+        assertIpv6("::1", 0, 1);
+        assertIpv6(" 240E:0390:0a01:1:0:0:0:ffff ", 0x240E03900A010001L, 0xFFFFL);
+        assertIpv6("240e:390::", 0x240E039000000000L, 0);
+        assertIpv6("1:2:3:4::5:6", 0x0001000200030004L, 0x0000000000050006L);
+        assertIpv6("1::2:3:4:5:6:7", 0x0001000000020003L, 0x0004000500060007L);
+        assertIpv6("::ffff:39.183.144.171", 0, 0xFFFF27B790ABL);
+        assertIpv6("64:ff9b::1.2.3.4", 0x0064FF9B00000000L, 0x01020304L);
+        for (String invalid : new String[]{"", ":", ":::", "1:2:3:4:5:6:7", "1:2:3:4:5:6:7:8:9", "1::2::3", ":1::2", "1::2:",
+                "12345::", "g::", "1:2:3:4:5:6:7::8", "::1.2.3", "::1.2.3.256", "1:2:3:4:5:6:7:1.2.3.4", "fe80::1%eth0",
+                "1.2.3.4"}) {
+            assertFalse(invalid, IP2RegionIndex.parseIpv6(new Text(invalid), ip));
+        }
+
+        // agrees with InetAddress for random addresses in full and :: compressed notation
+        Random random = new Random(20221018L);
+        for (int i = 0; i < 10000; i++) {
+            long high = random.nextLong();
+            long low = random.nextLong();
+            // long runs of zero groups so that :: has something to compress
+            if (random.nextBoolean()) {
+                high &= random.nextLong() | 0xFFFF0000FFFF0000L;
+                low &= random.nextLong() | 0x0000FFFF0000FFFFL;
+                low &= random.nextBoolean() ? 0xFFFFFFFFL : -1L;
+            }
+            byte[] address = new byte[16];
+            for (int b = 0; b < 8; b++) {
+                address[b] = (byte) (high >>> (56 - b * 8));
+                address[b + 8] = (byte) (low >>> (56 - b * 8));
+            }
+            String text = InetAddress.getByAddress(address).getHostAddress();
+            assertIpv6(text, high, low);
+            assertIpv6(compress(text), high, low);
+        }
+    }
+
+    @Test
+    public void testFindIpv6() throws Exception {
+        IP2RegionTestDatabase db = new IP2RegionTestDatabase(20221018L, 100);
+        File file = temporaryFolder.newFile(IP2RegionDatabase.DB_FILE_NAME);
+        Files.write(file.toPath(), db.bytes);
+
+        // disjoint ranges in random order with gaps between them, as in ip2region_v6.txt
+        Random random = new Random(20221018L);
+        int numberOfRanges = 2000;
+        BigInteger[] bounds = new BigInteger[numberOfRanges * 2];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = new BigInteger(128, random);
+        }
+        Arrays.sort(bounds);
+        StringBuilder lines = new StringBuilder("# ipv6 ranges\n\n");
+        for (int i = numberOfRanges - 1; i >= 0; i--) {
+            lines.append(toIpv6(bounds[i * 2])).append('|').append(toIpv6(bounds[i * 2 + 1])).append('|')
+                    .append(IP2RegionTestDatabase.REGIONS[i % IP2RegionTestDatabase.REGIONS.length]).append('\n');
+        }
+        lines.append("::ffff:0:0|::ffff:ffff:ffff|中国|0|0|0|0\n");
+        IP2RegionIndex index = IP2RegionIndex.build(IP2RegionDatabase.map(file),
+                new BufferedReader(new StringReader(lines.toString())));
+
+        long[] ip = new long[2];
+        for (int i = 0; i < bounds.length; i++) {
+            String expected = IP2RegionTestDatabase.REGIONS[i / 2 % IP2RegionTestDatabase.REGIONS.length];
+            assertEquals(expected, value(index, index.find(new Text(toIpv6(bounds[i])), ip), IP2RegionIndex.CONTENT));
+            // the address just past each range end falls into a gap
+            if (i % 2 == 1) {
+                assertEquals(IP2RegionIndex.IPV6_NOT_FOUND, index.find(new Text(toIpv6(bounds[i].add(BigInteger.ONE))), ip));
+            }
+        }
+        // ipv4-mapped addresses use the ipv4 ranges, ipv4 regions keep their city_id and data_ptr
+        DbSearcher searcher = new DbSearcher(new DbConfig(), db.bytes);
+        DataBlock expected = searcher.memorySearch(0x27B790ABL);
+        int region = index.find(new Text("::ffff:39.183.144.171"), ip);
+        assertEquals(expected.getRegion(), value(index, region, IP2RegionIndex.CONTENT));
+        assertEquals(String.valueOf(expected.getCityId()), value(index, region, IP2RegionIndex.CITY_ID));
+        assertEquals("0", value(index, index.find(new Text(toIpv6(bounds[0])), ip), IP2RegionIndex.CITY_ID));
+        assertEquals(IP2RegionIndex.INVALID_IP, index.find(new Text("1.2.3.a"), ip));
+    }
+
+    private static void assertIpv6(String text, long high, long low) {
+        long[] ip = new long[2];
+        assertTrue(text, IP2RegionIndex.parseIpv6(new Text(text), ip));
+        assertEquals(text, high, ip[0]);
+        assertEquals(text, low, ip[1]);
+    }
+
+    /**
+     * 将最长的一段连续0组缩写为::
+     */
+    private static String compress(String ipv6) {
+        String full = ":" + ipv6 + ":";
+        for (int groups = 8; groups > 0; groups--) {
+            StringBuilder zeros = new StringBuilder(":");
+            for (int i = 0; i < groups; i++) {
+                zeros.append("0:");
+            }
+            int index = full.indexOf(zeros.toString());
+            if (index >= 0) {
+                String compressed = full.substring(0, index) + "::" + full.substring(index + zeros.length());
+                return compressed.replaceAll("^:([^:])", "$1").replaceAll("([^:]):$", "$1");
+            }
+        }
+        return ipv6;
+    }
+
+    private static String toIpv6(BigInteger value) throws Exception {
+        byte[] bytes = value.toByteArray();
+        byte[] address = new byte[16];
+        int length = Math.min(bytes.length, 16);
+        System.arraycopy(bytes, bytes.length - length, address, 16 - length, length);
+        return ((Inet6Address) InetAddress.getByAddress(address)).getHostAddress();
+    }
+
+    private static String value(IP2RegionIndex index, int region, int pos) {
+        return new String(index.value(index.valueId(region, pos)), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,79 @@
+package com.chinagoods.bigdata.functions.ip;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 生成测试用的ip2region.db(1.x格式)，区间随机划分并覆盖全部ipv4地址
+ * 只写入memorySearch用到的超级块、索引块与数据，头部索引全部为0
+ */
+final class IP2RegionTestDatabase {
+    static final String[] REGIONS = {
+            "中国|0|浙江省|金华市|电信", "中国|0|浙江省|杭州市|移动", "中国|0|上海|上海市|联通",
+            "美国|0|加利福尼亚|0|0", "0|0|0|内网IP|内网IP", "日本|0|东京都|东京|0"};
+    private static final int HEADER_INDEX_LENGTH = 8192;
+
+    final long[] startIps;
+    final long[] endIps;
+    final int[] cityIds;
+    final String[] regions;
+    final byte[] bytes;
+
+    IP2RegionTestDatabase(long seed, int numberOfRanges) {
+        Random random = new Random(seed);
+        long[] bounds = random.longs(numberOfRanges - 1, 1, 1L << 32).sorted().distinct().toArray();
+        numberOfRanges = bounds.length + 1;
+        startIps = new long[numberOfRanges];
+        endIps = new long[numberOfRanges];
+        cityIds = new int[numberOfRanges];
+        regions = new String[numberOfRanges];
+        long start = 0;
+        for (int i = 0; i < numberOfRanges; i++) {
+            startIps[i] = start;
+            endIps[i] = i < bounds.length ? bounds[i] - 1 : 0xFFFFFFFFL;
+            int region = random.nextInt(REGIONS.length);
+            regions[i] = REGIONS[region];
+            cityIds[i] = region * 100;
+            start = endIps[i] + 1;
+        }
+        bytes = write(numberOfRanges);
+    }
+
+    private byte[] write(int numberOfRanges) {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        int dataStart = 8 + HEADER_INDEX_LENGTH;
+        Map<String, Integer> dataPointers = new HashMap<>();
+        List<Integer> dataPointerFields = new ArrayList<>();
+        for (int i = 0; i < numberOfRanges; i++) {
+            String key = cityIds[i] + regions[i];
+            byte[] region = regions[i].getBytes(StandardCharsets.UTF_8);
+            Integer pointer = dataPointers.get(key);
+            if (pointer == null) {
+                pointer = dataStart + data.size();
+                dataPointers.put(key, pointer);
+                ByteBuffer record = ByteBuffer.allocate(4 + region.length).order(ByteOrder.LITTLE_ENDIAN);
+                record.putInt(cityIds[i]).put(region);
+                data.write(record.array(), 0, record.capacity());
+            }
+            dataPointerFields.add(((region.length + 4) << 24) | pointer);
+        }
+
+        int firstIndexPtr = dataStart + data.size();
+        ByteBuffer db = ByteBuffer.allocate(firstIndexPtr + numberOfRanges * IP2RegionDatabase.INDEX_BLOCK_LENGTH)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        db.putInt(firstIndexPtr).putInt(firstIndexPtr + (numberOfRanges - 1) * IP2RegionDatabase.INDEX_BLOCK_LENGTH);
+        db.position(dataStart);
+        db.put(data.toByteArray());
+        for (int i = 0; i < numberOfRanges; i++) {
+            db.putInt((int) startIps[i]).putInt((int) endIps[i]).putInt(dataPointerFields.get(i));
+        }
+        return db.array();
+    }
+}
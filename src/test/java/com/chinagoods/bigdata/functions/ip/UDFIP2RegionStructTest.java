@@ -0,0 +1,63 @@
+package com.chinagoods.bigdata.functions.ip;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.Text;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.lionsoul.ip2region.DataBlock;
+import org.lionsoul.ip2region.DbConfig;
+import org.lionsoul.ip2region.DbSearcher;
+import org.lionsoul.ip2region.Util;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class UDFIP2RegionStructTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testMatchesDbSearcher() throws Exception {
+        IP2RegionTestDatabase db = new IP2RegionTestDatabase(20221018L, 500);
+        File file = temporaryFolder.newFile(IP2RegionDatabase.DB_FILE_NAME);
+        Files.write(file.toPath(), db.bytes);
+        DbSearcher searcher = new DbSearcher(new DbConfig(), db.bytes);
+        UDFIP2RegionStruct udf = new UDFIP2RegionStruct(IP2RegionIndex.build(IP2RegionDatabase.map(file)));
+        udf.initialize(new ObjectInspector[]{PrimitiveObjectInspectorFactory.javaStringObjectInspector});
+
+        Random random = new Random(20221018L);
+        // more distinct ips than the cache holds, each looked up twice
+        for (int i = 0; i < UDFIP2RegionStruct.CACHE_SIZE * 4; i++) {
+            String ip = Util.long2ip(random.nextLong() & 0xFFFFFFFFL);
+            DataBlock expected = searcher.memorySearch(Util.ip2long(ip));
+            String[] fields = StringUtils.split(expected.getRegion(), '|');
+            String[] expectedFields = {fields[0], fields[1], fields[2], fields[3], fields[4], String.valueOf(expected.getCityId())};
+            assertFields(expectedFields, evaluate(udf, ip));
+            assertFields(expectedFields, evaluate(udf, ip));
+        }
+
+        String[] defaults = {"0", "0", "0", "0", "0", "0"};
+        assertFields(defaults, evaluate(udf, null));
+        assertFields(defaults, evaluate(udf, "1.2.3.a"));
+        assertFields(defaults, evaluate(udf, "1.2.3.a"));
+    }
+
+    private static Object[] evaluate(GenericUDF udf, String ip) throws HiveException {
+        return (Object[]) udf.evaluate(new GenericUDF.DeferredObject[]{new GenericUDF.DeferredJavaObject(ip)});
+    }
+
+    private static void assertFields(String[] expected, Object[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(new Text(expected[i]), actual[i]);
+        }
+    }
+}
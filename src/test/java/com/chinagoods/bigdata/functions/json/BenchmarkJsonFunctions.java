@@ -0,0 +1,230 @@
+package com.chinagoods.bigdata.functions.json;
+
+import com.chinagoods.bigdata.functions.utils.BenchmarkCorpus;
+import com.chinagoods.bigdata.functions.utils.json.JsonExtract;
+import com.chinagoods.bigdata.functions.utils.json.JsonPath;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.BooleanWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * json函数基准测试，样本为埋点上报的json事件
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@BenchmarkMode(Mode.Throughput)
+public class BenchmarkJsonFunctions {
+    private final UDFJsonExtract jsonExtract = new UDFJsonExtract();
+    private final UDFJsonExtract jsonExtractWildcard = new UDFJsonExtract();
+    private final UDFJsonExtractScalar jsonExtractScalar = new UDFJsonExtractScalar();
+    private final UDFJsonSize jsonSize = new UDFJsonSize();
+    private final UDFJsonArrayLength jsonArrayLength = new UDFJsonArrayLength();
+    private final UDFJsonArrayGet jsonArrayGet = new UDFJsonArrayGet();
+    private final UDFJsonArrayExtract jsonArrayExtract = new UDFJsonArrayExtract();
+    private final UDFJsonArrayExtractScalar jsonArrayExtractScalar = new UDFJsonArrayExtractScalar();
+    private final UDFToJson toJson = new UDFToJson();
+    private final UDFToJson toJsonCamelCase = new UDFToJson();
+    private final UDFJsonExtractMulti jsonExtractMulti = new UDFJsonExtractMulti();
+    private final UDFJsonExtractScalar[] jsonExtractScalars = new UDFJsonExtractScalar[EVENT_PATHS.length];
+
+    private static final String[] EVENT_PATHS = {"$.event", "$.distinct_id", "$.time",
+            "$.properties.platform_type", "$.properties.is_login"};
+    private final Text goodsNamePath = new Text("$.name");
+
+    private BenchmarkCorpus.Cursor<Text> events;
+    private BenchmarkCorpus.Cursor<GenericUDF.DeferredObject[]> eventArgs;
+    private BenchmarkCorpus.Cursor<Text> goodsArrays;
+    private BenchmarkCorpus.Cursor<GenericUDF.DeferredObject[]> arrayExtractArgs;
+    private BenchmarkCorpus.Cursor<GenericUDF.DeferredObject[]> toJsonArgs;
+
+    @Setup
+    public void setup() throws HiveException {
+        events = BenchmarkCorpus.cursor(BenchmarkCorpus.JSON_EVENTS, Text::new);
+        // json_extract*(json, '<constant path>')
+        jsonExtractScalar.initialize(constantPathInspectors("$.properties.platform_type"));
+        jsonExtract.initialize(constantPathInspectors("$.properties.search"));
+        // json_extract(json, '$.properties.goods[*].name') vs. json_array_extract_scalar over json_extract(json, '$.properties.goods')
+        jsonExtractWildcard.initialize(constantPathInspectors("$.properties.goods[*].name"));
+        jsonSize.initialize(constantPathInspectors("$.properties.goods"));
+        List<GenericUDF.DeferredObject[]> eventRows = new ArrayList<>();
+        for (Text event : events.rows()) {
+            eventRows.add(new GenericUDF.DeferredObject[]{new GenericUDF.DeferredJavaObject(event), null});
+        }
+        eventArgs = new BenchmarkCorpus.Cursor<>(eventRows);
+        // json_extract_multi(json, paths...) vs. one json_extract_scalar(json, path) per path
+        ObjectInspector[] multiInspectors = new ObjectInspector[EVENT_PATHS.length + 1];
+        multiInspectors[0] = PrimitiveObjectInspectorFactory.writableStringObjectInspector;
+        for (int i = 0; i < EVENT_PATHS.length; i++) {
+            multiInspectors[i + 1] = constantPathInspectors(EVENT_PATHS[i])[1];
+            jsonExtractScalars[i] = new UDFJsonExtractScalar();
+            jsonExtractScalars[i].initialize(constantPathInspectors(EVENT_PATHS[i]));
+        }
+        jsonExtractMulti.initialize(multiInspectors);
+        goodsArrays = new BenchmarkCorpus.Cursor<>(goodsArrays(events.rows()));
+
+        List<GenericUDF.DeferredObject[]> arrayExtractRows = new ArrayList<>();
+        for (Text goods : goodsArrays.rows()) {
+            arrayExtractRows.add(new GenericUDF.DeferredObject[]{
+                    new GenericUDF.DeferredJavaObject(goods.toString()),
+                    new GenericUDF.DeferredJavaObject(goodsNamePath.toString())});
+        }
+        arrayExtractArgs = new BenchmarkCorpus.Cursor<>(arrayExtractRows);
+
+        ObjectInspector[] stringInspectors = {PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                PrimitiveObjectInspectorFactory.javaStringObjectInspector};
+        jsonArrayExtract.initialize(stringInspectors);
+        jsonArrayExtractScalar.initialize(stringInspectors);
+
+        // to_json(named_struct('event', ..., 'distinct_id', ..., 'event_time', ..., 'goods_ids', array(...), 'properties', map(...)))
+        ObjectInspector eventInspector = ObjectInspectorFactory.getStandardStructObjectInspector(
+                Arrays.asList("event", "distinct_id", "event_time", "goods_ids", "properties"),
+                Arrays.<ObjectInspector>asList(PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                        PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                        PrimitiveObjectInspectorFactory.javaLongObjectInspector,
+                        ObjectInspectorFactory.getStandardListObjectInspector(PrimitiveObjectInspectorFactory.javaLongObjectInspector),
+                        ObjectInspectorFactory.getStandardMapObjectInspector(PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                                PrimitiveObjectInspectorFactory.javaStringObjectInspector)));
+        toJson.initialize(new ObjectInspector[]{eventInspector});
+        toJsonCamelCase.initialize(new ObjectInspector[]{eventInspector,
+                PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+                        PrimitiveObjectInspector.PrimitiveCategory.BOOLEAN, new BooleanWritable(true))});
+        List<GenericUDF.DeferredObject[]> toJsonRows = new ArrayList<>();
+        for (Text event : events.rows()) {
+            String json = event.toString();
+            Object row = Arrays.asList(
+                    JsonExtract.extract(json, new JsonPath("$.event").getScalarExtractor()),
+                    JsonExtract.extract(json, new JsonPath("$.distinct_id").getScalarExtractor()),
+                    Long.parseLong(JsonExtract.extract(json, new JsonPath("$.time").getScalarExtractor())),
+                    ImmutableList.of(1024L, 2048L, 4096L),
+                    ImmutableMap.of("platform_type", JsonExtract.extract(json, new JsonPath("$.properties.platform_type").getScalarExtractor()),
+                            "is_login", JsonExtract.extract(json, new JsonPath("$.properties.is_login").getScalarExtractor())));
+            toJsonRows.add(new GenericUDF.DeferredObject[]{new GenericUDF.DeferredJavaObject(row)});
+        }
+        toJsonArgs = new BenchmarkCorpus.Cursor<>(toJsonRows);
+    }
+
+    private static ObjectInspector[] constantPathInspectors(String path) {
+        return new ObjectInspector[]{PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+                PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+                        PrimitiveObjectInspector.PrimitiveCategory.STRING, new Text(path))};
+    }
+
+    private static List<Text> goodsArrays(List<Text> jsonEvents) {
+        JsonPath goodsPath = new JsonPath("$.properties.goods");
+        List<Text> rows = new ArrayList<>(jsonEvents.size());
+        for (Text event : jsonEvents) {
+            rows.add(new Text(JsonExtract.extract(event.toString(), goodsPath.getObjectExtractor())));
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public Object jsonExtractScalar() throws HiveException {
+        return jsonExtractScalar.evaluate(eventArgs.next());
+    }
+
+    @Benchmark
+    public Object jsonExtractMulti() throws HiveException {
+        return jsonExtractMulti.evaluate(eventArgs.next());
+    }
+
+    @Benchmark
+    public Object jsonExtractScalarPerPath() throws HiveException {
+        GenericUDF.DeferredObject[] args = eventArgs.next();
+        Object[] results = new Object[jsonExtractScalars.length];
+        for (int i = 0; i < jsonExtractScalars.length; i++) {
+            results[i] = jsonExtractScalars[i].evaluate(args);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public Object jsonExtract() throws HiveException {
+        return jsonExtract.evaluate(eventArgs.next());
+    }
+
+    @Benchmark
+    public Object jsonExtractWildcard() throws HiveException {
+        return jsonExtractWildcard.evaluate(eventArgs.next());
+    }
+
+    @Benchmark
+    public Object jsonSize() throws HiveException {
+        return jsonSize.evaluate(eventArgs.next());
+    }
+
+    @Benchmark
+    public LongWritable jsonArrayLength() {
+        return jsonArrayLength.evaluate(goodsArrays.next());
+    }
+
+    @Benchmark
+    public Text jsonArrayGet() {
+        return jsonArrayGet.evaluate(goodsArrays.next(), -1);
+    }
+
+    @Benchmark
+    public Object jsonArrayExtract() throws HiveException {
+        return jsonArrayExtract.evaluate(arrayExtractArgs.next());
+    }
+
+    @Benchmark
+    public Object jsonArrayExtractScalar() throws HiveException {
+        return jsonArrayExtractScalar.evaluate(arrayExtractArgs.next());
+    }
+
+    @Benchmark
+    public Object toJson() throws HiveException {
+        return toJson.evaluate(toJsonArgs.next());
+    }
+
+    @Benchmark
+    public Object toJsonCamelCase() throws HiveException {
+        return toJsonCamelCase.evaluate(toJsonArgs.next());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkJsonFunctions.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
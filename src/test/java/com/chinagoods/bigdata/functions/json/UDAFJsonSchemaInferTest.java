@@ -0,0 +1,86 @@
+package com.chinagoods.bigdata.functions.json;
+
+import com.chinagoods.bigdata.functions.utils.json.JsonPathTokenizer;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class UDAFJsonSchemaInferTest {
+    @Test
+    public void testMergePartials() throws Exception {
+        Object partial1 = partial("{\"event\":\"search\",\"goods\":[{\"id\":1},{\"id\":2.5}],\"user id\":null}",
+                "not json", null);
+        Object partial2 = partial("{\"event\":null,\"goods\":[]}", "[1,2]");
+
+        GenericUDAFEvaluator evaluator = evaluator();
+        ObjectInspector partialInspector = evaluator().init(GenericUDAFEvaluator.Mode.PARTIAL1,
+                new ObjectInspector[]{PrimitiveObjectInspectorFactory.javaStringObjectInspector});
+        evaluator.init(GenericUDAFEvaluator.Mode.FINAL, new ObjectInspector[]{partialInspector});
+        GenericUDAFEvaluator.AggregationBuffer agg = evaluator.getNewAggregationBuffer();
+        evaluator.merge(agg, partial1);
+        evaluator.merge(agg, partial2);
+        evaluator.merge(agg, null);
+
+        @SuppressWarnings("unchecked")
+        Map<Text, Object[]> result = (Map<Text, Object[]>) evaluator.terminate(agg);
+        assertEquals(Arrays.asList("$", "$.event", "$.goods", "$.goods[*]", "$.goods[*].id", "$[\"user id\"]", "$[*]"),
+                Arrays.asList(Arrays.stream(result.keySet().toArray()).map(Object::toString).sorted().toArray()));
+        assertEquals("[object|array, 3, 0.0]", toString(result.get(new Text("$"))));
+        assertEquals("[string, 2, 0.5]", toString(result.get(new Text("$.event"))));
+        assertEquals("[integer|float, 2, 0.0]", toString(result.get(new Text("$.goods[*].id"))));
+        assertEquals("[null, 1, 1.0]", toString(result.get(new Text("$[\"user id\"]"))));
+        assertEquals("[integer, 2, 0.0]", toString(result.get(new Text("$[*]"))));
+    }
+
+    /**
+     * 需要引号的字段名中的"与\被转义，推断出的path可以被JsonPathTokenizer解析回原字段名
+     */
+    @Test
+    public void testQuotedFieldPathRoundTrip() throws Exception {
+        GenericUDAFEvaluator evaluator = evaluator();
+        evaluator.init(GenericUDAFEvaluator.Mode.COMPLETE,
+                new ObjectInspector[]{PrimitiveObjectInspectorFactory.javaStringObjectInspector});
+        GenericUDAFEvaluator.AggregationBuffer agg = evaluator.getNewAggregationBuffer();
+        evaluator.iterate(agg, new Object[]{"{\"a\\\"b\":{\"c\\\\d\":1}}"});
+
+        @SuppressWarnings("unchecked")
+        Map<Text, Object[]> result = (Map<Text, Object[]>) evaluator.terminate(agg);
+        String path = "$[\"a\\\"b\"][\"c\\\\d\"]";
+        assertEquals("[integer, 1, 0.0]", toString(result.get(new Text(path))));
+
+        List<String> names = new ArrayList<>();
+        new JsonPathTokenizer(path).forEachRemaining(step -> names.add(step.getName()));
+        assertEquals(Arrays.asList("a\"b", "c\\d"), names);
+    }
+
+    private static GenericUDAFEvaluator evaluator() throws Exception {
+        return new UDAFJsonSchemaInfer().getEvaluator(new TypeInfo[]{TypeInfoFactory.stringTypeInfo});
+    }
+
+    private static Object partial(String... jsons) throws Exception {
+        GenericUDAFEvaluator evaluator = evaluator();
+        evaluator.init(GenericUDAFEvaluator.Mode.PARTIAL1,
+                new ObjectInspector[]{PrimitiveObjectInspectorFactory.javaStringObjectInspector});
+        GenericUDAFEvaluator.AggregationBuffer agg = evaluator.getNewAggregationBuffer();
+        for (String json : jsons) {
+            evaluator.iterate(agg, new Object[]{json});
+        }
+        return evaluator.terminatePartial(agg);
+    }
+
+    private static String toString(Object[] struct) {
+        return Arrays.toString(struct);
+    }
+}
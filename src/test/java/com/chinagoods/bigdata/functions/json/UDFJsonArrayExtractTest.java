@@ -0,0 +1,55 @@
+package com.chinagoods.bigdata.functions.json;
+
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class UDFJsonArrayExtractTest {
+    private static final String GOODS = "[{\"name\":\"袜子\",\"sku\":{\"id\":1}},{\"sku\":[1,2]},\"free\",{\"name\":null,\"tags\":[\"a\"]}]";
+
+    @Test
+    public void testJsonArrayExtract() throws HiveException {
+        UDFJsonArrayExtract udf = new UDFJsonArrayExtract();
+        initialize(udf);
+        assertEquals(Arrays.asList(new Text("\"袜子\""), null, null, new Text("null")), evaluate(udf, GOODS, "$.name"));
+        assertEquals(Arrays.asList(new Text("{\"id\":1}"), new Text("[1,2]"), null, null), evaluate(udf, GOODS, "$.sku"));
+        assertEquals(Arrays.asList(new Text("1"), new Text("2")), evaluate(udf, "[[1,[0]],[2]]", "$[0]"));
+        assertEquals(Arrays.asList(), evaluate(udf, "[]", "$.name"));
+    }
+
+    @Test
+    public void testJsonArrayExtractScalar() throws HiveException {
+        UDFJsonArrayExtractScalar udf = new UDFJsonArrayExtractScalar();
+        initialize(udf);
+        assertEquals(Arrays.asList(new Text("袜子"), null, null, null), evaluate(udf, GOODS, "$.name"));
+        assertEquals(Arrays.asList(new Text("1"), null, null, null), evaluate(udf, GOODS, "$.sku.id"));
+        assertEquals(Arrays.asList(new Text("a"), new Text("1")), evaluate(udf, "[\"a\", 1]", "$"));
+    }
+
+    @Test
+    public void testInvalidArray() throws HiveException {
+        UDFJsonArrayExtract udf = new UDFJsonArrayExtract();
+        initialize(udf);
+        assertNull(evaluate(udf, "{\"name\":1}", "$.name"));
+        assertNull(evaluate(udf, "[{\"name\":1}, {\"name\":", "$.name"));
+        assertNull(evaluate(udf, "[{\"name\":1}", "$.name"));
+        assertNull(evaluate(udf, null, "$.name"));
+    }
+
+    private static void initialize(GenericUDF udf) throws HiveException {
+        udf.initialize(new ObjectInspector[]{PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                PrimitiveObjectInspectorFactory.javaStringObjectInspector});
+    }
+
+    private static Object evaluate(GenericUDF udf, String json, String path) throws HiveException {
+        return udf.evaluate(new GenericUDF.DeferredObject[]{new GenericUDF.DeferredJavaObject(json),
+                new GenericUDF.DeferredJavaObject(path)});
+    }
+}
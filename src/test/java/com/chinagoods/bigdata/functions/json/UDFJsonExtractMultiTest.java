@@ -0,0 +1,69 @@
+package com.chinagoods.bigdata.functions.json;
+
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.Collector;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UDFJsonExtractMultiTest {
+    private static final String EVENT = "{\"event\":\"search\",\"properties\":{\"platform_type\":\"H5\",\"goods\":[{\"id\":1}]}}";
+
+    @Test
+    public void testJsonExtractMulti() throws HiveException {
+        UDFJsonExtractMulti udf = new UDFJsonExtractMulti();
+        udf.initialize(inspectors("$.event", "$.properties.platform_type", "$.properties.goods[0].id", "$.properties.goods"));
+        assertEquals(Arrays.asList(new Text("search"), new Text("H5"), new Text("1"), null), evaluate(udf, EVENT));
+        assertEquals(Arrays.asList(null, null, null, null), evaluate(udf, "not json"));
+        assertNull(evaluate(udf, null));
+    }
+
+    @Test
+    public void testJsonExtractTuple() throws HiveException {
+        UDTFJsonExtractTuple udtf = new UDTFJsonExtractTuple();
+        StructObjectInspector outputInspector = udtf.initialize(inspectors("$.event", "$.properties.missing"));
+        assertEquals("c0", outputInspector.getAllStructFieldRefs().get(0).getFieldName());
+
+        final List<List<Object>> rows = new ArrayList<>();
+        udtf.setCollector(new Collector() {
+            @Override
+            public void collect(Object input) {
+                rows.add(new ArrayList<>(Arrays.asList((Object[]) input)));
+            }
+        });
+        udtf.process(new Object[]{EVENT});
+        udtf.process(new Object[]{null});
+        assertEquals(Arrays.asList(Arrays.<Object>asList(new Text("search"), null), Arrays.asList(null, null)), rows);
+    }
+
+    @Test(expected = UDFArgumentException.class)
+    public void testPathMustBeConstant() throws HiveException {
+        new UDFJsonExtractMulti().initialize(new ObjectInspector[]{PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                PrimitiveObjectInspectorFactory.javaStringObjectInspector});
+    }
+
+    private static ObjectInspector[] inspectors(String... paths) {
+        ObjectInspector[] inspectors = new ObjectInspector[paths.length + 1];
+        inspectors[0] = PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+        for (int i = 0; i < paths.length; i++) {
+            inspectors[i + 1] = PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+                    PrimitiveObjectInspector.PrimitiveCategory.STRING, new Text(paths[i]));
+        }
+        return inspectors;
+    }
+
+    private static Object evaluate(GenericUDF udf, String json) throws HiveException {
+        return udf.evaluate(new GenericUDF.DeferredObject[]{new GenericUDF.DeferredJavaObject(json)});
+    }
+}
@@ -0,0 +1,62 @@
+package com.chinagoods.bigdata.functions.json;
+
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class UDFJsonExtractTest {
+    private static final String EVENT = "{\"event\":\"search\",\"properties\":{\"platform_type\":\"H5\",\"goods\":[{\"id\":1},{\"id\":2}]}}";
+
+    @Test
+    public void testConstantPath() throws HiveException {
+        UDFJsonExtractScalar scalar = new UDFJsonExtractScalar();
+        scalar.initialize(constantPathInspectors("$.properties.platform_type"));
+        assertEquals(new Text("H5"), evaluate(scalar, EVENT, null));
+        assertNull(evaluate(scalar, "{\"properties\":{}}", null));
+        assertNull(evaluate(scalar, null, null));
+
+        UDFJsonExtract extract = new UDFJsonExtract();
+        extract.initialize(constantPathInspectors("$.properties.goods[1]"));
+        assertEquals(new Text("{\"id\":2}"), evaluate(extract, EVENT, null));
+
+        UDFJsonSize size = new UDFJsonSize();
+        size.initialize(constantPathInspectors("$.properties.goods"));
+        assertEquals(new LongWritable(2), evaluate(size, EVENT, null));
+    }
+
+    @Test
+    public void testPathColumn() throws HiveException {
+        UDFJsonExtractScalar scalar = new UDFJsonExtractScalar();
+        scalar.initialize(new ObjectInspector[]{PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                PrimitiveObjectInspectorFactory.javaStringObjectInspector});
+        assertEquals(new Text("search"), evaluate(scalar, EVENT, "$.event"));
+        assertEquals(new Text("1"), evaluate(scalar, EVENT, "$.properties.goods[0].id"));
+        assertNull(evaluate(scalar, EVENT, null));
+        // an invalid path in a column yields null, as before
+        assertNull(evaluate(scalar, EVENT, "$.."));
+    }
+
+    @Test(expected = UDFArgumentException.class)
+    public void testInvalidConstantPath() throws HiveException {
+        new UDFJsonExtract().initialize(constantPathInspectors("properties"));
+    }
+
+    private static ObjectInspector[] constantPathInspectors(String path) {
+        return new ObjectInspector[]{PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+                        PrimitiveObjectInspector.PrimitiveCategory.STRING, new Text(path))};
+    }
+
+    private static Object evaluate(GenericUDF udf, String json, String path) throws HiveException {
+        return udf.evaluate(new GenericUDF.DeferredObject[]{new GenericUDF.DeferredJavaObject(json),
+                new GenericUDF.DeferredJavaObject(path)});
+    }
+}
@@ -0,0 +1,52 @@
+package com.chinagoods.bigdata.functions.json;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.BooleanWritable;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class UDFToJsonTest {
+    private static final ObjectInspector GOODS_INSPECTOR = ObjectInspectorFactory.getStandardStructObjectInspector(
+            Arrays.asList("goods_id", "sku__name", "attrs"),
+            Arrays.<ObjectInspector>asList(PrimitiveObjectInspectorFactory.javaIntObjectInspector,
+                    PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                    ObjectInspectorFactory.getStandardMapObjectInspector(PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                            PrimitiveObjectInspectorFactory.javaStringObjectInspector)));
+
+    @Test
+    public void testToJson() throws HiveException {
+        UDFToJson udf = new UDFToJson();
+        udf.initialize(new ObjectInspector[]{GOODS_INSPECTOR});
+        assertEquals(new Text("{\"goods_id\":1,\"sku__name\":\"义乌😀\",\"attrs\":{\"shop_id\":\"2\"}}"),
+                evaluate(udf, Arrays.asList(1, "义乌😀", ImmutableMap.of("shop_id", "2"))));
+        // the generator is reused, rows must not be joined by a separator
+        assertEquals(new Text("{\"goods_id\":null,\"sku__name\":null,\"attrs\":{}}"),
+                evaluate(udf, Arrays.asList(null, null, ImmutableMap.of())));
+        assertEquals(new Text("null"), evaluate(udf, null));
+    }
+
+    @Test
+    public void testToJsonCamelCase() throws HiveException {
+        UDFToJson udf = new UDFToJson();
+        udf.initialize(new ObjectInspector[]{GOODS_INSPECTOR,
+                PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+                        PrimitiveObjectInspector.PrimitiveCategory.BOOLEAN, new BooleanWritable(true))});
+        assertEquals(new Text("{\"goodsId\":1,\"skuName\":\"a\",\"attrs\":{\"shopId\":\"2\",\"shopType\":\"3\"}}"),
+                evaluate(udf, Arrays.asList(1, "a", ImmutableMap.of("shop_id", "2", "Shop_Type", "3"))));
+        assertEquals("", UDFToJson.toCamelCase("__"));
+    }
+
+    private static Object evaluate(GenericUDF udf, Object value) throws HiveException {
+        return udf.evaluate(new GenericUDF.DeferredObject[]{new GenericUDF.DeferredJavaObject(value)});
+    }
+}
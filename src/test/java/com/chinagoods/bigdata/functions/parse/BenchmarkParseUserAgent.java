@@ -0,0 +1,78 @@
+package com.chinagoods.bigdata.functions.parse;
+
+import com.chinagoods.bigdata.functions.utils.BenchmarkCorpus;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+import ua_parser.Client;
+import ua_parser.Parser;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UA解析基准测试，样本为nginx日志中的UA
+ * parseUserAgent走函数内缓存，uapParse为未命中缓存时的解析开销
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@BenchmarkMode(Mode.Throughput)
+public class BenchmarkParseUserAgent {
+    private final UDFParseUserAgent parseUserAgent = new UDFParseUserAgent();
+
+    private Parser uaParser;
+    private BenchmarkCorpus.Cursor<String> userAgents;
+    private BenchmarkCorpus.Cursor<GenericUDF.DeferredObject[]> userAgentArgs;
+
+    @Setup
+    public void setup() throws HiveException {
+        uaParser = new Parser();
+        userAgents = BenchmarkCorpus.cursor(BenchmarkCorpus.USER_AGENTS, ua -> ua);
+        userAgentArgs = BenchmarkCorpus.cursor(BenchmarkCorpus.USER_AGENTS,
+                ua -> new GenericUDF.DeferredObject[]{new GenericUDF.DeferredJavaObject(ua)});
+
+        parseUserAgent.initialize(new ObjectInspector[]{PrimitiveObjectInspectorFactory.javaStringObjectInspector});
+    }
+
+    @Benchmark
+    public Object parseUserAgent() throws HiveException {
+        return parseUserAgent.evaluate(userAgentArgs.next());
+    }
+
+    @Benchmark
+    public Client uapParse() {
+        return uaParser.parse(userAgents.next());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkParseUserAgent.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,193 @@
+package com.chinagoods.bigdata.functions.regexp;
+
+import com.chinagoods.bigdata.functions.utils.BenchmarkCorpus;
+import com.google.common.collect.ImmutableList;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * re2j正则函数基准测试，样本为nginx日志中的页面地址
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@BenchmarkMode(Mode.Throughput)
+public class BenchmarkRe2JRegexp {
+    private static final String HOST_PATTERN = "^https?://([a-z0-9]+)\\.chinagoods\\.com";
+    private static final String UTM_PATTERN = "utm_source=([^&#]+)";
+    private static final String NUMBER_PATTERN = "\\d+";
+    private static final String PARAM_SEPARATOR_PATTERN = "[?&]";
+    /**
+     * 页面地址分类规则，regexp_match_set一次扫描与逐个regexp_like对比
+     */
+    private static final List<String> URL_RULE_PATTERNS = ImmutableList.of(
+            "^https?://www\\.chinagoods\\.com/?(\\?|#|$)",
+            "^https?://[a-z0-9]+\\.chinagoods\\.com/search/categoryProduct/T--\\d+",
+            "^https?://[a-z0-9]+\\.chinagoods\\.com/product/\\d+\\.html",
+            "^https?://[a-z0-9]+\\.chinagoods\\.com/shop/\\d+",
+            "^https?://[a-z0-9]+\\.chinagoods\\.com/market/Z--\\d+---M--\\d+",
+            "^https?://[a-z0-9]+\\.chinagoods\\.com/news/detail/\\d+",
+            "^https?://[a-z0-9]+\\.chinagoods\\.com/goods/detail",
+            "^https?://[a-z0-9]+\\.chinagoods\\.com/venue/index",
+            "^https?://[a-z0-9]+\\.chinagoods\\.com/user/order/list",
+            "^https?://[a-z0-9]+\\.chinagoods\\.com/searchsort",
+            "utm_source=baidu",
+            "utm_medium=cpc",
+            "[?&]spm=",
+            "[?&](keyword|q)=",
+            "redirect=https?://",
+            "#top$");
+
+    private final UDFRe2JRegexpLike regexpLike = new UDFRe2JRegexpLike();
+    private final UDFRe2JRegexpExtract regexpExtract = new UDFRe2JRegexpExtract();
+    private final UDFRe2JRegexpReplace regexpReplace = new UDFRe2JRegexpReplace();
+    private final UDFRe2JRegexpExtractAll regexpExtractAll = new UDFRe2JRegexpExtractAll();
+    private final UDFRe2JRegexpSplit regexpSplit = new UDFRe2JRegexpSplit();
+    private final UDFRe2JRegexpMatchSet regexpMatchSet = new UDFRe2JRegexpMatchSet();
+    private final UDFRe2JRegexpLike[] regexpLikeRules = new UDFRe2JRegexpLike[URL_RULE_PATTERNS.size()];
+
+    private BenchmarkCorpus.Cursor<GenericUDF.DeferredObject[]> likeArgs;
+    private BenchmarkCorpus.Cursor<GenericUDF.DeferredObject[]> extractArgs;
+    private BenchmarkCorpus.Cursor<GenericUDF.DeferredObject[]> replaceArgs;
+    private BenchmarkCorpus.Cursor<GenericUDF.DeferredObject[]> extractAllArgs;
+    private BenchmarkCorpus.Cursor<GenericUDF.DeferredObject[]> splitArgs;
+    private BenchmarkCorpus.Cursor<GenericUDF.DeferredObject[]> urlArgs;
+
+    @Setup
+    public void setup() throws HiveException {
+        // regexp_like、regexp_extract、regexp_replace的正则与替换串为常量，与sql中的常见写法一致
+        likeArgs = BenchmarkCorpus.cursor(BenchmarkCorpus.NGINX_URLS,
+                url -> writableArguments(new Text(url), new Text(UTM_PATTERN)));
+        extractArgs = BenchmarkCorpus.cursor(BenchmarkCorpus.NGINX_URLS,
+                url -> writableArguments(new Text(url), new Text(HOST_PATTERN), new LongWritable(1)));
+        replaceArgs = BenchmarkCorpus.cursor(BenchmarkCorpus.NGINX_URLS,
+                url -> writableArguments(new Text(url), new Text(NUMBER_PATTERN), new Text("#")));
+        extractAllArgs = BenchmarkCorpus.cursor(BenchmarkCorpus.NGINX_URLS, url -> arguments(url, NUMBER_PATTERN));
+        splitArgs = BenchmarkCorpus.cursor(BenchmarkCorpus.NGINX_URLS, url -> arguments(url, PARAM_SEPARATOR_PATTERN));
+        // 规则为常量，只传入页面地址，第二个参数不会被读取
+        urlArgs = BenchmarkCorpus.cursor(BenchmarkCorpus.NGINX_URLS, url -> writableArguments(new Text(url), null));
+
+        ObjectInspector[] inspectors = {PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                PrimitiveObjectInspectorFactory.javaStringObjectInspector};
+        regexpExtractAll.initialize(inspectors);
+        regexpSplit.initialize(inspectors);
+
+        regexpLike.initialize(new ObjectInspector[]{PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+                constant(PrimitiveCategory.STRING, new Text(UTM_PATTERN))});
+        regexpExtract.initialize(new ObjectInspector[]{PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+                constant(PrimitiveCategory.STRING, new Text(HOST_PATTERN)),
+                constant(PrimitiveCategory.LONG, new LongWritable(1))});
+        regexpReplace.initialize(new ObjectInspector[]{PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+                constant(PrimitiveCategory.STRING, new Text(NUMBER_PATTERN)),
+                constant(PrimitiveCategory.STRING, new Text("#"))});
+
+        List<Text> rules = new ArrayList<>();
+        for (int i = 0; i < URL_RULE_PATTERNS.size(); i++) {
+            rules.add(new Text(URL_RULE_PATTERNS.get(i)));
+            regexpLikeRules[i] = new UDFRe2JRegexpLike();
+            regexpLikeRules[i].initialize(new ObjectInspector[]{PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+                    constant(PrimitiveCategory.STRING, new Text(URL_RULE_PATTERNS.get(i)))});
+        }
+        regexpMatchSet.initialize(new ObjectInspector[]{PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+                ObjectInspectorFactory.getStandardConstantListObjectInspector(PrimitiveObjectInspectorFactory.writableStringObjectInspector, rules)});
+    }
+
+    @Benchmark
+    public Object regexpLike() throws HiveException {
+        return regexpLike.evaluate(likeArgs.next());
+    }
+
+    @Benchmark
+    public Object regexpExtract() throws HiveException {
+        return regexpExtract.evaluate(extractArgs.next());
+    }
+
+    @Benchmark
+    public Object regexpReplace() throws HiveException {
+        return regexpReplace.evaluate(replaceArgs.next());
+    }
+
+    @Benchmark
+    public Object regexpExtractAll() throws HiveException {
+        return regexpExtractAll.evaluate(extractAllArgs.next());
+    }
+
+    @Benchmark
+    public Object regexpSplit() throws HiveException {
+        return regexpSplit.evaluate(splitArgs.next());
+    }
+
+    @Benchmark
+    public Object regexpMatchSet() throws HiveException {
+        return regexpMatchSet.evaluate(urlArgs.next());
+    }
+
+    @Benchmark
+    public Object regexpLikeLoop() throws HiveException {
+        GenericUDF.DeferredObject[] arguments = urlArgs.next();
+        List<Integer> matched = new ArrayList<>();
+        for (int i = 0; i < regexpLikeRules.length; i++) {
+            if ((Boolean) regexpLikeRules[i].evaluate(arguments)) {
+                matched.add(i);
+            }
+        }
+        return matched;
+    }
+
+    private static GenericUDF.DeferredObject[] arguments(String source, String pattern) {
+        return new GenericUDF.DeferredObject[]{new GenericUDF.DeferredJavaObject(source), new GenericUDF.DeferredJavaObject(pattern)};
+    }
+
+    private static GenericUDF.DeferredObject[] writableArguments(Object... values) {
+        GenericUDF.DeferredObject[] arguments = new GenericUDF.DeferredObject[values.length];
+        for (int i = 0; i < values.length; i++) {
+            arguments[i] = new GenericUDF.DeferredJavaObject(values[i]);
+        }
+        return arguments;
+    }
+
+    private static ObjectInspector constant(PrimitiveCategory category, Object value) {
+        return PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(category, value);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkRe2JRegexp.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
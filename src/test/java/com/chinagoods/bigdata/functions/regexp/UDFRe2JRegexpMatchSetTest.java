@@ -0,0 +1,56 @@
+package com.chinagoods.bigdata.functions.regexp;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UDFRe2JRegexpMatchSetTest {
+    @Test
+    public void testConstantPatterns() throws HiveException {
+        UDFRe2JRegexpMatchSet udf = new UDFRe2JRegexpMatchSet();
+        List<Text> patterns = ImmutableList.of(new Text("^/goods/\\d+"), new Text("^/shop/"), new Text("utm_source="));
+        udf.initialize(new ObjectInspector[]{PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                ObjectInspectorFactory.getStandardConstantListObjectInspector(PrimitiveObjectInspectorFactory.writableStringObjectInspector, patterns)});
+
+        assertEquals(ImmutableList.of(0, 2), evaluate(udf, "/goods/123?utm_source=wx", null));
+        assertEquals(ImmutableList.of(1), evaluate(udf, "/shop/1", null));
+        assertEquals(ImmutableList.of(), evaluate(udf, "/", null));
+        assertNull(evaluate(udf, null, null));
+    }
+
+    @Test
+    public void testPatternColumn() throws HiveException {
+        UDFRe2JRegexpMatchSet udf = new UDFRe2JRegexpMatchSet();
+        udf.initialize(new ObjectInspector[]{PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                ObjectInspectorFactory.getStandardListObjectInspector(PrimitiveObjectInspectorFactory.javaStringObjectInspector)});
+
+        assertEquals(ImmutableList.of(1), evaluate(udf, "义乌小商品", ImmutableList.of("^商品", "商品$")));
+        assertEquals(ImmutableList.of(0, 1), evaluate(udf, "商品", ImmutableList.of("^商品", "商品$")));
+        assertEquals(ImmutableList.of(0), evaluate(udf, "a1", ImmutableList.of("\\d")));
+        assertNull(evaluate(udf, "a1", null));
+    }
+
+    @Test(expected = UDFArgumentException.class)
+    public void testNullPattern() throws HiveException {
+        UDFRe2JRegexpMatchSet udf = new UDFRe2JRegexpMatchSet();
+        udf.initialize(new ObjectInspector[]{PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                ObjectInspectorFactory.getStandardListObjectInspector(PrimitiveObjectInspectorFactory.javaStringObjectInspector)});
+        evaluate(udf, "a", Arrays.asList("a", null));
+    }
+
+    private static Object evaluate(GenericUDF udf, Object source, Object patterns) throws HiveException {
+        return udf.evaluate(new GenericUDF.DeferredObject[]{new GenericUDF.DeferredJavaObject(source),
+                new GenericUDF.DeferredJavaObject(patterns)});
+    }
+}
@@ -0,0 +1,69 @@
+package com.chinagoods.bigdata.functions.regexp;
+
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class UDFRe2JRegexpReplaceTest {
+    @Test
+    public void testPatternColumn() throws HiveException {
+        UDFRe2JRegexpReplace udf = new UDFRe2JRegexpReplace();
+        ObjectInspector string = PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+        udf.initialize(new ObjectInspector[]{string, string, string});
+
+        // 正则按行变化时每行使用各自的正则，而不是第一行的正则
+        assertEquals("a#b#", evaluate(udf, "a1b2", "\\d", "#"));
+        assertEquals("#1#2", evaluate(udf, "a1b2", "[a-z]", "#"));
+        assertEquals("a1b2", evaluate(udf, "a1b2", "x", "#"));
+        assertNull(evaluate(udf, "a1b2", null, "#"));
+        assertNull(evaluate(udf, null, "\\d", "#"));
+    }
+
+    @Test
+    public void testConstantPattern() throws HiveException {
+        UDFRe2JRegexpReplace udf = new UDFRe2JRegexpReplace();
+        udf.initialize(new ObjectInspector[]{PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(PrimitiveCategory.STRING, new Text("\\d+"))});
+
+        assertEquals("ab", evaluate(udf, "a12b3"));
+        assertEquals("cd", evaluate(udf, "c4d"));
+        assertSame(Re2JRegexpCache.get("\\d+"), Re2JRegexpCache.get("\\d+"));
+    }
+
+    @Test
+    public void testReusedText() throws HiveException {
+        UDFRe2JRegexpReplace udf = new UDFRe2JRegexpReplace();
+        ObjectInspector text = PrimitiveObjectInspectorFactory.writableStringObjectInspector;
+        udf.initialize(new ObjectInspector[]{text, text, text});
+
+        // Text被复用时底层数组长度大于getLength()，只能处理有效部分
+        Text source = new Text("义乌小商品城2022年10月");
+        assertEquals("义乌小商品城#年#月", evaluate(udf, source, new Text("\\d+"), new Text("#")));
+        source.set("商品99");
+        assertEquals("商品#", evaluate(udf, source, new Text("\\d+"), new Text("#")));
+        assertEquals("99", evaluate(udf, source, new Text("[^0-9]"), new Text("")));
+    }
+
+    @Test(expected = UDFArgumentException.class)
+    public void testInvalidConstantPattern() throws HiveException {
+        UDFRe2JRegexpReplace udf = new UDFRe2JRegexpReplace();
+        udf.initialize(new ObjectInspector[]{PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(PrimitiveCategory.STRING, new Text("(a"))});
+    }
+
+    private static String evaluate(GenericUDF udf, Object... values) throws HiveException {
+        GenericUDF.DeferredObject[] arguments = new GenericUDF.DeferredObject[values.length];
+        for (int i = 0; i < values.length; i++) {
+            arguments[i] = new GenericUDF.DeferredJavaObject(values[i]);
+        }
+        Object result = udf.evaluate(arguments);
+        return result == null ? null : result.toString();
+    }
+}
@@ -0,0 +1,25 @@
+package com.chinagoods.bigdata.functions.regexp;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class UDFRe2JRegexpSplitTest {
+    @Test
+    public void testUDFRe2JRegexpSplit() throws HiveException {
+        UDFRe2JRegexpSplit udf = new UDFRe2JRegexpSplit();
+        ObjectInspector[] arguments = {PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+                PrimitiveObjectInspectorFactory.javaStringObjectInspector};
+        udf.initialize(arguments);
+
+        GenericUDF.DeferredObject[] args = {new GenericUDF.DeferredJavaObject(new Text("/商品?id=1&来源=首页")),
+                new GenericUDF.DeferredJavaObject("[?&]")};
+        assertEquals(ImmutableList.of("/商品", "id=1", "来源=首页"), udf.evaluate(args));
+    }
+}
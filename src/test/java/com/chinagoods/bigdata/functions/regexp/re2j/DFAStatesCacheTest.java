@@ -0,0 +1,85 @@
+package com.chinagoods.bigdata.functions.regexp.re2j;
+
+import io.airlift.slice.Slices;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.chinagoods.bigdata.functions.regexp.re2j.Options.Algorithm.DFA_FALLBACK_TO_NFA;
+import static org.junit.Assert.*;
+
+public class DFAStatesCacheTest {
+    // the DFA of this pattern needs 2^10 states to remember the last 10 bytes
+    private static final String PATTERN = "(a|b)*a(a|b){9}c";
+
+    @Test
+    public void testMemoryBudgetResetsAndFallsBack() {
+        CountingListener listener = new CountingListener();
+        Options options = Options.builder()
+                .setAlgorithm(DFA_FALLBACK_TO_NFA)
+                .setMaximumDFAMemoryBytes(64 * DFAState.STATE_OVERHEAD_BYTES)
+                .setNumberOfDFARetries(2)
+                .setEventsListener(listener)
+                .build();
+        Pattern pattern = Pattern.compile(PATTERN, options);
+        java.util.regex.Pattern expected = java.util.regex.Pattern.compile(PATTERN);
+
+        Random random = new Random(20221018L);
+        for (int i = 0; i < 200; i++) {
+            String text = randomText(random, 200);
+            assertEquals(text, expected.matcher(text).find(), pattern.find(Slices.utf8Slice(text)));
+        }
+
+        assertTrue(listener.statesCreated.get() > 64);
+        assertEquals(2, listener.cacheResets.get());
+        assertEquals(1, listener.fallbacks.get());
+    }
+
+    @Test
+    public void testUnboundedByDefault() {
+        CountingListener listener = new CountingListener();
+        Pattern pattern = Pattern.compile(PATTERN, Options.builder().setEventsListener(listener).build());
+        Random random = new Random(20221018L);
+        for (int i = 0; i < 50; i++) {
+            pattern.find(Slices.utf8Slice(randomText(random, 200)));
+        }
+        assertTrue(listener.statesCreated.get() > 64);
+        assertEquals(0, listener.cacheResets.get());
+        assertEquals(0, listener.fallbacks.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMinimumMemory() {
+        Options.builder().setMaximumDFAMemoryBytes(DFAState.STATE_OVERHEAD_BYTES);
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(random.nextInt(20) == 0 ? 'c' : random.nextBoolean() ? 'a' : 'b');
+        }
+        return text.toString();
+    }
+
+    private static final class CountingListener implements Options.EventsListener {
+        private final AtomicInteger statesCreated = new AtomicInteger();
+        private final AtomicInteger cacheResets = new AtomicInteger();
+        private final AtomicInteger fallbacks = new AtomicInteger();
+
+        @Override
+        public void fallbackToNFA() {
+            fallbacks.incrementAndGet();
+        }
+
+        @Override
+        public void dfaStateCreated() {
+            statesCreated.incrementAndGet();
+        }
+
+        @Override
+        public void dfaCacheReset() {
+            cacheResets.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.chinagoods.bigdata.functions.regexp.re2j;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slices;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PatternSetTest {
+    @Test
+    public void testMatch() {
+        PatternSet set = PatternSet.compile(ImmutableList.of("^/goods/\\d+", "utm_source=", "\\bshop\\b", "义乌$", "(?i)SEARCH"));
+        assertArrayEquals(new int[]{0, 1}, set.match(Slices.utf8Slice("/goods/123?utm_source=wx")));
+        assertArrayEquals(new int[]{2, 4}, set.match(Slices.utf8Slice("/shop/search")));
+        assertArrayEquals(new int[]{3}, set.match(Slices.utf8Slice("/myshop/义乌")));
+        assertArrayEquals(new int[]{}, set.match(Slices.utf8Slice("/a/goods/1/义乌市")));
+        assertArrayEquals(new int[]{}, set.match(Slices.EMPTY_SLICE));
+    }
+
+    @Test
+    public void testEmptySetAndEmptyPattern() {
+        assertArrayEquals(new int[]{}, PatternSet.compile(ImmutableList.<String>of()).match(Slices.utf8Slice("abc")));
+        assertArrayEquals(new int[]{0}, PatternSet.compile(ImmutableList.of("", "x")).match(Slices.EMPTY_SLICE));
+    }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void testInvalidPattern() {
+        PatternSet.compile(ImmutableList.of("a", "(b"));
+    }
+
+    @Test
+    public void testAgainstPatternFind() {
+        Random random = new Random(20221018L);
+        String[] atoms = {"a", "b", "ab", "[ab]", "\\d", "商", "^", "$", "\\b", "\\B", ".", "(?m:^)", "(?m:$)", "a*", "b+", "x?"};
+        String alphabet = "ab1 \n商_";
+        // a small state limit forces the cache to be reset while scanning
+        for (int maximumNumberOfStates : new int[]{PatternSet.DEFAULT_MAXIMUM_NUMBER_OF_STATES, 3}) {
+            for (int round = 0; round < 300; round++) {
+                List<String> patterns = new ArrayList<>();
+                for (int i = 0; i < 1 + random.nextInt(6); i++) {
+                    StringBuilder pattern = new StringBuilder();
+                    for (int j = 0; j < 1 + random.nextInt(4); j++) {
+                        pattern.append(atoms[random.nextInt(atoms.length)]);
+                    }
+                    patterns.add(pattern.toString());
+                }
+                PatternSet set = PatternSet.compile(patterns, maximumNumberOfStates);
+                for (int k = 0; k < 5; k++) {
+                    StringBuilder text = new StringBuilder();
+                    for (int j = 0; j < random.nextInt(12); j++) {
+                        text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                    }
+                    BitSet expected = new BitSet();
+                    for (int i = 0; i < patterns.size(); i++) {
+                        if (Pattern.compile(patterns.get(i)).find(Slices.utf8Slice(text.toString()))) {
+                            expected.set(i);
+                        }
+                    }
+                    BitSet actual = new BitSet();
+                    assertEquals(!expected.isEmpty(), set.match(Slices.utf8Slice(text.toString()), actual));
+                    assertEquals(patterns + " " + text, expected, actual);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.chinagoods.bigdata.functions.risk;
+
+import com.chinagoods.bigdata.functions.risk.negative.UDFNewGoodsNegativeString;
+import com.chinagoods.bigdata.functions.utils.BenchmarkCorpus;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 风控词函数基准测试，样本为商品名称
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@BenchmarkMode(Mode.Throughput)
+public class BenchmarkRiskFunctions {
+    private final UDFNewGoodsNegativeString newGoodsNegative = new UDFNewGoodsNegativeString();
+
+    private BenchmarkCorpus.Cursor<GenericUDF.DeferredObject[]> goodsNames;
+
+    @Setup
+    public void setup() throws HiveException {
+        goodsNames = BenchmarkCorpus.cursor(BenchmarkCorpus.GOODS_NAMES,
+                name -> new GenericUDF.DeferredObject[]{new GenericUDF.DeferredJavaObject(name)});
+
+        newGoodsNegative.initialize(new ObjectInspector[]{PrimitiveObjectInspectorFactory.javaStringObjectInspector});
+    }
+
+    @Benchmark
+    public Object newGoodsNegative() throws HiveException {
+        return newGoodsNegative.evaluate(goodsNames.next());
+    }
+
+    @Benchmark
+    public Object newGoodsNegativeContainsLoop() throws HiveException {
+        return newGoodsNegative.evaluate2(goodsNames.next());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkRiskFunctions.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,29 @@
+package com.chinagoods.bigdata.functions.risk.negative;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NegativeStringMatcherTest {
+    private final NegativeStringMatcher matcher = new NegativeStringMatcher(UDFNewGoodsNegativeString.NEGATIVE_STRING_LIST);
+
+    @Test
+    public void testContainsNegativeString() {
+        assertTrue(matcher.containsNegativeString("2022爆款仿羊绒格子围巾女冬季加厚保暖围脖哈利波特同款披肩男临期"));
+        assertTrue(matcher.containsNegativeString("清库存"));
+        assertTrue(matcher.containsNegativeString("邮费补差链接"));
+        assertFalse(matcher.containsNegativeString("2023新款韩版保温杯"));
+        assertFalse(matcher.containsNegativeString(""));
+    }
+
+    @Test
+    public void testOverlappingNegativeString() {
+        // 前缀失配后需从当前字符继续匹配
+        assertTrue(matcher.containsNegativeString("尾尾货"));
+        assertTrue(matcher.containsNegativeString("清清仓"));
+        assertTrue(matcher.containsNegativeString("补邮补差价"));
+        assertTrue(matcher.containsNegativeString("超低超低价"));
+        // 负向词出现在末尾
+        assertTrue(matcher.containsNegativeString("夏季帆布包反季"));
+    }
+}
@@ -0,0 +1,118 @@
+package com.chinagoods.bigdata.functions.string;
+
+import com.chinagoods.bigdata.functions.utils.BenchmarkCorpus;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 字符串函数基准测试，样本为商品名称与nginx日志页面地址
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@BenchmarkMode(Mode.Throughput)
+public class BenchmarkStringFunctions {
+    private final UDFChineseToPinYin pinyin = new UDFChineseToPinYin();
+    private final UDFFull2Half full2Half = new UDFFull2Half();
+    private final UDFMd5 md5 = new UDFMd5();
+    private final UDFStringLevenshteinDistance levenshteinDistance = new UDFStringLevenshteinDistance();
+    private final UDFStringPosition stringPosition = new UDFStringPosition();
+    private final UDFStringSplitToMap splitToMap = new UDFStringSplitToMap();
+
+    private final Text searchKeyword = new Text("保温杯");
+    private final Text normalizedName = new Text("爆款批发保温杯一件代发");
+
+    private BenchmarkCorpus.Cursor<Text> goodsNames;
+    private BenchmarkCorpus.Cursor<String> rawGoodsNames;
+    private BenchmarkCorpus.Cursor<GenericUDF.DeferredObject[]> queryStrings;
+
+    @Setup
+    public void setup() throws HiveException {
+        goodsNames = BenchmarkCorpus.cursor(BenchmarkCorpus.GOODS_NAMES, Text::new);
+        rawGoodsNames = BenchmarkCorpus.cursor(BenchmarkCorpus.GOODS_NAMES, name -> name);
+        List<GenericUDF.DeferredObject[]> queryStringRows = new ArrayList<>();
+        for (String url : BenchmarkCorpus.load(BenchmarkCorpus.NGINX_URLS)) {
+            int queryIndex = url.indexOf('?');
+            if (queryIndex < 0) {
+                continue;
+            }
+            queryStringRows.add(new GenericUDF.DeferredObject[]{
+                    new GenericUDF.DeferredJavaObject(url.substring(queryIndex + 1)),
+                    new GenericUDF.DeferredJavaObject("&"),
+                    new GenericUDF.DeferredJavaObject("=")});
+        }
+        queryStrings = new BenchmarkCorpus.Cursor<>(queryStringRows);
+
+        ObjectInspector stringOI = PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+        splitToMap.initialize(new ObjectInspector[]{stringOI, stringOI, stringOI});
+    }
+
+    @Benchmark
+    public Text pinyin() {
+        return pinyin.evaluate(goodsNames.next());
+    }
+
+    @Benchmark
+    public String full2Half() throws Exception {
+        return full2Half.evaluate(rawGoodsNames.next());
+    }
+
+    @Benchmark
+    public Text md5() {
+        return md5.evaluate(goodsNames.next());
+    }
+
+    @Benchmark
+    public LongWritable levenshteinDistance() throws HiveException {
+        return levenshteinDistance.evaluate(goodsNames.next(), normalizedName);
+    }
+
+    @Benchmark
+    public LongWritable stringPosition() {
+        return stringPosition.evaluate(goodsNames.next(), searchKeyword);
+    }
+
+    @Benchmark
+    public Object splitToMap() throws HiveException {
+        return splitToMap.evaluate(queryStrings.next());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkStringFunctions.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,215 @@
+package com.chinagoods.bigdata.functions.url;
+
+import com.chinagoods.bigdata.functions.utils.BenchmarkCorpus;
+import com.chinagoods.bigdata.functions.utils.HttpParamUtil;
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * url函数基准测试，样本为nginx日志中的页面地址
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@BenchmarkMode(Mode.Throughput)
+public class BenchmarkUrlFunctions {
+    private static final String[] PARAM_KEYS = {"product_type_id", "id", "q"};
+    private static final String[] RULE_PATHS = {"product", "shop", "news/detail", "search/categoryProduct", "goods/detail",
+            "venue/index", "market", "searchsort", "user/order/list", ""};
+
+    private final UDFAdUrlFormat adUrlFormat = new UDFAdUrlFormat();
+    private final UDFUrlDecode urlDecode = new UDFUrlDecode();
+    private final UDFUrlEncode urlEncode = new UDFUrlEncode();
+    private final UDFNginxLogDecode nginxLogDecode = new UDFNginxLogDecode();
+
+    private BenchmarkCorpus.Cursor<String> urls;
+    private BenchmarkCorpus.Cursor<String> nginxEncodedEvents;
+    private BenchmarkCorpus.Cursor<String> standardUrls;
+    /**
+     * standard_rule_url形式的正则规则：standard_url, regex, params
+     */
+    private final List<String[]> rules = new ArrayList<>();
+    private StandardUrlRuleTable ruleTable;
+    /**
+     * standard_special_url形式的菜单规则，url为market/Z--xxx等
+     */
+    private final List<List<String>> menuRules = new ArrayList<>();
+    private SpecialUrlIndex menuIndex;
+    private UDFStandardUrlFormat cachedStandardUrlFormat;
+    private UDFStandardUrlFormat uncachedStandardUrlFormat;
+
+    @Setup
+    public void setup() {
+        urls = BenchmarkCorpus.cursor(BenchmarkCorpus.NGINX_URLS, url -> url);
+        // nginx escape=default 输出的请求体，双引号及非ascii字符使用\xHH转义
+        nginxEncodedEvents = BenchmarkCorpus.cursor(BenchmarkCorpus.JSON_EVENTS, BenchmarkUrlFunctions::nginxEscape);
+        standardUrls = BenchmarkCorpus.cursor(BenchmarkCorpus.NGINX_URLS, url -> url.replaceFirst("http:", "https:"));
+
+        List<List<String>> rows = new ArrayList<>();
+        for (String host : new String[]{"www", "h5", "m", "seller"}) {
+            for (String path : RULE_PATHS) {
+                String prefix = "https://" + host + ".chinagoods.com/" + path;
+                rules.add(new String[]{prefix + "/0000/", "/\\d+(\\.html)?/?\\?.*$/&//\\d+/", "/0000//&//0000/"});
+                rules.add(new String[]{prefix + "/list/", "/(T|Z)--.*", "/list/"});
+                rules.add(new String[]{prefix + "/", "#.*$/&/\\?.*", "NULL/&/NULL"});
+            }
+        }
+        for (String[] rule : rules) {
+            rows.add(Arrays.asList("pc", "N", rule[0], rule[1], "unit", "sub_unit", "page", rule[2]));
+        }
+        ruleTable = StandardUrlRuleTable.build(rows);
+
+        for (String host : new String[]{"www", "h5", "m", "seller"}) {
+            for (int i = 0; i < 128; i++) {
+                String url = "https://" + host + ".chinagoods.com/" + RULE_PATHS[i % RULE_PATHS.length] + "/Z--" + i;
+                menuRules.add(Arrays.asList(url, url, "fixed_param", "Z", "unit", "sub_unit", null, "1", ""));
+            }
+        }
+        menuIndex = new SpecialUrlIndex(menuRules, SpecialUrlIndex.URL_COLUMN);
+
+        SpecialUrlIndex specialIndex = new SpecialUrlIndex(Collections.emptyList(), SpecialUrlIndex.FIXED_IDENTITY_COLUMN);
+        cachedStandardUrlFormat = new UDFStandardUrlFormat(Collections.emptyMap(), Collections.emptyMap(), menuIndex, specialIndex,
+                ruleTable, 4L * 1024 * 1024);
+        uncachedStandardUrlFormat = new UDFStandardUrlFormat(Collections.emptyMap(), Collections.emptyMap(), menuIndex, specialIndex,
+                ruleTable, 0);
+    }
+
+    @Benchmark
+    public String adUrlFormat() throws MalformedURLException {
+        return adUrlFormat.evaluate(urls.next());
+    }
+
+    @Benchmark
+    public Text urlDecode() {
+        return urlDecode.evaluate(urls.next());
+    }
+
+    @Benchmark
+    public Text urlEncode() {
+        return urlEncode.evaluate(urls.next());
+    }
+
+    @Benchmark
+    public Text nginxLogDecode() {
+        return nginxLogDecode.evaluate(nginxEncodedEvents.next());
+    }
+
+    @Benchmark
+    public Map<String, Object> httpParameter() {
+        return HttpParamUtil.getParameter(urls.next());
+    }
+
+    @Benchmark
+    public List<String> urlPathAndParams() {
+        return UDFStandardUrlFormat.getUrlPathAndParams(urls.next(), PARAM_KEYS);
+    }
+
+    @Benchmark
+    public Object standardUrlRuleTable() {
+        return ruleTable.match("pc", standardUrls.next());
+    }
+
+    /**
+     * 原regexDealUrl的逐条String.replaceAll，作为standardUrlRuleTable的对照
+     */
+    @Benchmark
+    public Object standardUrlRuleReplaceAll() {
+        String scUrl = standardUrls.next();
+        for (String[] rule : rules) {
+            String newScUrl = scUrl;
+            String[] regexArray = rule[1].split("/&/");
+            String[] paramsArray = rule[2].split("/&/");
+            for (int i = 0; i < regexArray.length; i++) {
+                newScUrl = newScUrl.replaceAll(regexArray[i], paramsArray[i].replace("NULL", ""));
+            }
+            newScUrl = newScUrl.lastIndexOf("/") + 1 == newScUrl.length() ? newScUrl : newScUrl + "/";
+            if (newScUrl.equals(rule[0])) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public int menuUrlIndex() {
+        return menuIndex.first(standardUrls.next());
+    }
+
+    /**
+     * 原menuDealUrl的逐条StringUtils.contains，作为menuUrlIndex的对照
+     */
+    @Benchmark
+    public int menuUrlScan() {
+        String scUrl = standardUrls.next();
+        for (int i = 0; i < menuRules.size(); i++) {
+            if (StringUtils.contains(scUrl, menuRules.get(i).get(0))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Benchmark
+    public List<String> standardUrlFormat() throws HiveException {
+        return cachedStandardUrlFormat.format("pc", urls.next());
+    }
+
+    @Benchmark
+    public List<String> standardUrlFormatUncached() throws HiveException {
+        return uncachedStandardUrlFormat.format("pc", urls.next());
+    }
+
+    private static String nginxEscape(String value) {
+        StringBuilder builder = new StringBuilder(value.length() * 2);
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            // 非ascii字节为负数
+            if (b == '"' || b < 0x20) {
+                builder.append(String.format("\\x%02X", b & 0xFF));
+            } else {
+                builder.append((char) b);
+            }
+        }
+        return builder.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkUrlFunctions.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,90 @@
+package com.chinagoods.bigdata.functions.url;
+
+import com.chinagoods.bigdata.functions.utils.BenchmarkCorpus;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public class SpecialUrlIndexTest {
+
+    private static List<String> rule(String url, String fixedIdentity) {
+        return Arrays.asList(url, fixedIdentity, "fixed_param", "mapping_key", "unit", "sub_unit", null, "1", "");
+    }
+
+    @Test
+    public void testFirst() {
+        SpecialUrlIndex index = new SpecialUrlIndex(Arrays.asList(
+                rule("https://www.chinagoods.com/search/categoryProduct/", null),
+                rule("https://www.chinagoods.com/market/", null),
+                rule("/categoryProduct/", null),
+                rule(null, null)
+        ), SpecialUrlIndex.URL_COLUMN);
+
+        Assert.assertEquals(0, index.first("https://www.chinagoods.com/search/categoryProduct/T--51---S--1/"));
+        Assert.assertEquals(2, index.first("https://m.chinagoods.com/search/categoryProduct/T--51---S--1/"));
+        Assert.assertEquals(1, index.first("https://www.chinagoods.com/market/Z--59913---M--27197/"));
+        Assert.assertEquals(-1, index.first("https://www.chinagoods.com/venue/index/"));
+        Assert.assertFalse(index.containsAny("https://www.chinagoods.com/venue/index/"));
+    }
+
+    @Test
+    public void testMatches() {
+        SpecialUrlIndex index = new SpecialUrlIndex(Arrays.asList(
+                rule("https://h5.chinagoods.com/venue/?fixed_param", "/venue/"),
+                rule("https://www.chinagoods.com/venue/?fixed_param", "/venue/"),
+                rule("https://www.chinagoods.com/news/detail/?fixed_param", "news/detail"),
+                rule("https://www.chinagoods.com/", "")
+        ), SpecialUrlIndex.FIXED_IDENTITY_COLUMN);
+
+        Assert.assertTrue(index.containsAny("https://seller.chinagoods.com/"));
+        Assert.assertEquals(BitSet.valueOf(new long[]{0b0001}), index.matches("https://h5.chinagoods.com/venue/?id=1", "h5.chinagoods.com"));
+        Assert.assertEquals(BitSet.valueOf(new long[]{0b1010}), index.matches("https://www.chinagoods.com/venue/?id=1", "www.chinagoods.com"));
+        // 规则url包含请求域名即可
+        Assert.assertEquals(BitSet.valueOf(new long[]{0b1011}), index.matches("https://chinagoods.com/venue/?id=1", "chinagoods.com"));
+        Assert.assertEquals(BitSet.valueOf(new long[]{0b1100}), index.matches("https://www.chinagoods.com/news/detail/1", "www.chinagoods.com"));
+        Assert.assertTrue(index.matches("https://seller.chinagoods.com/venue/", "seller.chinagoods.com").isEmpty());
+    }
+
+    /**
+     * 与逐条contains的结果一致
+     */
+    @Test
+    public void testSameAsScan() throws MalformedURLException {
+        List<List<String>> rules = new ArrayList<>();
+        for (String host : new String[]{"www", "h5", "m"}) {
+            for (String path : new String[]{"search/categoryProduct/", "market/", "venue/", "news/detail/", "shop/", "product/"}) {
+                rules.add(rule("https://" + host + ".chinagoods.com/" + path + "?fixed_param", "/" + path));
+                rules.add(rule("https://" + host + ".chinagoods.com/" + path, path + "T--"));
+            }
+        }
+        SpecialUrlIndex menuIndex = new SpecialUrlIndex(rules, SpecialUrlIndex.URL_COLUMN);
+        SpecialUrlIndex specialIndex = new SpecialUrlIndex(rules, SpecialUrlIndex.FIXED_IDENTITY_COLUMN);
+
+        for (String url : BenchmarkCorpus.load(BenchmarkCorpus.NGINX_URLS)) {
+            int first = -1;
+            BitSet matches = new BitSet();
+            String host = new URL(url).getHost();
+            for (int i = 0; i < rules.size(); i++) {
+                if (first < 0 && StringUtils.contains(url, rules.get(i).get(0))) {
+                    first = i;
+                }
+                if (url.contains(rules.get(i).get(1)) && rules.get(i).get(0).contains(host)) {
+                    matches.set(i);
+                }
+            }
+            Assert.assertEquals(url, first, menuIndex.first(url));
+            Assert.assertEquals(url, matches, specialIndex.matches(url, host));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.chinagoods.bigdata.functions.url;
+
+import com.chinagoods.bigdata.functions.utils.BenchmarkCorpus;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public class StandardUrlRuleTableTest {
+
+    private static List<String> rule(String platformType, String standardUrl, String regex, String pageName, String params) {
+        return Arrays.asList(platformType, standardUrl.contains("://h") ? "Y" : "N", standardUrl, regex, "unit", "sub_unit", pageName, params);
+    }
+
+    private static final List<List<String>> RULES = Arrays.asList(
+            rule("pc", "https://www.chinagoods.com/product/0000.html/", "\\d+\\.html", "product", "0000.html"),
+            rule("pc", "https://www.chinagoods.com/shop/0000/", "shop/\\d+/.*$/&/$", "shop", "shop/0000//&/NULL"),
+            rule("pc", "https://www.chinagoods.com/news/detail/", "\\?.*", "news", "NULL"),
+            rule("pc", "https://www.chinagoods.com/news/detail/0000/", "detail/\\d+(?=/)", "news_detail", "detail/0000"),
+            rule("pc", "https://www.chinagoods.com/venue/index/", "never_matches", "venue", "NULL"),
+            rule("pc", "https://www.chinagoods.com/product/0000.html", "\\d+\\.html", "without_backslash", "0000.html"),
+            rule("wap", "https://h5.chinagoods.com/goods/detail/", "\\?.*", "h5_goods", "NULL"),
+            rule("wap", "https://m.chinagoods.com/search/categoryProduct/T--51/", "(T--\\d+)---.*", "category", "$1")
+    );
+
+    @Test
+    public void testMatch() {
+        StandardUrlRuleTable table = StandardUrlRuleTable.build(RULES);
+
+        Assert.assertEquals("product", table.match("pc", "https://www.chinagoods.com/product/26317.html/").getPageName());
+        Assert.assertEquals("shop", table.match("pc", "https://www.chinagoods.com/shop/51482/index/").getPageName());
+        // 第一条替换后相等的规则生效
+        Assert.assertEquals("news", table.match("pc", "https://www.chinagoods.com/news/detail/?q=1").getPageName());
+        // java正则的环视不经过PatternSet
+        Assert.assertEquals("news_detail", table.match("pc", "https://www.chinagoods.com/news/detail/7356/").getPageName());
+        // 正则不匹配但原始url等于standard_url
+        Assert.assertEquals("venue", table.match("pc", "https://www.chinagoods.com/venue/index").getPageName());
+        Assert.assertNull(table.match("pc", "https://www.chinagoods.com/user/order/list/"));
+        Assert.assertNull(table.match("app", "https://www.chinagoods.com/product/26317.html/"));
+
+        Assert.assertEquals("h5_goods", table.match("wap" + "h5", "https://h5.chinagoods.com/goods/detail/?id=1").getPageName());
+        Assert.assertNull(table.match("wap", "https://h5.chinagoods.com/goods/detail/?id=1"));
+        // params中的分组引用
+        Assert.assertEquals("category", table.match("wap", "https://m.chinagoods.com/search/categoryProduct/T--51---S--1/").getPageName());
+        // 非ascii的url逐条尝试
+        Assert.assertEquals("shop", table.match("pc", "https://www.chinagoods.com/shop/51482/店铺/").getPageName());
+    }
+
+    /**
+     * 非法的规则跳过，不影响同平台的其他规则
+     */
+    @Test
+    public void testInvalidRuleSkipped() {
+        StandardUrlRuleTable table = StandardUrlRuleTable.build(Arrays.asList(
+                rule("pc", "https://www.chinagoods.com/", "a/&/b", "params_mismatch", "NULL"),
+                Arrays.asList("pc", "N", "https://www.chinagoods.com/", "a", "unit", "sub_unit", "null_params", null),
+                rule("pc", "https://www.chinagoods.com/", "(unclosed", "invalid_regex", "NULL"),
+                rule("pc", "https://www.chinagoods.com/product/0000.html/", "\\d+\\.html", "product", "0000.html")
+        ));
+
+        Assert.assertEquals("product", table.match("pc", "https://www.chinagoods.com/product/26317.html/").getPageName());
+        Assert.assertNull(table.match("pc", "https://www.chinagoods.com/"));
+    }
+
+    @Test
+    public void testIsRe2jCompatible() {
+        Assert.assertTrue(StandardUrlRuleTable.isRe2jCompatible("shop/\\d+/.*$"));
+        Assert.assertTrue(StandardUrlRuleTable.isRe2jCompatible("[]a]\\[[^]b]"));
+        Assert.assertTrue(StandardUrlRuleTable.isRe2jCompatible("\\Q[a&&b]\\E"));
+        Assert.assertFalse(StandardUrlRuleTable.isRe2jCompatible("detail/\\d+(?=/)"));
+        Assert.assertFalse(StandardUrlRuleTable.isRe2jCompatible("(a)\\1"));
+        Assert.assertFalse(StandardUrlRuleTable.isRe2jCompatible("[a-z&&[^b]]"));
+        Assert.assertFalse(StandardUrlRuleTable.isRe2jCompatible("[a[b]]"));
+        Assert.assertFalse(StandardUrlRuleTable.isRe2jCompatible("\\0101"));
+    }
+
+    /**
+     * 与逐条String.replaceAll的结果一致
+     */
+    @Test
+    public void testSameAsReplaceAll() {
+        List<List<String>> rules = new ArrayList<>();
+        String[] paths = {"product", "shop", "news/detail", "search/categoryProduct", "goods/detail", "venue/index", "market", "searchsort", ""};
+        for (String host : new String[]{"www", "h5", "m", "seller"}) {
+            for (String path : paths) {
+                String prefix = "https://" + host + ".chinagoods.com/" + path;
+                rules.add(rule("pc", prefix + "/", "\\?.*", path + "_query", "NULL"));
+                rules.add(rule("pc", prefix + "/0000/", "/\\d+(\\.html)?/?\\?.*$/&//\\d+/", path + "_id", "/0000//&//0000/"));
+                rules.add(rule("pc", prefix + "/list/", "/(T|Z)--.*", path + "_list", "/list/"));
+                rules.add(rule("pc", prefix + "/", "#.*$/&/(?<=/)\\?.*", path + "_top", "NULL/&/NULL"));
+            }
+        }
+        StandardUrlRuleTable table = StandardUrlRuleTable.build(rules);
+
+        int matched = 0;
+        for (String url : BenchmarkCorpus.load(BenchmarkCorpus.NGINX_URLS)) {
+            String scUrl = url.replaceFirst("http:", "https:");
+            String fullPlatformType = scUrl.startsWith("https://h") ? "pch5" : "pc";
+            String expected = null;
+            for (List<String> rule : rules) {
+                if (!fullPlatformType.equals(rule.get(0) + (rule.get(1).equals("Y") ? "h5" : ""))) {
+                    continue;
+                }
+                String newScUrl = scUrl;
+                String[] regexArray = rule.get(3).split("/&/");
+                String[] paramsArray = rule.get(7).split("/&/");
+                for (int i = 0; i < regexArray.length; i++) {
+                    newScUrl = newScUrl.replaceAll(regexArray[i], paramsArray[i].replace("NULL", ""));
+                }
+                newScUrl = newScUrl.lastIndexOf("/") + 1 == newScUrl.length() ? newScUrl : newScUrl + "/";
+                if (newScUrl.equals(rule.get(2))) {
+                    expected = rule.get(6);
+                    break;
+                }
+            }
+
+            StandardUrlRuleTable.Rule rule = table.match(fullPlatformType, scUrl);
+            Assert.assertEquals(scUrl, expected, rule == null ? null : rule.getPageName());
+            matched += rule == null ? 0 : 1;
+        }
+        Assert.assertTrue(matched > 100);
+    }
+}
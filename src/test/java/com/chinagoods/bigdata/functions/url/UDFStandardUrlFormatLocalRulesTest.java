@@ -0,0 +1,156 @@
+package com.chinagoods.bigdata.functions.url;
+
+import com.chinagoods.bigdata.functions.utils.BenchmarkCorpus;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 使用本地构建的规则测试standard_url_format，不查询mysql
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public class UDFStandardUrlFormatLocalRulesTest {
+
+    private static UDFStandardUrlFormat newUdf() {
+        return newUdf(0);
+    }
+
+    static UDFStandardUrlFormat newUdf(long resultCacheMaxWeight) {
+        Map<String, String> paramKvMap = new HashMap<>();
+        paramKvMap.put("z--59913", "国际商贸城一区");
+        paramKvMap.put("m--27197", "饰品");
+        Map<String, String> staticUrlMap = new HashMap<>();
+        staticUrlMap.put("https://www.chinagoods.com/news/index/", "资讯---首页---资讯首页");
+        staticUrlMap.put("https://h5.chinagoods.com/venue/?id=3", "会场---h5---会场");
+
+        SpecialUrlIndex menuUrlIndex = new SpecialUrlIndex(Collections.singletonList(
+                Arrays.asList("https://www.chinagoods.com/market/", "", "", "", "市场", "市场导航", null, "1", "")
+        ), SpecialUrlIndex.URL_COLUMN);
+        SpecialUrlIndex specialUrlIndex = new SpecialUrlIndex(Collections.singletonList(
+                Arrays.asList("https://h5.chinagoods.com/venue/?fixed_param", "/venue/", "fixed_param", "V", "会场", "h5", "id", "1", "-link")
+        ), SpecialUrlIndex.FIXED_IDENTITY_COLUMN);
+        StandardUrlRuleTable ruleTable = StandardUrlRuleTable.build(Collections.singletonList(
+                Arrays.asList("pc", "N", "https://www.chinagoods.com/product/0000.html/", "\\d+\\.html", "商品", "详情", "商品详情", "0000.html")
+        ));
+        return new UDFStandardUrlFormat(paramKvMap, staticUrlMap, menuUrlIndex, specialUrlIndex, ruleTable, resultCacheMaxWeight);
+    }
+
+    @Test
+    public void testFormat() throws Exception {
+        UDFStandardUrlFormat udf = newUdf();
+
+        Assert.assertEquals(Arrays.asList("https://www.chinagoods.com/news/index/", "资讯", "首页", "资讯首页"),
+                udf.format("pc", "http://www.chinagoods.com/news/index?spm=a.b.c"));
+        Assert.assertEquals(Arrays.asList("https://h5.chinagoods.com/venue/?id=3", "会场", "h5", "会场-link"),
+                udf.format("wap", "https://h5.chinagoods.com/venue/?id=3&from=index"));
+        // 菜单参数后的/之前整体作为第一个名称，与原有逻辑一致
+        Assert.assertEquals(Arrays.asList("https://www.chinagoods.com/market/Z--59913---M--27197/", "市场", "市场导航", "z--59913---m--27197---null"),
+                udf.format("pc", "https://www.chinagoods.com/market/Z--59913---M--27197"));
+        List<String> product = udf.format("pc", "https://www.chinagoods.com/product/26317.html");
+        Assert.assertEquals(Arrays.asList("https://www.chinagoods.com/product/0000.html/", "商品", "详情", "商品详情"), product);
+        // 同一规则的结果共享
+        Assert.assertSame(product, udf.format("pc", "https://www.chinagoods.com/product/78168.html"));
+
+        List<String> notFound = udf.format("pc", "https://www.chinagoods.com/user/order/list");
+        Assert.assertEquals(Arrays.asList("0000", "0000", "0000", "0000"), notFound);
+        Assert.assertSame(notFound, udf.format("app", ""));
+        try {
+            notFound.set(0, "changed");
+            Assert.fail();
+        } catch (UnsupportedOperationException e) {
+            Assert.assertEquals("0000", notFound.get(0));
+        }
+    }
+
+    @Test
+    public void testResultCache() throws Exception {
+        UDFStandardUrlFormat udf = newUdf(1024 * 1024);
+
+        List<String> first = udf.format("pc", "http://www.chinagoods.com/news/index?spm=a.b.c");
+        // 标准化后的url相同
+        Assert.assertSame(first, udf.format("pc", "https://www.chinagoods.com/news/index?spm=a.b.c"));
+        Assert.assertEquals(first, udf.format("wap", "https://www.chinagoods.com/news/index?spm=a.b.c"));
+        Assert.assertEquals(1, udf.getResultCacheStats().hitCount());
+        Assert.assertEquals(2, udf.getResultCacheStats().missCount());
+        Assert.assertNull(newUdf().getResultCacheStats());
+
+        // 超过最大权重时淘汰
+        UDFStandardUrlFormat small = newUdf(1024);
+        for (int i = 0; i < 100; i++) {
+            small.format("pc", "https://www.chinagoods.com/product/" + i + ".html");
+        }
+        Assert.assertTrue(small.getResultCacheStats().evictionCount() > 0);
+    }
+
+    /**
+     * 与逐个参数编译正则key=([^&]*)的结果一致
+     */
+    @Test
+    public void testUrlPathAndParams() {
+        String[] keys = {"id", "code", "", "a.b", "active_code"};
+        List<String> urls = new ArrayList<>(Arrays.asList("https://h5.chinagoods.com/venue/?pid=1&id=2",
+                "https://h5.chinagoods.com/venue/?id=1=2&code=", "https://h5.chinagoods.com/venue/?id=1==&code==",
+                "https://h5.chinagoods.com/venue/?axb=1&a.b=2", "https://h5.chinagoods.com/venue/=x"));
+        urls.addAll(BenchmarkCorpus.load(BenchmarkCorpus.NGINX_URLS));
+        for (String url : urls) {
+            List<String> expected = new ArrayList<>();
+            expected.add(url.contains("?") ? url.substring(0, url.indexOf('?')) : url);
+            for (String key : keys) {
+                Matcher matcher = Pattern.compile(key + "=([^&]*)").matcher(url);
+                if (matcher.find()) {
+                    String[] keyValArr = matcher.group(0).split("=");
+                    expected.add(key + "=" + (keyValArr.length == 2 ? keyValArr[1] : ""));
+                }
+            }
+            Assert.assertEquals(url, expected, UDFStandardUrlFormat.getUrlPathAndParams(url, keys));
+        }
+    }
+
+    /**
+     * 同一实例被多个线程同时调用，结果与单线程相同
+     */
+    @Test
+    public void testConcurrentFormat() throws Exception {
+        UDFStandardUrlFormat udf = newUdf(64 * 1024);
+        List<String> urls = BenchmarkCorpus.load(BenchmarkCorpus.NGINX_URLS);
+        List<List<String>> expected = new ArrayList<>();
+        for (String url : urls) {
+            expected.add(udf.format("pc", url));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<List<String>>>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    List<List<String>> results = new ArrayList<>();
+                    for (int round = 0; round < 20; round++) {
+                        results.clear();
+                        for (String url : urls) {
+                            results.add(udf.format("pc", url));
+                        }
+                    }
+                    return results;
+                }));
+            }
+            for (Future<List<List<String>>> future : futures) {
+                Assert.assertEquals(expected, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
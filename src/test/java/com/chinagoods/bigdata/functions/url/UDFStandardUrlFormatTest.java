@@ -22,7 +22,7 @@ public class UDFStandardUrlFormatTest {
 //        System.out.println(aa.lastIndexOf("/"));
 //        String ss=aa.substring(161,180);
 //        System.out.print(ss);
-        ArrayList<String> resList;
+        List<String> resList;
         try (UDFStandardUrlFormat udf = new UDFStandardUrlFormat()) {
             ObjectInspector platform_type = PrimitiveObjectInspectorFactory.javaStringObjectInspector;
             ObjectInspector sc_url = PrimitiveObjectInspectorFactory.javaStringObjectInspector;
@@ -0,0 +1,89 @@
+package com.chinagoods.bigdata.functions.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * jmh基准测试使用的样本数据，数据位于 src/test/resources/benchmark 目录下，每行一条记录，#开头为注释
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public final class BenchmarkCorpus {
+    /**
+     * 商品名称
+     */
+    public static final String GOODS_NAMES = "/benchmark/goods_names.txt";
+    /**
+     * nginx日志中的页面地址
+     */
+    public static final String NGINX_URLS = "/benchmark/nginx_urls.txt";
+    /**
+     * nginx日志中的UA
+     */
+    public static final String USER_AGENTS = "/benchmark/user_agents.txt";
+    /**
+     * 埋点上报的json事件
+     */
+    public static final String JSON_EVENTS = "/benchmark/json_events.txt";
+    /**
+     * 风控禁用词
+     */
+    public static final String RISK_KEYWORDS = "/benchmark/risk_keywords.txt";
+    /**
+     * 访问来源ip
+     */
+    public static final String IPS = "/benchmark/ips.txt";
+    /**
+     * 访问来源ipv6
+     */
+    public static final String IPV6S = "/benchmark/ipv6s.txt";
+
+    private BenchmarkCorpus() {
+    }
+
+    public static List<String> load(String resource) {
+        try {
+            return ConfigUtils.loadFile(resource);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load benchmark corpus " + resource, e);
+        }
+    }
+
+    public static <T> Cursor<T> cursor(String resource, Function<String, T> mapper) {
+        List<String> lines = load(resource);
+        List<T> rows = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            rows.add(mapper.apply(line));
+        }
+        return new Cursor<>(rows);
+    }
+
+    /**
+     * 循环遍历样本，每次调用返回下一行，保证每次benchmark调用只处理一行数据
+     */
+    public static final class Cursor<T> {
+        private final List<T> rows;
+        private int position;
+
+        public Cursor(List<T> rows) {
+            if (rows.isEmpty()) {
+                throw new IllegalArgumentException("benchmark corpus is empty");
+            }
+            this.rows = rows;
+        }
+
+        public T next() {
+            T row = rows.get(position);
+            position = position + 1 == rows.size() ? 0 : position + 1;
+            return row;
+        }
+
+        public List<T> rows() {
+            return rows;
+        }
+    }
+}
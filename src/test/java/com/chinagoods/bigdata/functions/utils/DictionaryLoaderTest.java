@@ -0,0 +1,99 @@
+package com.chinagoods.bigdata.functions.utils;
+
+import org.apache.hadoop.fs.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DictionaryLoaderTest {
+    /**
+     * 没有mysql监听的地址，查询必然失败
+     */
+    private static final String DB_URL = "jdbc:mysql://127.0.0.1:1/source?connectTimeout=1000";
+    private static final String SQL = "select key_desc,value_desc from standard_url_param_maping";
+    private static final List<List<String>> ROWS = Arrays.asList(
+            Arrays.asList("T--1", "义乌😀"), Arrays.asList("T--2", null), Arrays.asList("", "x"));
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DictionarySnapshot(DB_URL, SQL, 20221018L, ROWS).write(out);
+        byte[] bytes = out.toByteArray();
+        DictionarySnapshot snapshot = DictionarySnapshot.read(new ByteArrayInputStream(bytes));
+        assertEquals(DB_URL, snapshot.getSource());
+        assertEquals(SQL, snapshot.getQuery());
+        assertEquals(20221018L, snapshot.getVersion());
+        assertEquals(ROWS, snapshot.getRows());
+
+        bytes[bytes.length - 9] ^= 1;
+        try {
+            DictionarySnapshot.read(new ByteArrayInputStream(bytes));
+            fail("corrupted snapshot");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void testLoadSnapshot() throws Exception {
+        File dir = temporaryFolder.newFolder();
+        writeSnapshot(dir, SQL, System.currentTimeMillis());
+        try (DictionaryLoader loader = new DictionaryLoader(DB_URL, "source", "", dir.getPath(), TimeUnit.HOURS.toMillis(1))) {
+            assertEquals(ROWS, loader.getLists(SQL));
+            assertEquals(new HashSet<>(Arrays.asList("T--1", "义乌😀", "T--2", null, "", "x")), loader.getSet(SQL));
+            Map<String, String> map = new HashMap<>();
+            map.put("T--1", "义乌😀");
+            map.put("T--2", null);
+            map.put("", "x");
+            assertEquals(map, loader.getMap(SQL));
+            // another query of the same source has no snapshot
+            try {
+                loader.getLists(SQL + " where 1=1");
+                fail("no snapshot and no mysql");
+            } catch (SQLException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testStaleSnapshotIsUsedWhenMysqlFails() throws Exception {
+        File dir = temporaryFolder.newFolder();
+        writeSnapshot(dir, SQL, System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2));
+        try (DictionaryLoader loader = new DictionaryLoader(DB_URL, "source", "", dir.getPath(), TimeUnit.HOURS.toMillis(1))) {
+            assertEquals(ROWS, loader.getLists(SQL));
+        }
+    }
+
+    @Test
+    public void testSnapshotOfAnotherSourceIsIgnored() throws Exception {
+        File dir = temporaryFolder.newFolder();
+        // a snapshot of another source copied under this source's file name
+        new DictionarySnapshot(DB_URL + "&other", SQL, System.currentTimeMillis(), ROWS)
+                .write(new Path(new File(dir, DictionarySnapshot.fileName(DB_URL, SQL)).toURI()));
+        try (DictionaryLoader loader = new DictionaryLoader(DB_URL, "source", "", dir.getPath(), TimeUnit.HOURS.toMillis(1))) {
+            loader.getLists(SQL);
+            fail("no snapshot and no mysql");
+        } catch (SQLException expected) {
+        }
+    }
+
+    private static void writeSnapshot(File dir, String sql, long version) throws IOException {
+        new DictionarySnapshot(DB_URL, sql, version, ROWS).write(new Path(new File(dir, DictionarySnapshot.fileName(DB_URL, sql)).toURI()));
+    }
+}
@@ -0,0 +1,91 @@
+package com.chinagoods.bigdata.functions.utils;
+
+import org.apache.hadoop.fs.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DictionaryRegistryTest {
+    private static final String DB_URL = "jdbc:mysql://127.0.0.1:1/source?connectTimeout=1000";
+    private static final String SQL = "select key_word from risk_control_keywords";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSharedUntilLastClose() throws Exception {
+        File dir = temporaryFolder.newFolder();
+        List<List<String>> rows = Arrays.asList(Collections.singletonList("袜子"), Collections.singletonList("a"));
+        new DictionarySnapshot(DB_URL, SQL, System.currentTimeMillis(), rows)
+                .write(new Path(new File(dir, DictionarySnapshot.fileName(DB_URL, SQL)).toURI()));
+        DictionaryLoader loader = new DictionaryLoader(DB_URL, "source", "", dir.getPath(), TimeUnit.HOURS.toMillis(1));
+
+        int size = DictionaryRegistry.size();
+        AtomicInteger builds = new AtomicInteger();
+        DictionaryRegistry.Dictionary first = DictionaryRegistry.acquire(loader, SQL);
+        DictionaryRegistry.Dictionary second = DictionaryRegistry.acquire(loader, SQL);
+        assertEquals(size + 1, DictionaryRegistry.size());
+        assertSame(first.getRows(), second.getRows());
+        assertEquals(rows, first.getRows());
+        assertSame(first.getSet(), second.getSet());
+        Integer view = first.getView("count", r -> builds.incrementAndGet());
+        assertSame(view, second.getView("count", r -> builds.incrementAndGet()));
+        assertEquals(1, builds.get());
+        try {
+            first.getSet().add("x");
+            fail("shared views are immutable");
+        } catch (UnsupportedOperationException expected) {
+        }
+
+        first.close();
+        // closing twice must not release the dictionary held by second
+        first.close();
+        assertEquals(size + 1, DictionaryRegistry.size());
+        second.close();
+        assertEquals(size, DictionaryRegistry.size());
+
+        // loaded again after the last user has gone
+        try (DictionaryRegistry.Dictionary third = DictionaryRegistry.acquire(loader, SQL)) {
+            assertNotSame(first.getRows(), third.getRows());
+            Set<String> keywords = third.getSet();
+            assertEquals(2, keywords.size());
+            assertEquals(Integer.valueOf(2), third.getView("count", r -> builds.incrementAndGet()));
+        }
+        assertEquals(size, DictionaryRegistry.size());
+    }
+
+    @Test
+    public void testUnchangedVersionRestartsReloadInterval() throws Exception {
+        String sql = "select key_word from risk_control_keywords where id > 0";
+        List<List<String>> rows = Collections.singletonList(Collections.singletonList("袜子"));
+        DictionarySnapshot snapshot = new DictionarySnapshot(DB_URL, sql, 1L, rows);
+        AtomicInteger loads = new AtomicInteger();
+        DictionaryRegistry.SnapshotLoader loader = query -> {
+            loads.incrementAndGet();
+            return snapshot;
+        };
+        long interval = 500;
+
+        try (DictionaryRegistry.Dictionary first = DictionaryRegistry.acquire(DB_URL, sql, loader, interval)) {
+            assertEquals(1, loads.get());
+            Thread.sleep(interval + 100);
+            // reloaded after the interval, the unchanged version is shared again
+            try (DictionaryRegistry.Dictionary second = DictionaryRegistry.acquire(DB_URL, sql, loader, interval);
+                 DictionaryRegistry.Dictionary third = DictionaryRegistry.acquire(DB_URL, sql, loader, interval)) {
+                assertEquals(2, loads.get());
+                assertSame(first.getRows(), second.getRows());
+                assertSame(first.getRows(), third.getRows());
+            }
+        }
+    }
+}
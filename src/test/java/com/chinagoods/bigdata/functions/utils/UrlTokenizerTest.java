@@ -0,0 +1,167 @@
+package com.chinagoods.bigdata.functions.utils;
+
+import com.chinagoods.bigdata.functions.url.UDFAdUrlFormat;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+public class UrlTokenizerTest {
+
+    private static final List<String> EDGE_URLS = Arrays.asList(
+            "https://www.chinagoods.com:443/product/1.html?id=1&q=%E6%B0%B4#top",
+            "HTTP://www.chinagoods.com?utm_source=a.b&utm_medium=c'd#/x=1",
+            "https://www.chinagoods.com#frag/x?utm_source=1",
+            "https://m.chinagoods.com/shop/8002418?utm_campaign=%E58%95%3E&utm_source=4a&utm_content=4a-F%CE%WAP",
+            "https://www.chinagoods.com/?redirect=https%3A%2F%2Fx.com%2F%3Fa%3D1%26utm_source%3D2",
+            "https://www.chinagoods.com/?utm_campaign=%2B1+%-0%+f&utm_source=%E3%80%81x",
+            "https://www.chinagoods.com/a?=1&utm_source&&utm_source=2=3&utm_source=4",
+            "https://user@www.chinagoods.com/a",
+            "https://www.chinagoods.com:/a",
+            "https://www.chinagoods.com:80x/a",
+            "https:////www.chinagoods.com/a",
+            "https:///a",
+            " https://www.chinagoods.com/a",
+            "ftp://www.chinagoods.com/a?utm_source=1",
+            "unknown://www.chinagoods.com/a",
+            "www.chinagoods.com/a?utm_source=1",
+            "",
+            "%"
+    );
+
+    private static List<String> urls() {
+        List<String> urls = new ArrayList<>(EDGE_URLS);
+        urls.addAll(BenchmarkCorpus.load(BenchmarkCorpus.NGINX_URLS));
+        return urls;
+    }
+
+    @Test
+    public void testSpans() {
+        UrlTokenizer tokenizer = new UrlTokenizer().reset("https://www.chinagoods.com:443/product/1.html?id=1&q=%E6%B0%B4#top");
+        Assert.assertTrue(tokenizer.isSimpleHttpUrl());
+        Assert.assertEquals("https", tokenizer.scheme());
+        Assert.assertEquals("www.chinagoods.com:443", tokenizer.authority());
+        Assert.assertEquals("www.chinagoods.com", tokenizer.host());
+        Assert.assertEquals("/product/1.html", tokenizer.path());
+        Assert.assertEquals("id=1&q=%E6%B0%B4", tokenizer.query());
+        Assert.assertEquals("top", tokenizer.fragment());
+
+        tokenizer.parameters(tokenizer.getQueryStart(), tokenizer.getQueryEnd(), true);
+        Assert.assertTrue(tokenizer.nextParameter());
+        Assert.assertTrue(tokenizer.keyEquals("id"));
+        Assert.assertEquals("1", tokenizer.value());
+        Assert.assertTrue(tokenizer.nextParameter());
+        Assert.assertEquals("q", tokenizer.key());
+        Assert.assertEquals("水", tokenizer.value());
+        Assert.assertFalse(tokenizer.nextParameter());
+
+        tokenizer.reset("/relative/path?a");
+        Assert.assertFalse(tokenizer.isSimpleHttpUrl());
+        Assert.assertNull(tokenizer.scheme());
+        Assert.assertNull(tokenizer.authority());
+        Assert.assertEquals("/relative/path", tokenizer.path());
+        Assert.assertEquals("a", tokenizer.query());
+        Assert.assertNull(tokenizer.fragment());
+    }
+
+    @Test
+    public void testIsDecodable() {
+        for (String s : Arrays.asList("", "a+b", "%41", "%+f", "%-0", "%-1", "%4", "%", "%%41", "%G1", "%1G", "a%E6%B0%B4")) {
+            boolean decodable;
+            try {
+                URLDecoder.decode(s, StandardCharsets.UTF_8.name());
+                decodable = true;
+            } catch (Exception e) {
+                decodable = false;
+            }
+            Assert.assertEquals(s, decodable, UrlTokenizer.isDecodable(s));
+        }
+    }
+
+    /**
+     * 简单http链接的切分与java.net.URL相同
+     */
+    @Test
+    public void testSameAsUrl() throws Exception {
+        UrlTokenizer tokenizer = new UrlTokenizer();
+        int simple = 0;
+        for (String url : urls()) {
+            if (!tokenizer.reset(url).isSimpleHttpUrl()) {
+                continue;
+            }
+            URL expected = new URL(url);
+            Assert.assertEquals(url, expected.getProtocol(), tokenizer.scheme().toLowerCase());
+            Assert.assertEquals(url, expected.getAuthority(), tokenizer.authority());
+            Assert.assertEquals(url, expected.getHost(), tokenizer.host());
+            Assert.assertEquals(url, expected.getPath(), tokenizer.path());
+            Assert.assertEquals(url, expected.getQuery(), tokenizer.query());
+            Assert.assertEquals(url, expected.getRef(), tokenizer.fragment());
+            simple++;
+        }
+        Assert.assertTrue(simple > 100);
+    }
+
+    /**
+     * 与整体解码后按[&#]切分、replaceAll去除特殊字符的结果相同
+     */
+    @Test
+    public void testSameAsLegacyParameter() throws Exception {
+        UDFAdUrlFormat udf = new UDFAdUrlFormat();
+        for (String url : urls()) {
+            Map<String, Object> expected = legacyParameter(url);
+            Assert.assertEquals(url, expected, HttpParamUtil.getParameter(url));
+            String[] values = HttpParamUtil.getParameters(url, UDFAdUrlFormat.AD_PARAM_LIST);
+            for (int i = 0; i < values.length; i++) {
+                Assert.assertEquals(url, expected.get(UDFAdUrlFormat.AD_PARAM_LIST.get(i)), values[i]);
+            }
+            Assert.assertEquals(url, legacyAdUrlFormat(url), udf.evaluate(url));
+        }
+    }
+
+    private static Map<String, Object> legacyParameter(String url) {
+        Map<String, Object> map = new HashMap<String, Object>();
+        try {
+            url = URLDecoder.decode(url, StandardCharsets.UTF_8.name());
+        } catch (Exception e) {
+            // 保留原url
+        }
+        if (url.indexOf('?') != -1) {
+            for (String keyValue : url.substring(url.indexOf('?') + 1).split("[&#]")) {
+                if (!keyValue.contains("=")) {
+                    continue;
+                }
+                map.put(keyValue.substring(0, keyValue.indexOf("=")), keyValue.substring(keyValue.indexOf("=") + 1).replaceAll("[.、']", ""));
+            }
+        }
+        return map;
+    }
+
+    private static String legacyAdUrlFormat(String value) {
+        value = StringEscapeUtils.unescapeJava(value);
+        URL adUri;
+        try {
+            adUri = new URL(value);
+        } catch (Exception e) {
+            return null;
+        }
+        Map<String, Object> paramsMap = legacyParameter(value);
+        return String.format("%s://%s%s?utm_campaign=%s&utm_source=%s&utm_medium=%s&utm_content=%s", adUri.getProtocol(), adUri.getAuthority(),
+                adUri.getPath(),
+                paramsMap.getOrDefault("utm_campaign", ""),
+                paramsMap.getOrDefault("utm_source", ""),
+                paramsMap.getOrDefault("utm_medium", ""),
+                paramsMap.getOrDefault("utm_content", ""));
+    }
+}
@@ -0,0 +1,96 @@
+package com.chinagoods.bigdata.functions.utils.ahocorasick;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class AhoCorasickAutomatonTest {
+    @Test
+    public void testFindAll() {
+        AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(ImmutableList.of("he", "she", "his", "hers"));
+        List<String> hits = new ArrayList<>();
+        automaton.findAll("ushers", hits);
+        assertEquals(ImmutableList.of("she", "he", "hers"), hits);
+    }
+
+    @Test
+    public void testOverlappingKeywords() {
+        AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(ImmutableList.of("尾货", "清仓", "库存", "清库存"));
+        assertTrue(automaton.containsAny("尾尾货"));
+        assertTrue(automaton.containsAny("清清仓"));
+        assertTrue(automaton.containsAny("夏季清库存"));
+        assertFalse(automaton.containsAny("尾单清理"));
+
+        Set<String> hits = new TreeSet<>();
+        automaton.findAll("夏季清库存尾货", hits);
+        assertEquals(ImmutableList.of("尾货", "库存", "清库存"), ImmutableList.copyOf(hits));
+    }
+
+    @Test
+    public void testMatchPositionsAndStop() {
+        AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(ImmutableList.of("ab", "b", "ab"));
+        assertEquals(2, automaton.size());
+
+        List<Integer> ends = new ArrayList<>();
+        assertTrue(automaton.match("abab", (keywordIndex, end) -> ends.add(end)));
+        assertEquals(ImmutableList.of(2, 2, 4, 4), ends);
+
+        ends.clear();
+        assertFalse(automaton.match("abab", (keywordIndex, end) -> {
+            ends.add(end);
+            return false;
+        }));
+        assertEquals(ImmutableList.of(2), ends);
+    }
+
+    @Test
+    public void testEmptyKeywords() {
+        List<String> keywords = new ArrayList<>();
+        keywords.add(null);
+        keywords.add("");
+        AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(keywords);
+        assertEquals(0, automaton.size());
+        assertFalse(automaton.containsAny("anything"));
+        assertFalse(automaton.containsAny(""));
+    }
+
+    @Test
+    public void testAgainstNaiveContains() {
+        Random random = new Random(20221018L);
+        String alphabet = "abc尾货清";
+        for (int round = 0; round < 200; round++) {
+            List<String> keywords = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(8); i++) {
+                keywords.add(randomString(random, alphabet, 1 + random.nextInt(4)));
+            }
+            AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(keywords);
+            String text = randomString(random, alphabet, random.nextInt(30));
+
+            Set<String> expected = new TreeSet<>();
+            for (String keyword : keywords) {
+                if (text.contains(keyword)) {
+                    expected.add(keyword);
+                }
+            }
+            Set<String> actual = new TreeSet<>();
+            automaton.findAll(text, actual);
+            assertEquals(text + " " + keywords, expected, actual);
+            assertEquals(!expected.isEmpty(), automaton.containsAny(text));
+        }
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+}
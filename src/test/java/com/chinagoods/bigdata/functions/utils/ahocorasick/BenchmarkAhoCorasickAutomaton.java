@@ -0,0 +1,112 @@
+package com.chinagoods.bigdata.functions.utils.ahocorasick;
+
+import com.chinagoods.bigdata.functions.utils.BenchmarkCorpus;
+import org.apache.commons.lang.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 禁用词匹配基准测试，对比risk_keywords、search_keywords_sensitive原有的逐词contains与Aho-Corasick自动机
+ *
+ * @author xiaowei.song
+ * date: 2022-10-18
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@BenchmarkMode(Mode.Throughput)
+public class BenchmarkAhoCorasickAutomaton {
+    private Set<String> keywords;
+    private AhoCorasickAutomaton automaton;
+    private BitSet hitKeywordIndexes;
+    private AhoCorasickAutomaton.MatchHandler hitKeywordHandler;
+
+    private BenchmarkCorpus.Cursor<String> goodsNames;
+
+    @Setup
+    public void setup() {
+        keywords = new HashSet<>(BenchmarkCorpus.load(BenchmarkCorpus.RISK_KEYWORDS));
+        automaton = new AhoCorasickAutomaton(new TreeSet<>(keywords));
+        hitKeywordIndexes = new BitSet(automaton.size());
+        hitKeywordHandler = (keywordIndex, end) -> {
+            hitKeywordIndexes.set(keywordIndex);
+            return true;
+        };
+        goodsNames = BenchmarkCorpus.cursor(BenchmarkCorpus.GOODS_NAMES, name -> name);
+    }
+
+    @Benchmark
+    public String containsLoopFindAll() {
+        String goodsName = goodsNames.next();
+        Set<String> hitKeywordSet = new TreeSet<>();
+        for (String keyword : keywords) {
+            if (StringUtils.contains(goodsName, keyword)) {
+                hitKeywordSet.add(keyword);
+            }
+        }
+        return StringUtils.join(hitKeywordSet, ",");
+    }
+
+    @Benchmark
+    public String automatonFindAll() {
+        String goodsName = goodsNames.next();
+        hitKeywordIndexes.clear();
+        automaton.match(goodsName, hitKeywordHandler);
+        StringBuilder hitKeywords = new StringBuilder();
+        for (int i = hitKeywordIndexes.nextSetBit(0); i >= 0; i = hitKeywordIndexes.nextSetBit(i + 1)) {
+            if (hitKeywords.length() > 0) {
+                hitKeywords.append(',');
+            }
+            hitKeywords.append(automaton.getKeyword(i));
+        }
+        return hitKeywords.toString();
+    }
+
+    @Benchmark
+    public boolean containsLoopContainsAny() {
+        String goodsName = goodsNames.next();
+        for (String keyword : keywords) {
+            if (StringUtils.contains(goodsName, keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean automatonContainsAny() {
+        return automaton.containsAny(goodsNames.next());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkAhoCorasickAutomaton.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
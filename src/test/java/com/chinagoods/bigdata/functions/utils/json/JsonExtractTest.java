@@ -0,0 +1,94 @@
+package com.chinagoods.bigdata.functions.utils.json;
+
+import com.chinagoods.bigdata.functions.utils.TextSliceUtils;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JsonExtractTest {
+    private static final List<String> DOCUMENTS = ImmutableList.of(
+            "{\"name\":\"义乌小商品\",\"emoji\":\"\\ud83d\\ude00😀\",\"escaped\":\"a\\\"b\\\\c\\n\\u00e9\",\"broken\":\"\\ud83d\","
+                    + "\"price\":12.50,\"count\":-3,\"big\":123456789012345678901234567890,\"ok\":true,\"none\":null,"
+                    + "\"goods\":[{\"id\":1,\"tags\":[\"袜子\",\"a\"]},{\"id\":2e3}]}",
+            "[\"x\", {\"name\": \"y\"}]",
+            "\"only\"",
+            "{\"name\":",
+            "");
+
+    private static final List<String> PATHS = ImmutableList.of(
+            "$", "$.name", "$.emoji", "$.escaped", "$.broken", "$.price", "$.count", "$.big", "$.ok", "$.none",
+            "$.goods", "$.goods[0]", "$.goods[0].tags[0]", "$.goods[1].id", "$[1].name", "$.missing",
+            "$.goods[*].id", "$..name", "$.goods[?(@.id == 1)].tags", "$[?(@ == 'x')]");
+
+    @Test
+    public void testBytesMatchString() {
+        Text text = new Text();
+        for (String document : DOCUMENTS) {
+            // a reused Text keeps stale bytes past getLength()
+            text.set(document + "                 garbage");
+            text.set(document);
+            for (String path : PATHS) {
+                JsonPath jsonPath = new JsonPath(path);
+                String message = document + " " + path;
+                // the String results used to be returned through Text.set(String)
+                assertEquals(message, toText(JsonExtract.extract(document, jsonPath.getScalarExtractor())),
+                        toText(JsonExtract.extract(text, jsonPath.getScalarSliceExtractor())));
+                assertEquals(message, toText(JsonExtract.extract(document, jsonPath.getObjectExtractor())),
+                        toText(JsonExtract.extract(text, jsonPath.getObjectSliceExtractor())));
+                assertEquals(message, JsonExtract.extract(document, jsonPath.getSizeExtractor()),
+                        JsonExtract.extract(text, jsonPath.getSizeExtractor()));
+            }
+            assertEquals(document, JsonUtils.jsonArrayLength(document), JsonUtils.jsonArrayLength(text));
+            assertEquals(document, JsonUtils.jsonArrayGet(document, -1), JsonUtils.jsonArrayGet(text, -1));
+        }
+    }
+
+    @Test
+    public void testIndefinitePaths() {
+        String json = "{\"items\":[{\"sku\":\"a\",\"k\":\"v\",\"n\":1},{\"k\":\"w\",\"sku\":\"b\",\"n\":1.0},"
+                + "{\"sku\":{\"sku\":\"c\"}},\"d\"],\"shop\":{\"sku\":null}}";
+        assertEquals("[\"a\",\"b\",{\"sku\":\"c\"}]", extract(json, "$.items[*].sku"));
+        assertEquals("[\"a\",\"b\",{\"sku\":\"c\"}]", extract(json, "$.items.*.sku"));
+        assertEquals("[\"a\",\"b\",{\"sku\":\"c\"},\"c\",null]", extract(json, "$..sku"));
+        // the condition field may come after the extracted one
+        assertEquals("[\"b\"]", extract(json, "$.items[?(@.k == 'w')].sku"));
+        assertEquals("[\"a\"]", extract(json, "$.items[?(@.k != \"w\")].sku"));
+        assertEquals("[\"a\",\"b\"]", extract(json, "$.items[?(@.n==1)].sku"));
+        assertEquals("[\"d\"]", extract(json, "$.items[?(@ == 'd')]"));
+        assertEquals("[]", extract(json, "$.missing[*]"));
+        assertEquals(Long.valueOf(5), JsonExtract.extract(json, new JsonPath("$..sku").getSizeExtractor()));
+        assertNull(JsonExtract.extract(json, new JsonPath("$.items[*].sku").getScalarExtractor()));
+        assertFalse(new JsonPath("$.items[*].sku").isDefinite());
+        assertTrue(new JsonPath("$.items[0][\"sku\"]").isDefinite());
+    }
+
+    @Test
+    public void testInvalidPaths() {
+        for (String path : new String[]{"$.", "$..", "$[*", "$[?(@.k = 'v')]", "$[?(@.k == v)]", "$[?(@[*] == 1)]", "$[?(@.k == 'v')"}) {
+            try {
+                new JsonPath(path);
+                fail(path);
+            } catch (RuntimeException expected) {
+            }
+        }
+    }
+
+    private static String extract(String json, String path) {
+        String result = JsonExtract.extract(json, new JsonPath(path).getObjectExtractor());
+        assertEquals(path, toText(result), toText(JsonExtract.extract(new Text(json), new JsonPath(path).getObjectSliceExtractor())));
+        return result;
+    }
+
+    private static Text toText(String value) {
+        return value == null ? null : new Text(value);
+    }
+
+    private static Text toText(Slice value) {
+        return value == null ? null : TextSliceUtils.set(new Text(), value);
+    }
+}
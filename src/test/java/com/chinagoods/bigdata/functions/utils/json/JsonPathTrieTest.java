@@ -0,0 +1,55 @@
+package com.chinagoods.bigdata.functions.utils.json;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JsonPathTrieTest {
+    private static final List<String> DOCUMENTS = ImmutableList.of(
+            "{\"event\":\"search\",\"time\":1666051200000,\"properties\":{\"platform_type\":\"H5\",\"is_login\":true,"
+                    + "\"goods\":[{\"id\":1,\"name\":\"袜子\"},{\"id\":2,\"tags\":[\"a\",\"b\"]}],\"1\":\"one\",\"empty\":null}}",
+            "[[1,2],{\"1\":\"x\",\"event\":3},\"s\"]",
+            "{\"properties\":{\"goods\":{\"0\":{\"id\":7}}}}",
+            "\"scalar\"",
+            "42",
+            "",
+            "{\"event\":\"click\",\"properties\":{\"goods\":[{\"id\":1},",
+            "{\"event\":\"dup\",\"event\":\"second\"}");
+
+    private static final List<String> PATHS = ImmutableList.of(
+            "$", "$.event", "$.time", "$.properties", "$.properties.platform_type", "$.properties.is_login",
+            "$.properties.goods[0].id", "$.properties.goods[1].id", "$.properties.goods[01].tags[1]",
+            "$.properties.goods[1].tags[0]", "$.properties.goods.0.id", "$.properties.1", "$.properties[\"1\"]",
+            "$.properties.empty", "$.properties.missing", "$[0][1]", "$[1].1", "$[1][1]", "$[2]", "$[1].event",
+            "$.event");
+
+    @Test
+    public void testAgainstJsonExtractScalar() {
+        List<JsonPath> paths = new ArrayList<>();
+        for (String path : PATHS) {
+            paths.add(new JsonPath(path));
+        }
+        JsonPathTrie trie = new JsonPathTrie(paths);
+        String[] results = new String[trie.size()];
+        for (String document : DOCUMENTS) {
+            trie.extract(document, results);
+            for (int i = 0; i < paths.size(); i++) {
+                assertEquals(document + " " + PATHS.get(i),
+                        JsonExtract.extract(document, paths.get(i).getScalarExtractor()), results[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testSubsetOfPaths() {
+        JsonPathTrie trie = new JsonPathTrie(ImmutableList.of(new JsonPath("$.b"), new JsonPath("$.a.x")));
+        String[] results = new String[2];
+        // values after the last needed one are not parsed, the malformed tail is never seen
+        trie.extract("{\"a\":{\"y\":[1,{\"x\":0}],\"x\":\"ax\"},\"b\":2, malformed", results);
+        assertArrayEquals(new String[]{"2", "ax"}, results);
+    }
+}